@@ -0,0 +1,306 @@
+/*
+ * Copyright [2016] [Vincent VAN HOLLEBEKE]
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package org.compuscene.metrics.prometheus;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+
+import io.prometheus.client.Collector;
+import io.prometheus.client.Summary;
+
+/**
+ * Compact {@link MetricStore} keeping gauge values in primitive arrays.
+ * <p>
+ * Every gauge family gets an int id and stores its series in growable columns: a {@code double[]} of values,
+ * an {@code int[]} of scrape generations and an array of label tuples. Label tuples are interned once and shared
+ * by all the families using them (e.g. the ~80 per-index families share the same {@code [cluster, index, context]}
+ * tuple), and each family maps tuple ids to slots using an open-addressing int map. This keeps per-series heap
+ * usage to a few bytes, compared to a boxed child in a map keyed by a list of label values per series.
+ * <p>
+ * Retired slots are recycled through a free list. Summaries are rare and kept as {@link SummaryFamily}.
+ */
+final class ArrayMetricStore implements MetricStore {
+
+    private static final int INITIAL_CAPACITY = 16;
+
+    private final ArrayList<Family> families = new ArrayList<>();
+    private final HashMap<String, Integer> familyIds = new HashMap<>();
+    private final ArrayList<SummaryFamily> summaries = new ArrayList<>();
+    private final HashMap<String, SummaryFamily> summariesByMetric = new HashMap<>();
+
+    // Label tuples currently referenced by at least one series, keyed by their label values.
+    private final HashMap<List<String>, LabelTuple> tuples = new HashMap<>();
+    private int nextTupleId = 0;
+
+    // Incremented at the start of every scrape. Series not touched during the current generation are retired.
+    private int generation = 0;
+
+    /**
+     * Interned label values shared by all series having them.
+     */
+    private static final class LabelTuple {
+        private final int id;
+        private final List<String> values;
+        private int references;
+
+        private LabelTuple(int id, String[] values) {
+            this.id = id;
+            this.values = Arrays.asList(values);
+        }
+    }
+
+    /**
+     * Columns of a single gauge family.
+     */
+    private static final class Family {
+        private final String name;
+        private final String help;
+        private final Collector.Type type;
+        private final List<String> labelNames;
+
+        private double[] values = new double[INITIAL_CAPACITY];
+        private int[] generations = new int[INITIAL_CAPACITY];
+        private LabelTuple[] labels = new LabelTuple[INITIAL_CAPACITY];
+        // High-water mark of used slots, retired slots below it are kept in the free list.
+        private int size;
+        private int[] free = new int[INITIAL_CAPACITY];
+        private int freeCount;
+
+        // Open-addressing map of tuple id to slot. Keys are stored as (id + 1) so that 0 marks an empty bucket.
+        private int[] keys = new int[INITIAL_CAPACITY * 2];
+        private int[] slots = new int[INITIAL_CAPACITY * 2];
+        private int count;
+
+        private Family(String name, String help, Collector.Type type, String[] labelNames) {
+            this.name = name;
+            this.help = help;
+            this.type = type;
+            this.labelNames = Arrays.asList(labelNames);
+        }
+
+        private static int bucket(int tupleId, int mask) {
+            int h = tupleId * 0x9E3779B9;
+            return (h ^ (h >>> 16)) & mask;
+        }
+
+        private int find(int tupleId) {
+            int mask = keys.length - 1;
+            for (int i = bucket(tupleId, mask); keys[i] != 0; i = (i + 1) & mask) {
+                if (keys[i] == tupleId + 1) {
+                    return i;
+                }
+            }
+            return -1;
+        }
+
+        private void put(int tupleId, int slot) {
+            if ((count + 1) * 2 > keys.length) {
+                int[] oldKeys = keys;
+                int[] oldSlots = slots;
+                keys = new int[oldKeys.length * 2];
+                slots = new int[oldSlots.length * 2];
+                count = 0;
+                for (int i = 0; i < oldKeys.length; i++) {
+                    if (oldKeys[i] != 0) {
+                        put(oldKeys[i] - 1, oldSlots[i]);
+                    }
+                }
+            }
+            int mask = keys.length - 1;
+            int i = bucket(tupleId, mask);
+            while (keys[i] != 0) {
+                i = (i + 1) & mask;
+            }
+            keys[i] = tupleId + 1;
+            slots[i] = slot;
+            count++;
+        }
+
+        // Linear probing removal with backward shifting, so that no tombstones are needed.
+        private void remove(int bucket) {
+            int mask = keys.length - 1;
+            int i = bucket;
+            keys[i] = 0;
+            for (int j = (i + 1) & mask; keys[j] != 0; j = (j + 1) & mask) {
+                int home = bucket(keys[j] - 1, mask);
+                boolean movable = i <= j ? (home <= i || home > j) : (home <= i && home > j);
+                if (movable) {
+                    keys[i] = keys[j];
+                    slots[i] = slots[j];
+                    keys[j] = 0;
+                    i = j;
+                }
+            }
+            count--;
+        }
+
+        private int slotOf(LabelTuple tuple) {
+            int i = find(tuple.id);
+            return i < 0 ? -1 : slots[i];
+        }
+
+        private int attach(LabelTuple tuple) {
+            int slot = slotOf(tuple);
+            if (slot >= 0) {
+                return slot;
+            }
+            if (freeCount > 0) {
+                slot = free[--freeCount];
+            } else {
+                if (size == values.length) {
+                    int capacity = values.length * 2;
+                    values = Arrays.copyOf(values, capacity);
+                    generations = Arrays.copyOf(generations, capacity);
+                    labels = Arrays.copyOf(labels, capacity);
+                }
+                slot = size++;
+            }
+            labels[slot] = tuple;
+            values[slot] = 0;
+            tuple.references++;
+            put(tuple.id, slot);
+            return slot;
+        }
+
+        private LabelTuple detach(int slot) {
+            LabelTuple tuple = labels[slot];
+            remove(find(tuple.id));
+            labels[slot] = null;
+            if (freeCount == free.length) {
+                free = Arrays.copyOf(free, free.length * 2);
+            }
+            free[freeCount++] = slot;
+            return tuple;
+        }
+    }
+
+    /**
+     * A slot of a family. If the slot was retired (and possibly reused by another series) in the meantime,
+     * setting the handle attaches the series again.
+     */
+    private final class Handle implements GaugeHandle {
+        private final Family family;
+        private LabelTuple tuple;
+        private int slot;
+
+        private Handle(Family family, LabelTuple tuple, int slot) {
+            this.family = family;
+            this.tuple = tuple;
+            this.slot = slot;
+        }
+
+        @Override
+        public void set(double value) {
+            Family f = family;
+            if (f.labels[slot] != tuple) {
+                tuple = intern(tuple.values);
+                slot = f.attach(tuple);
+            }
+            f.values[slot] = value;
+            f.generations[slot] = generation;
+        }
+    }
+
+    private LabelTuple intern(List<String> labelValues) {
+        LabelTuple tuple = tuples.get(labelValues);
+        if (tuple == null) {
+            tuple = new LabelTuple(nextTupleId++, labelValues.toArray(new String[0]));
+            tuples.put(tuple.values, tuple);
+        }
+        return tuple;
+    }
+
+    private void release(LabelTuple tuple) {
+        if (--tuple.references == 0) {
+            tuples.remove(tuple.values, tuple);
+        }
+    }
+
+    @Override
+    public void registerGauge(String metric, String name, String help, Collector.Type type, String[] labelNames) {
+        familyIds.put(metric, families.size());
+        families.add(new Family(name, help, type, labelNames));
+    }
+
+    @Override
+    public void registerSummary(String metric, String name, String help, String[] labelNames) {
+        SummaryFamily summary = new SummaryFamily(name, help, labelNames);
+        summaries.add(summary);
+        summariesByMetric.put(metric, summary);
+    }
+
+    @Override
+    public GaugeHandle gauge(String metric, String[] labelValues) {
+        Family family = families.get(familyIds.get(metric));
+        if (labelValues.length != family.labelNames.size()) {
+            throw new IllegalArgumentException("Incorrect number of labels for " + family.name);
+        }
+        LabelTuple tuple = intern(Arrays.asList(labelValues));
+        int slot = family.slotOf(tuple);
+        if (slot < 0) {
+            slot = family.attach(tuple);
+            // a new series is not considered set until the handle is set
+            family.generations[slot] = generation - 1;
+        }
+        return new Handle(family, tuple, slot);
+    }
+
+    @Override
+    public Summary.Child summary(String metric, String[] labelValues) {
+        return summariesByMetric.get(metric).child(labelValues);
+    }
+
+    @Override
+    public void startScrape() {
+        generation++;
+    }
+
+    @Override
+    public int finishScrape() {
+        int retired = 0;
+        for (Family family : families) {
+            for (int slot = 0; slot < family.size; slot++) {
+                if (family.labels[slot] != null && family.generations[slot] != generation) {
+                    release(family.detach(slot));
+                    retired++;
+                }
+            }
+        }
+        return retired;
+    }
+
+    @Override
+    public void encode(MetricsEncoder encoder) throws IOException {
+        for (Family family : families) {
+            encoder.startFamily(family.name, family.help, family.type, family.labelNames);
+            for (int slot = 0; slot < family.size; slot++) {
+                LabelTuple tuple = family.labels[slot];
+                if (tuple != null) {
+                    encoder.gauge(tuple.values, family.values[slot]);
+                }
+            }
+            encoder.endFamily();
+        }
+        for (SummaryFamily summary : summaries) {
+            summary.encode(encoder);
+        }
+    }
+}
@@ -0,0 +1,38 @@
+/*
+ * Copyright [2016] [Vincent VAN HOLLEBEKE]
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+package org.compuscene.metrics.prometheus;
+
+/**
+ * A source of metrics describing the exporter itself (e.g. response cache statistics) rather than the cluster.
+ * <p>
+ * Sources are added to {@link PrometheusMetricsCollector} before its metrics are registered. Their metrics are
+ * registered together with all the others and set on every update in the context of the originating node.
+ */
+public interface ExporterMetricsSource {
+
+    /**
+     * Register the metrics of this source, called once.
+     * @param catalog The catalog
+     */
+    void registerMetrics(PrometheusMetricsCatalog catalog);
+
+    /**
+     * Set the current values of the metrics of this source.
+     * @param node Gauge handles of the originating node
+     */
+    void updateMetrics(GaugeHandles node);
+}
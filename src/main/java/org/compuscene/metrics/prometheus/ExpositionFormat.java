@@ -0,0 +1,152 @@
+/*
+ * Copyright [2016] [Vincent VAN HOLLEBEKE]
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+package org.compuscene.metrics.prometheus;
+
+import java.io.OutputStream;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+
+/**
+ * Exposition formats the catalog can be written in.
+ */
+public enum ExpositionFormat {
+
+    /**
+     * Prometheus text format version 0.0.4, the default.
+     */
+    TEXT_004("text/plain", "text/plain; charset=UTF-8") {
+        @Override
+        MetricsEncoder encoder(OutputStream out) {
+            return new TextFormatEncoder(out);
+        }
+    },
+    /**
+     * OpenMetrics text format version 1.0.0.
+     */
+    OPENMETRICS_100("application/openmetrics-text", "application/openmetrics-text; version=1.0.0; charset=utf-8") {
+        @Override
+        MetricsEncoder encoder(OutputStream out) {
+            return new OpenMetricsEncoder(out);
+        }
+    },
+    /**
+     * Length-delimited {@code io.prometheus.client.MetricFamily} protobuf messages.
+     */
+    PROTOBUF("application/vnd.google.protobuf",
+            "application/vnd.google.protobuf; proto=io.prometheus.client.MetricFamily; encoding=delimited") {
+        @Override
+        MetricsEncoder encoder(OutputStream out) {
+            return new ProtobufEncoder(out);
+        }
+
+        @Override
+        boolean accepts(String mediaType, String[] parameters) {
+            return super.accepts(mediaType, parameters)
+                    && hasParameter(parameters, "proto", "io.prometheus.client.MetricFamily")
+                    && hasParameter(parameters, "encoding", "delimited");
+        }
+    };
+
+    private final String mediaType;
+    private final String contentType;
+
+    ExpositionFormat(String mediaType, String contentType) {
+        this.mediaType = mediaType;
+        this.contentType = contentType;
+    }
+
+    /**
+     * @return Value of the {@code Content-Type} header of responses in this format
+     */
+    public String contentType() {
+        return contentType;
+    }
+
+    abstract MetricsEncoder encoder(OutputStream out);
+
+    /**
+     * @param mediaType Lower case media type of a media range of the {@code Accept} header
+     * @param parameters Parameters of the media range, the first item is the media type itself
+     * @return Whether the media range selects this format
+     */
+    boolean accepts(String mediaType, String[] parameters) {
+        return this.mediaType.equals(mediaType);
+    }
+
+    private static boolean hasParameter(String[] parameters, String name, String value) {
+        for (int i = 1; i < parameters.length; i++) {
+            String[] parameter = parameters[i].split("=", 2);
+            if (parameter.length == 2 && parameter[0].trim().equalsIgnoreCase(name) && parameter[1].trim().equals(value)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Pick the format preferred by the {@code Accept} request header values. Media ranges with a higher quality win,
+     * the first one listed wins among the ones of the same quality. Ranges of unsupported (or wildcard) media types
+     * are ignored and {@link #TEXT_004} is used if no supported media type is listed.
+     * @param accept Values of all {@code Accept} headers of the request
+     * @return The format to use
+     */
+    public static ExpositionFormat negotiate(List<String> accept) {
+        return negotiate(accept, EnumSet.allOf(ExpositionFormat.class));
+    }
+
+    /**
+     * Pick the format preferred by the {@code Accept} request header values among the enabled ones, see
+     * {@link #negotiate(List)}. {@link #TEXT_004} is always enabled.
+     * @param accept Values of all {@code Accept} headers of the request
+     * @param enabled Formats that may be picked
+     * @return The format to use
+     */
+    public static ExpositionFormat negotiate(List<String> accept, Set<ExpositionFormat> enabled) {
+        ExpositionFormat preferred = TEXT_004;
+        if (accept == null) {
+            return preferred;
+        }
+        float best = 0;
+        for (String header : accept) {
+            for (String range : header.split(",")) {
+                String[] parts = range.split(";");
+                String mediaType = parts[0].trim().toLowerCase(Locale.ROOT);
+                float quality = 1;
+                for (int i = 1; i < parts.length; i++) {
+                    String parameter = parts[i].trim();
+                    if (parameter.startsWith("q=") || parameter.startsWith("Q=")) {
+                        try {
+                            quality = Float.parseFloat(parameter.substring(2).trim());
+                        } catch (NumberFormatException e) {
+                            quality = 0;
+                        }
+                    }
+                }
+                for (ExpositionFormat format : values()) {
+                    if (quality > best && (format == TEXT_004 || enabled.contains(format))
+                            && format.accepts(mediaType, parts)) {
+                        best = quality;
+                        preferred = format;
+                    }
+                }
+            }
+        }
+        return preferred;
+    }
+}
@@ -0,0 +1,184 @@
+/*
+ * Copyright [2016] [Vincent VAN HOLLEBEKE]
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+package org.compuscene.metrics.prometheus;
+
+import java.io.IOException;
+import java.io.OutputStream;
+
+/**
+ * A small buffered UTF-8 writer of exposition output.
+ * <p>
+ * Compared to a {@link java.io.Writer} over the stream it avoids both the intermediate {@code char} buffers of the
+ * charset encoder and the temporary strings of formatting doubles: metric names, label names and most label values
+ * are plain ASCII and are copied byte per char, and integral values (the majority of the exported stats) are
+ * printed digit by digit in the same form {@link Double#toString(double)} uses.
+ */
+final class ExpositionOutput {
+
+    private static final int BUFFER_SIZE = 8192;
+    private static final long NEGATIVE_ZERO_BITS = Double.doubleToRawLongBits(-0.0d);
+    // Double.toString switches to the computerized scientific notation from 10^7 on.
+    private static final double PLAIN_INTEGRAL_LIMIT = 1e7;
+
+    private final OutputStream out;
+    private final byte[] buffer = new byte[BUFFER_SIZE];
+    private int position;
+
+    ExpositionOutput(OutputStream out) {
+        this.out = out;
+    }
+
+    private void ensure(int length) throws IOException {
+        if (position + length > buffer.length) {
+            flushBuffer();
+        }
+    }
+
+    private void flushBuffer() throws IOException {
+        if (position > 0) {
+            out.write(buffer, 0, position);
+            position = 0;
+        }
+    }
+
+    void writeByte(char c) throws IOException {
+        ensure(1);
+        buffer[position++] = (byte) c;
+    }
+
+    /**
+     * Write a string without any escaping.
+     * @param s The string
+     * @throws IOException If writing to the underlying stream fails
+     */
+    void write(String s) throws IOException {
+        for (int i = 0, length = s.length(); i < length; i++) {
+            writeChar(s, i, s.charAt(i));
+            if (Character.isHighSurrogate(s.charAt(i)) && i + 1 < length && Character.isLowSurrogate(s.charAt(i + 1))) {
+                i++;
+            }
+        }
+    }
+
+    /**
+     * Write a string escaping backslashes and new lines, and optionally double quotes.
+     * @param s The string
+     * @param quotes Whether double quotes should be escaped too
+     * @throws IOException If writing to the underlying stream fails
+     */
+    void writeEscaped(String s, boolean quotes) throws IOException {
+        for (int i = 0, length = s.length(); i < length; i++) {
+            char c = s.charAt(i);
+            if (c == '\\') {
+                writeByte('\\');
+                writeByte('\\');
+            } else if (c == '\n') {
+                writeByte('\\');
+                writeByte('n');
+            } else if (c == '"' && quotes) {
+                writeByte('\\');
+                writeByte('"');
+            } else {
+                writeChar(s, i, c);
+                if (Character.isHighSurrogate(c) && i + 1 < length && Character.isLowSurrogate(s.charAt(i + 1))) {
+                    i++;
+                }
+            }
+        }
+    }
+
+    // Encodes the char at the given index, surrogate pairs are consumed as a whole (the caller skips the low one).
+    private void writeChar(String s, int index, char c) throws IOException {
+        ensure(4);
+        if (c < 0x80) {
+            buffer[position++] = (byte) c;
+        } else if (c < 0x800) {
+            buffer[position++] = (byte) (0xC0 | (c >> 6));
+            buffer[position++] = (byte) (0x80 | (c & 0x3F));
+        } else if (Character.isSurrogate(c)) {
+            if (Character.isHighSurrogate(c) && index + 1 < s.length() && Character.isLowSurrogate(s.charAt(index + 1))) {
+                int codePoint = Character.toCodePoint(c, s.charAt(index + 1));
+                buffer[position++] = (byte) (0xF0 | (codePoint >> 18));
+                buffer[position++] = (byte) (0x80 | ((codePoint >> 12) & 0x3F));
+                buffer[position++] = (byte) (0x80 | ((codePoint >> 6) & 0x3F));
+                buffer[position++] = (byte) (0x80 | (codePoint & 0x3F));
+            } else {
+                // malformed input is replaced the same way String#getBytes does
+                buffer[position++] = (byte) '?';
+            }
+        } else {
+            buffer[position++] = (byte) (0xE0 | (c >> 12));
+            buffer[position++] = (byte) (0x80 | ((c >> 6) & 0x3F));
+            buffer[position++] = (byte) (0x80 | (c & 0x3F));
+        }
+    }
+
+    /**
+     * Write a value the same way {@link io.prometheus.client.Collector#doubleToGoString(double)} formats it.
+     * @param value The value
+     * @throws IOException If writing to the underlying stream fails
+     */
+    void writeDouble(double value) throws IOException {
+        if (value == Double.POSITIVE_INFINITY) {
+            write("+Inf");
+        } else if (value == Double.NEGATIVE_INFINITY) {
+            write("-Inf");
+        } else if (value == (long) value && Math.abs(value) < PLAIN_INTEGRAL_LIMIT
+                && Double.doubleToRawLongBits(value) != NEGATIVE_ZERO_BITS) {
+            writeLong((long) value);
+            writeByte('.');
+            writeByte('0');
+        } else {
+            write(Double.toString(value));
+        }
+    }
+
+    /**
+     * Write a long in decimal notation.
+     * @param value The value
+     * @throws IOException If writing to the underlying stream fails
+     */
+    void writeLong(long value) throws IOException {
+        if (value == Long.MIN_VALUE) {
+            write(Long.toString(value));
+            return;
+        }
+        ensure(20);
+        if (value < 0) {
+            buffer[position++] = '-';
+            value = -value;
+        }
+        int digits = 1;
+        for (long v = value; v >= 10; v /= 10) {
+            digits++;
+        }
+        int end = position + digits;
+        for (int i = end - 1; i >= position; i--) {
+            buffer[i] = (byte) ('0' + (value % 10));
+            value /= 10;
+        }
+        position = end;
+    }
+
+    /**
+     * Write all buffered bytes to the underlying stream. The stream itself is neither flushed nor closed.
+     * @throws IOException If writing to the underlying stream fails
+     */
+    void flush() throws IOException {
+        flushBuffer();
+    }
+}
@@ -0,0 +1,33 @@
+/*
+ * Copyright [2016] [Vincent VAN HOLLEBEKE]
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package org.compuscene.metrics.prometheus;
+
+/**
+ * A resolved series of a gauge metric registered in {@link PrometheusMetricsCatalog}.
+ * <p>
+ * Label values of the series are resolved once when the handle is obtained, setting the value
+ * afterwards does not involve any lookup or allocation.
+ */
+public interface GaugeHandle {
+
+    /**
+     * Set a value of the series for the current scrape.
+     * @param value Value of the metric
+     */
+    void set(double value);
+}
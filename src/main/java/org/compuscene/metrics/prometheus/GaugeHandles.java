@@ -0,0 +1,118 @@
+/*
+ * Copyright [2016] [Vincent VAN HOLLEBEKE]
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package org.compuscene.metrics.prometheus;
+
+import java.util.HashMap;
+
+/**
+ * A cache of {@link GaugeHandle}s sharing a common label context, typically a single cluster node or
+ * a single index and stats context.
+ * <p>
+ * Handles are looked up by metric name and by the metric specific label values (if any). Once a handle
+ * is resolved the lookups do not allocate, which keeps repeated scrapes of many nodes or indices cheap.
+ * Instances are not thread-safe.
+ */
+public final class GaugeHandles {
+
+    /**
+     * Resolves a handle for given metric and metric specific label values.
+     */
+    @FunctionalInterface
+    interface Resolver {
+        GaugeHandle resolve(String metric, String[] labelValues);
+    }
+
+    /**
+     * A node of the label values tree. The root level is keyed by metric name, each following level
+     * by the next label value.
+     */
+    private static final class Node {
+        private GaugeHandle handle;
+        private HashMap<String, Node> children;
+
+        private Node child(String key) {
+            if (children == null) {
+                children = new HashMap<>();
+            }
+            Node node = children.get(key);
+            if (node == null) {
+                node = new Node();
+                children.put(key, node);
+            }
+            return node;
+        }
+    }
+
+    private final Resolver resolver;
+    private final Node root = new Node();
+
+    GaugeHandles(Resolver resolver) {
+        this.resolver = resolver;
+    }
+
+    private GaugeHandle resolve(Node node, String metric, String... labelValues) {
+        node.handle = resolver.resolve(metric, labelValues);
+        return node.handle;
+    }
+
+    /**
+     * Set a value of metric that has no metric specific labels.
+     * @param metric Metric name without the metric prefix
+     * @param value Value of the metric
+     */
+    public void set(String metric, double value) {
+        Node node = root.child(metric);
+        (node.handle != null ? node.handle : resolve(node, metric)).set(value);
+    }
+
+    /**
+     * Set a value of metric that has one metric specific label.
+     * @param metric Metric name without the metric prefix
+     * @param value Value of the metric
+     * @param label Label value
+     */
+    public void set(String metric, double value, String label) {
+        Node node = root.child(metric).child(label);
+        (node.handle != null ? node.handle : resolve(node, metric, label)).set(value);
+    }
+
+    /**
+     * Set a value of metric that has two metric specific labels.
+     * @param metric Metric name without the metric prefix
+     * @param value Value of the metric
+     * @param label1 First label value
+     * @param label2 Second label value
+     */
+    public void set(String metric, double value, String label1, String label2) {
+        Node node = root.child(metric).child(label1).child(label2);
+        (node.handle != null ? node.handle : resolve(node, metric, label1, label2)).set(value);
+    }
+
+    /**
+     * Set a value of metric that has three metric specific labels.
+     * @param metric Metric name without the metric prefix
+     * @param value Value of the metric
+     * @param label1 First label value
+     * @param label2 Second label value
+     * @param label3 Third label value
+     */
+    public void set(String metric, double value, String label1, String label2, String label3) {
+        Node node = root.child(metric).child(label1).child(label2).child(label3);
+        (node.handle != null ? node.handle : resolve(node, metric, label1, label2, label3)).set(value);
+    }
+}
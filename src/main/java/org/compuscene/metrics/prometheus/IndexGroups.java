@@ -0,0 +1,172 @@
+/*
+ * Copyright [2016] [Vincent VAN HOLLEBEKE]
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package org.compuscene.metrics.prometheus;
+
+import org.opensearch.common.regex.Regex;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Rules rolling indices up into index groups, see {@link PrometheusSettings#PROMETHEUS_INDICES_ROLLUP_GROUPS}.
+ * <p>
+ * A rule is either a wildcard pattern (e.g. {@code logs-*}), all matching indices belong to a group named after
+ * the pattern, or a regular expression prefixed with {@code regex:} (e.g. {@code regex:^\.ds-(.+)-\d{6}$}), the group
+ * is named after the capture groups joined by {@code -} (or after the expression if it has no capture groups).
+ * An index belongs to every group any rule resolves it to. The rules of an instance never change, the groups
+ * each index resolves to are cached by the instance. A new instance (with an empty cache) is created whenever
+ * the setting changes.
+ */
+public final class IndexGroups {
+
+    /**
+     * Prefix of rules that are regular expressions.
+     */
+    public static final String REGEX_PREFIX = "regex:";
+
+    /**
+     * No rules, no index belongs to any group.
+     */
+    public static final IndexGroups NONE = new IndexGroups(Collections.emptyList());
+
+    private static final String[] NO_GROUPS = new String[0];
+
+    private final List<Rule> rules;
+    private final Map<String, String[]> resolved = new ConcurrentHashMap<>();
+
+    private static final class Rule {
+        private final String wildcard;
+        private final Pattern regex;
+
+        private Rule(String wildcard, Pattern regex) {
+            this.wildcard = wildcard;
+            this.regex = regex;
+        }
+
+        private String resolve(String indexName) {
+            if (wildcard != null) {
+                return Regex.simpleMatch(wildcard, indexName) ? wildcard : null;
+            }
+            Matcher matcher = regex.matcher(indexName);
+            if (!matcher.matches()) {
+                return null;
+            }
+            if (matcher.groupCount() == 0) {
+                return regex.pattern();
+            }
+            StringBuilder group = new StringBuilder();
+            for (int i = 1; i <= matcher.groupCount(); i++) {
+                String captured = matcher.group(i);
+                if (captured != null) {
+                    if (group.length() > 0) {
+                        group.append('-');
+                    }
+                    group.append(captured);
+                }
+            }
+            return group.toString();
+        }
+    }
+
+    /**
+     * A constructor.
+     * @param rules The rules
+     * @throws IllegalArgumentException if any of the rules is not valid
+     */
+    public IndexGroups(List<String> rules) {
+        List<Rule> parsed = new ArrayList<>(rules.size());
+        for (String rule : rules) {
+            parsed.add(parseRule(rule));
+        }
+        this.rules = parsed;
+    }
+
+    private static Rule parseRule(String rule) {
+        if (rule.startsWith(REGEX_PREFIX)) {
+            try {
+                return new Rule(null, Pattern.compile(rule.substring(REGEX_PREFIX.length())));
+            } catch (RuntimeException e) {
+                throw new IllegalArgumentException("Invalid index group rule [" + rule + "]", e);
+            }
+        }
+        if (rule.isEmpty()) {
+            throw new IllegalArgumentException("Index group rule must not be empty");
+        }
+        return new Rule(rule, null);
+    }
+
+    /**
+     * Validate a single rule.
+     * @param rule The rule
+     * @return The rule
+     * @throws IllegalArgumentException if the rule is not valid
+     */
+    static String validateRule(String rule) {
+        parseRule(rule);
+        return rule;
+    }
+
+    /**
+     * @return Whether there are no rules
+     */
+    public boolean isEmpty() {
+        return rules.isEmpty();
+    }
+
+    /**
+     * Resolve the groups an index belongs to. The result is cached until dropped by {@link #retain(Collection)}.
+     * @param indexName Name of the index
+     * @return Names of the groups, possibly empty
+     */
+    public String[] resolve(String indexName) {
+        if (rules.isEmpty()) {
+            return NO_GROUPS;
+        }
+        return resolved.computeIfAbsent(indexName, this::resolveUncached);
+    }
+
+    /**
+     * Drop the cached groups of all indices but the given ones, e.g. of deleted indices.
+     * @param indexNames Names of the indices to keep
+     */
+    public void retain(Collection<String> indexNames) {
+        resolved.keySet().retainAll(indexNames);
+    }
+
+    private String[] resolveUncached(String indexName) {
+        Set<String> groups = null;
+        for (Rule rule : rules) {
+            String group = rule.resolve(indexName);
+            if (group != null && !group.isEmpty()) {
+                if (groups == null) {
+                    groups = new LinkedHashSet<>();
+                }
+                groups.add(group);
+            }
+        }
+        return groups == null ? NO_GROUPS : groups.toArray(NO_GROUPS);
+    }
+}
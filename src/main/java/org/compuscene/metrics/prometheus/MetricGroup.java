@@ -0,0 +1,118 @@
+/*
+ * Copyright [2016] [Vincent VAN HOLLEBEKE]
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+package org.compuscene.metrics.prometheus;
+
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+/**
+ * Groups of metric families that can be selected for collection, either per request with the {@code collect[]}
+ * parameter or by default with {@link PrometheusSettings#PROMETHEUS_METRIC_GROUPS}.
+ * <p>
+ * The metrics about the exporter itself (e.g. {@code metrics_generate_time_seconds}) do not belong to any group,
+ * they are always exported.
+ */
+public enum MetricGroup {
+    /** Cluster health, shards and nodes counts. */
+    CLUSTER,
+    /** Node roles. */
+    NODE,
+    /** Node level indices stats. */
+    INDICES,
+    /** Index level metrics, see {@link PrometheusSettings#PROMETHEUS_INDICES}. */
+    INDEX,
+    /** Transport stats. */
+    TRANSPORT,
+    /** HTTP stats. */
+    HTTP,
+    /** Thread pool stats. */
+    THREADPOOL,
+    /** Ingest pipelines stats. */
+    INGEST,
+    /** Circuit breakers stats. */
+    CIRCUITBREAKER,
+    /** Script stats. */
+    SCRIPT,
+    /** Process stats. */
+    PROCESS,
+    /** JVM stats. */
+    JVM,
+    /** OS stats. */
+    OS,
+    /** File system stats. */
+    FS,
+    /** Cluster settings, see {@link PrometheusSettings#PROMETHEUS_CLUSTER_SETTINGS}. */
+    CLUSTER_SETTINGS;
+
+    private static final Set<MetricGroup> NODE_STATS = Collections.unmodifiableSet(EnumSet.range(NODE, FS));
+
+    /**
+     * @return Name of the group used in settings and request parameters
+     */
+    public String key() {
+        return name().toLowerCase(Locale.ROOT);
+    }
+
+    /**
+     * @return Whether the metrics of the group are read from the nodes stats
+     */
+    public boolean isNodeStats() {
+        return NODE_STATS.contains(this);
+    }
+
+    /**
+     * @return Names of all the groups
+     */
+    public static List<String> keys() {
+        return Arrays.stream(values()).map(MetricGroup::key).collect(Collectors.toList());
+    }
+
+    /**
+     * Parse a group name.
+     * @param key Name of the group
+     * @return The group
+     * @throws IllegalArgumentException If there is no such group
+     */
+    public static MetricGroup fromKey(String key) {
+        for (MetricGroup group : values()) {
+            if (group.key().equals(key)) {
+                return group;
+            }
+        }
+        throw new IllegalArgumentException("Unknown metric group [" + key + "], expected one of " + keys());
+    }
+
+    /**
+     * Parse group names.
+     * @param keys Names of the groups
+     * @return The groups
+     * @throws IllegalArgumentException If any of the names is not a group
+     */
+    public static Set<MetricGroup> fromKeys(Collection<String> keys) {
+        Set<MetricGroup> groups = EnumSet.noneOf(MetricGroup.class);
+        for (String key : keys) {
+            groups.add(fromKey(key));
+        }
+        return groups;
+    }
+}
@@ -0,0 +1,86 @@
+/*
+ * Copyright [2016] [Vincent VAN HOLLEBEKE]
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package org.compuscene.metrics.prometheus;
+
+import java.io.IOException;
+
+import io.prometheus.client.Collector;
+import io.prometheus.client.Summary;
+
+/**
+ * Storage of metric families and their series backing {@link PrometheusMetricsCatalog}.
+ * <p>
+ * Label names and label values passed to the store are already extended with the cluster
+ * (and node) context by the catalog. Implementations are not expected to be thread-safe.
+ */
+interface MetricStore {
+
+    /**
+     * Register a new family of series whose values are set directly.
+     * @param metric Metric name without the metric prefix, used as a key for later lookups
+     * @param name Full metric name
+     * @param help Help text for the metric
+     * @param type Either {@link Collector.Type#GAUGE} or {@link Collector.Type#COUNTER}, passed to encoders as is
+     * @param labelNames Label names
+     */
+    void registerGauge(String metric, String name, String help, Collector.Type type, String[] labelNames);
+
+    /**
+     * Register a new summary family.
+     * @param metric Metric name without the metric prefix, used as a key for later lookups
+     * @param name Full metric name
+     * @param help Help text for the metric
+     * @param labelNames Label names
+     */
+    void registerSummary(String metric, String name, String help, String[] labelNames);
+
+    /**
+     * Resolve a gauge series, creating it if it does not exist yet.
+     * @param metric Metric name without the metric prefix
+     * @param labelValues Label values
+     * @return A handle of the series
+     */
+    GaugeHandle gauge(String metric, String[] labelValues);
+
+    /**
+     * Resolve a summary series, creating it if it does not exist yet. Summary series are never retired.
+     * @param metric Metric name without the metric prefix
+     * @param labelValues Label values
+     * @return The summary child
+     */
+    Summary.Child summary(String metric, String[] labelValues);
+
+    /**
+     * @see PrometheusMetricsCatalog#startScrape()
+     */
+    void startScrape();
+
+    /**
+     * @see PrometheusMetricsCatalog#finishScrape()
+     * @return Number of retired series
+     */
+    int finishScrape();
+
+    /**
+     * Pass all registered families and their current series to the encoder, gauges first in the order of
+     * registration followed by summaries.
+     * @param encoder The encoder
+     * @throws IOException If the encoder fails writing the output
+     */
+    void encode(MetricsEncoder encoder) throws IOException;
+}
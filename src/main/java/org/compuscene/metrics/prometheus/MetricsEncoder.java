@@ -0,0 +1,68 @@
+/*
+ * Copyright [2016] [Vincent VAN HOLLEBEKE]
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+package org.compuscene.metrics.prometheus;
+
+import java.io.IOException;
+import java.util.List;
+
+import io.prometheus.client.Collector;
+
+/**
+ * Receiver of the metric families and series of a {@link MetricStore}.
+ * <p>
+ * The store calls {@link #startFamily} for every registered family (even the ones without any series), then
+ * {@link #gauge} or {@link #summary} for each of its series, and {@link #endFamily()}. Once all families
+ * have been visited {@link #finish()} is called. Label values are passed in the same order as the label
+ * names of the family and must not be retained by the encoder after the call returns.
+ */
+interface MetricsEncoder {
+
+    /**
+     * @param name Full metric name
+     * @param help Help text for the metric
+     * @param type Type of the family, either {@link Collector.Type#GAUGE} or {@link Collector.Type#SUMMARY}
+     * @param labelNames Label names
+     * @throws IOException If writing the output fails
+     */
+    void startFamily(String name, String help, Collector.Type type, List<String> labelNames) throws IOException;
+
+    /**
+     * @param labelValues Label values
+     * @param value Value of the series
+     * @throws IOException If writing the output fails
+     */
+    void gauge(List<String> labelValues, double value) throws IOException;
+
+    /**
+     * @param labelValues Label values
+     * @param count Number of observations
+     * @param sum Sum of observations
+     * @param createdSeconds Creation time of the series in seconds since the epoch
+     * @throws IOException If writing the output fails
+     */
+    void summary(List<String> labelValues, double count, double sum, double createdSeconds) throws IOException;
+
+    /**
+     * @throws IOException If writing the output fails
+     */
+    void endFamily() throws IOException;
+
+    /**
+     * @throws IOException If writing the output fails
+     */
+    void finish() throws IOException;
+}
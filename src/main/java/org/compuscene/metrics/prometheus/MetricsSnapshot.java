@@ -0,0 +1,400 @@
+/*
+ * Copyright [2016] [Vincent VAN HOLLEBEKE]
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+package org.compuscene.metrics.prometheus;
+
+import org.opensearch.core.common.io.stream.StreamInput;
+import org.opensearch.core.common.io.stream.StreamOutput;
+import org.opensearch.core.common.io.stream.Writeable;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.AbstractList;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import io.prometheus.client.Collector;
+
+/**
+ * Compact, columnar copy of all the metric families and series of a catalog.
+ * <p>
+ * Every string (metric names, help texts, label names and values) is stored once in a dictionary and referenced
+ * by its index. Label values of all series are kept in a single {@code int[]} and values in {@code double[]} arrays,
+ * so the snapshot is cheap to serialize, to keep in memory and to render in any {@link ExpositionFormat}.
+ * <p>
+ * Series of snapshots taken on other nodes can be merged into the families of a catalog when it is rendered,
+ * see {@link PrometheusMetricsCatalog#merge(MetricsSnapshot)}.
+ */
+public final class MetricsSnapshot implements Writeable {
+
+    private static final byte GAUGE = 0;
+    private static final byte COUNTER = 1;
+    private static final byte SUMMARY = 2;
+
+    private final String[] strings;
+    // Per family: name, help, type, number of label names and number of series.
+    private final int[] familyNames;
+    private final int[] familyHelps;
+    private final byte[] familyTypes;
+    private final int[] familyLabelCounts;
+    private final int[] familySeriesCounts;
+    // Label names of all families followed by each other.
+    private final int[] labelNames;
+    // Label values of all series followed by each other.
+    private final int[] labelValues;
+    // One value per gauge series, three values (count, sum, created) per summary series.
+    private final double[] values;
+
+    // Lazily computed by seriesOf(), only needed when the snapshot is merged into another output.
+    private Map<String, Integer> familyIndex;
+    private int[] familyLabelNameOffsets;
+    private int[] familyLabelValueOffsets;
+    private int[] familyValueOffsets;
+
+    private MetricsSnapshot(String[] strings, int[] familyNames, int[] familyHelps, byte[] familyTypes,
+                            int[] familyLabelCounts, int[] familySeriesCounts, int[] labelNames,
+                            int[] labelValues, double[] values) {
+        this.strings = strings;
+        this.familyNames = familyNames;
+        this.familyHelps = familyHelps;
+        this.familyTypes = familyTypes;
+        this.familyLabelCounts = familyLabelCounts;
+        this.familySeriesCounts = familySeriesCounts;
+        this.labelNames = labelNames;
+        this.labelValues = labelValues;
+        this.values = values;
+    }
+
+    /**
+     * A constructor that materialize the instance from inputStream.
+     * @param in inputStream
+     * @throws IOException if there is an exception reading from inputStream
+     */
+    public MetricsSnapshot(StreamInput in) throws IOException {
+        this.strings = in.readStringArray();
+        this.familyNames = in.readVIntArray();
+        this.familyHelps = in.readVIntArray();
+        this.familyTypes = in.readByteArray();
+        this.familyLabelCounts = in.readVIntArray();
+        this.familySeriesCounts = in.readVIntArray();
+        this.labelNames = in.readVIntArray();
+        this.labelValues = in.readVIntArray();
+        this.values = in.readDoubleArray();
+    }
+
+    @Override
+    public void writeTo(StreamOutput out) throws IOException {
+        out.writeStringArray(strings);
+        out.writeVIntArray(familyNames);
+        out.writeVIntArray(familyHelps);
+        out.writeByteArray(familyTypes);
+        out.writeVIntArray(familyLabelCounts);
+        out.writeVIntArray(familySeriesCounts);
+        out.writeVIntArray(labelNames);
+        out.writeVIntArray(labelValues);
+        out.writeDoubleArray(values);
+    }
+
+    /**
+     * @return Number of metric families
+     */
+    public int familyCount() {
+        return familyNames.length;
+    }
+
+    /**
+     * Write the snapshot in given exposition format.
+     * @param format Exposition format
+     * @param out Output stream, it is not closed
+     * @throws IOException If writing the output fails
+     */
+    public void write(ExpositionFormat format, OutputStream out) throws IOException {
+        MetricsEncoder encoder = format.encoder(out);
+        encode(encoder);
+        encoder.finish();
+    }
+
+    void encode(MetricsEncoder encoder) throws IOException {
+        int labelName = 0;
+        int labelValue = 0;
+        int value = 0;
+        for (int family = 0; family < familyNames.length; family++) {
+            int labelCount = familyLabelCounts[family];
+            byte type = familyTypes[family];
+            encoder.startFamily(strings[familyNames[family]], strings[familyHelps[family]], toCollectorType(type),
+                    new StringList(labelNames, labelName, labelCount));
+            labelName += labelCount;
+            for (int series = 0; series < familySeriesCounts[family]; series++) {
+                StringList seriesLabelValues = new StringList(labelValues, labelValue, labelCount);
+                labelValue += labelCount;
+                if (type == SUMMARY) {
+                    encoder.summary(seriesLabelValues, values[value], values[value + 1], values[value + 2]);
+                    value += 3;
+                } else {
+                    encoder.gauge(seriesLabelValues, values[value++]);
+                }
+            }
+            encoder.endFamily();
+        }
+    }
+
+    private synchronized void buildFamilyIndex() {
+        if (familyIndex != null) {
+            return;
+        }
+        Map<String, Integer> index = new HashMap<>();
+        familyLabelNameOffsets = new int[familyNames.length];
+        familyLabelValueOffsets = new int[familyNames.length];
+        familyValueOffsets = new int[familyNames.length];
+        int labelName = 0;
+        int labelValue = 0;
+        int value = 0;
+        for (int family = 0; family < familyNames.length; family++) {
+            index.put(strings[familyNames[family]], family);
+            familyLabelNameOffsets[family] = labelName;
+            labelName += familyLabelCounts[family];
+            familyLabelValueOffsets[family] = labelValue;
+            familyValueOffsets[family] = value;
+            labelValue += familySeriesCounts[family] * familyLabelCounts[family];
+            value += familySeriesCounts[family] * (familyTypes[family] == SUMMARY ? 3 : 1);
+        }
+        familyIndex = index;
+    }
+
+    /**
+     * Pass the gauge (or counter) series of the named family to the encoder. Summaries and families that do not
+     * exist in this snapshot or have different labels are skipped.
+     */
+    void encodeSeries(String name, Collector.Type type, List<String> labelNames, MetricsEncoder encoder)
+            throws IOException {
+        buildFamilyIndex();
+        Integer family = familyIndex.get(name);
+        if (family == null || familyTypes[family] == SUMMARY || toCollectorType(familyTypes[family]) != type) {
+            return;
+        }
+        int labelCount = familyLabelCounts[family];
+        if (!labelNames.equals(new StringList(this.labelNames, familyLabelNameOffsets[family], labelCount))) {
+            return;
+        }
+        int labelValue = familyLabelValueOffsets[family];
+        int value = familyValueOffsets[family];
+        for (int series = 0; series < familySeriesCounts[family]; series++) {
+            encoder.gauge(new StringList(labelValues, labelValue, labelCount), values[value++]);
+            labelValue += labelCount;
+        }
+    }
+
+    private static Collector.Type toCollectorType(byte type) {
+        switch (type) {
+            case GAUGE:
+                return Collector.Type.GAUGE;
+            case COUNTER:
+                return Collector.Type.COUNTER;
+            case SUMMARY:
+                return Collector.Type.SUMMARY;
+            default:
+                throw new IllegalStateException("Unknown metric family type [" + type + "]");
+        }
+    }
+
+    /**
+     * Strings of the dictionary referenced by a range of indices.
+     */
+    private final class StringList extends AbstractList<String> {
+        private final int[] refs;
+        private final int offset;
+        private final int size;
+
+        private StringList(int[] refs, int offset, int size) {
+            this.refs = refs;
+            this.offset = offset;
+            this.size = size;
+        }
+
+        @Override
+        public String get(int index) {
+            return strings[refs[offset + index]];
+        }
+
+        @Override
+        public int size() {
+            return size;
+        }
+    }
+
+    /**
+     * Appends the series of other snapshots to the gauge and counter families passed through it.
+     */
+    static final class MergingEncoder implements MetricsEncoder {
+        private final MetricsEncoder delegate;
+        private final List<MetricsSnapshot> snapshots;
+        private String name;
+        private Collector.Type type;
+        private List<String> labelNames;
+
+        MergingEncoder(MetricsEncoder delegate, List<MetricsSnapshot> snapshots) {
+            this.delegate = delegate;
+            this.snapshots = snapshots;
+        }
+
+        @Override
+        public void startFamily(String name, String help, Collector.Type type, List<String> labelNames)
+                throws IOException {
+            this.name = name;
+            this.type = type;
+            this.labelNames = labelNames;
+            delegate.startFamily(name, help, type, labelNames);
+        }
+
+        @Override
+        public void gauge(List<String> labelValues, double value) throws IOException {
+            delegate.gauge(labelValues, value);
+        }
+
+        @Override
+        public void summary(List<String> labelValues, double count, double sum, double createdSeconds)
+                throws IOException {
+            delegate.summary(labelValues, count, sum, createdSeconds);
+        }
+
+        @Override
+        public void endFamily() throws IOException {
+            if (type != Collector.Type.SUMMARY) {
+                for (MetricsSnapshot snapshot : snapshots) {
+                    snapshot.encodeSeries(name, type, labelNames, delegate);
+                }
+            }
+            delegate.endFamily();
+        }
+
+        @Override
+        public void finish() throws IOException {
+            delegate.finish();
+        }
+    }
+
+    /**
+     * Collects the families and series of a {@link MetricStore} into a snapshot.
+     */
+    static final class Builder implements MetricsEncoder {
+        private final Map<String, Integer> dictionary = new HashMap<>();
+        private final List<String> strings = new ArrayList<>();
+        private final IntArray familyNames = new IntArray();
+        private final IntArray familyHelps = new IntArray();
+        private final IntArray familyTypes = new IntArray();
+        private final IntArray familyLabelCounts = new IntArray();
+        private final IntArray familySeriesCounts = new IntArray();
+        private final IntArray labelNames = new IntArray();
+        private final IntArray labelValues = new IntArray();
+        private double[] values = new double[256];
+        private int valueCount;
+        private int seriesCount;
+        private MetricsSnapshot snapshot;
+
+        private int intern(String s) {
+            Integer ref = dictionary.get(s);
+            if (ref == null) {
+                ref = strings.size();
+                strings.add(s);
+                dictionary.put(s, ref);
+            }
+            return ref;
+        }
+
+        private void addValue(double value) {
+            if (valueCount == values.length) {
+                values = Arrays.copyOf(values, values.length * 2);
+            }
+            values[valueCount++] = value;
+        }
+
+        private void addLabelValues(List<String> values) {
+            for (String value : values) {
+                labelValues.add(intern(value));
+            }
+            seriesCount++;
+        }
+
+        @Override
+        public void startFamily(String name, String help, Collector.Type type, List<String> labelNames) {
+            familyNames.add(intern(name));
+            familyHelps.add(intern(help));
+            familyTypes.add(type == Collector.Type.SUMMARY ? SUMMARY : type == Collector.Type.COUNTER ? COUNTER : GAUGE);
+            familyLabelCounts.add(labelNames.size());
+            for (String labelName : labelNames) {
+                this.labelNames.add(intern(labelName));
+            }
+            seriesCount = 0;
+        }
+
+        @Override
+        public void gauge(List<String> labelValues, double value) {
+            addLabelValues(labelValues);
+            addValue(value);
+        }
+
+        @Override
+        public void summary(List<String> labelValues, double count, double sum, double createdSeconds) {
+            addLabelValues(labelValues);
+            addValue(count);
+            addValue(sum);
+            addValue(createdSeconds);
+        }
+
+        @Override
+        public void endFamily() {
+            familySeriesCounts.add(seriesCount);
+        }
+
+        @Override
+        public void finish() {
+            int[] types = familyTypes.toArray();
+            byte[] familyTypes = new byte[types.length];
+            for (int i = 0; i < types.length; i++) {
+                familyTypes[i] = (byte) types[i];
+            }
+            snapshot = new MetricsSnapshot(strings.toArray(new String[0]), familyNames.toArray(),
+                    familyHelps.toArray(), familyTypes, familyLabelCounts.toArray(), familySeriesCounts.toArray(),
+                    labelNames.toArray(), labelValues.toArray(), Arrays.copyOf(values, valueCount));
+        }
+
+        MetricsSnapshot build() {
+            if (snapshot == null) {
+                throw new IllegalStateException("Snapshot is not finished yet");
+            }
+            return snapshot;
+        }
+    }
+
+    private static final class IntArray {
+        private int[] values = new int[64];
+        private int size;
+
+        void add(int value) {
+            if (size == values.length) {
+                values = Arrays.copyOf(values, size * 2);
+            }
+            values[size++] = value;
+        }
+
+        int[] toArray() {
+            return Arrays.copyOf(values, size);
+        }
+    }
+}
@@ -0,0 +1,106 @@
+/*
+ * Copyright [2016] [Vincent VAN HOLLEBEKE]
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+package org.compuscene.metrics.prometheus;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.List;
+
+import io.prometheus.client.Collector;
+
+/**
+ * {@link MetricsEncoder} streaming the OpenMetrics text format version 1.0.0.
+ * <p>
+ * The output follows {@link io.prometheus.client.exporter.common.TextFormat#writeOpenMetrics100}: counter families
+ * keep their name and their samples get the {@code _total} suffix, summaries carry their {@code _created} samples
+ * inline, label sets have no trailing comma and the exposition is terminated by {@code # EOF}.
+ */
+final class OpenMetricsEncoder implements MetricsEncoder {
+
+    private final ExpositionOutput out;
+
+    private String name;
+    private String suffix;
+    private List<String> labelNames;
+
+    OpenMetricsEncoder(OutputStream out) {
+        this.out = new ExpositionOutput(out);
+    }
+
+    @Override
+    public void startFamily(String name, String help, Collector.Type type, List<String> labelNames) throws IOException {
+        this.name = name;
+        this.suffix = type == Collector.Type.COUNTER ? "_total" : null;
+        this.labelNames = labelNames;
+        out.write("# TYPE ");
+        out.write(name);
+        out.writeByte(' ');
+        out.write(type == Collector.Type.COUNTER ? "counter" : type == Collector.Type.SUMMARY ? "summary" : "gauge");
+        out.writeByte('\n');
+        out.write("# HELP ");
+        out.write(name);
+        out.writeByte(' ');
+        out.writeEscaped(help, true);
+        out.writeByte('\n');
+    }
+
+    private void writeSample(String suffix, List<String> labelValues, double value) throws IOException {
+        out.write(name);
+        if (suffix != null) {
+            out.write(suffix);
+        }
+        if (!labelNames.isEmpty()) {
+            out.writeByte('{');
+            for (int i = 0; i < labelNames.size(); i++) {
+                if (i > 0) {
+                    out.writeByte(',');
+                }
+                out.write(labelNames.get(i));
+                out.writeByte('=');
+                out.writeByte('"');
+                out.writeEscaped(labelValues.get(i), true);
+                out.writeByte('"');
+            }
+            out.writeByte('}');
+        }
+        out.writeByte(' ');
+        out.writeDouble(value);
+        out.writeByte('\n');
+    }
+
+    @Override
+    public void gauge(List<String> labelValues, double value) throws IOException {
+        writeSample(suffix, labelValues, value);
+    }
+
+    @Override
+    public void summary(List<String> labelValues, double count, double sum, double createdSeconds) throws IOException {
+        writeSample("_count", labelValues, count);
+        writeSample("_sum", labelValues, sum);
+        writeSample("_created", labelValues, createdSeconds);
+    }
+
+    @Override
+    public void endFamily() {
+    }
+
+    @Override
+    public void finish() throws IOException {
+        out.write("# EOF\n");
+        out.flush();
+    }
+}
@@ -19,42 +19,138 @@ package org.compuscene.metrics.prometheus;
 
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
+import org.opensearch.common.Nullable;
 import org.opensearch.common.collect.Tuple;
 import org.opensearch.rest.prometheus.RestPrometheusMetricsAction;
 
+import java.io.ByteArrayOutputStream;
 import java.io.IOException;
-import java.io.StringWriter;
-import java.io.Writer;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.UnaryOperator;
 
-import io.prometheus.client.CollectorRegistry;
-import io.prometheus.client.Gauge;
+import io.prometheus.client.Collector;
 import io.prometheus.client.Summary;
 import io.prometheus.client.exporter.common.TextFormat;
 
 /**
  * A class that describes a Prometheus metrics catalog.
+ * <p>
+ * The catalog is meant to be long-lived: metric families are registered only once and every scrape then overwrites
+ * the values of the series it sets. A scrape is framed by {@link #startScrape()} and {@link #finishScrape()};
+ * gauge series that were not set in between (e.g. deleted indices or nodes that left the cluster) are retired
+ * from the catalog when the scrape finishes.
+ * <p>
+ * Metric families and their series are kept in a {@link MetricStore}, see {@link StoreType} for available backends.
+ * <p>
+ * Families can be registered as members of a {@link MetricGroup}, so that the output can be limited to some groups.
+ * <p>
+ * The catalog is not thread-safe. Callers sharing one instance must make sure that updating the values
+ * and rendering them happen under the same lock, see {@link PrometheusMetricsCollector}.
  */
 public class PrometheusMetricsCatalog {
     private static final Logger logger = LogManager.getLogger(RestPrometheusMetricsAction.class);
 
-    private String clusterName;
-    private String metricPrefix;
+    private final String clusterName;
+    private final String metricPrefix;
+    private final MetricStore store;
+    private final List<MetricsSnapshot> merged = new ArrayList<>();
+    // Full family name to the group it was registered in, families registered outside any group are not present.
+    private final Map<String, MetricGroup> familyGroups = new HashMap<>();
+    private MetricGroup registrationGroup;
 
-    private HashMap<String, Object> metrics;
-    private CollectorRegistry registry;
+    /**
+     * Storage backends of the catalog.
+     */
+    public enum StoreType {
+        /**
+         * Every metric family is a Prometheus simpleclient collector.
+         */
+        SIMPLECLIENT,
+        /**
+         * Metric values are kept in compact primitive arrays, see {@link ArrayMetricStore}.
+         */
+        ARRAY
+    }
 
     /**
      *
-     * @param clusterName   ame of the OpenSearch cluster
+     * @param clusterName   Name of the OpenSearch cluster
      * @param metricPrefix  A value that is automatically used as a prefix for all registered and set metrics
      */
     public PrometheusMetricsCatalog(String clusterName, String metricPrefix) {
+        this(clusterName, metricPrefix, StoreType.SIMPLECLIENT);
+    }
+
+    /**
+     *
+     * @param clusterName   Name of the OpenSearch cluster
+     * @param metricPrefix  A value that is automatically used as a prefix for all registered and set metrics
+     * @param storeType     Storage backend of the catalog
+     */
+    public PrometheusMetricsCatalog(String clusterName, String metricPrefix, StoreType storeType) {
         this.clusterName = clusterName;
         this.metricPrefix = metricPrefix;
-        metrics = new HashMap<>();
-        registry = new CollectorRegistry();
+        this.store = storeType == StoreType.ARRAY ? new ArrayMetricStore() : new SimpleclientMetricStore();
+    }
+
+    /**
+     * Marks the beginning of a new scrape. Every gauge series that is not set again before
+     * {@link #finishScrape()} is called is considered stale.
+     */
+    public void startScrape() {
+        store.startScrape();
+        merged.clear();
+    }
+
+    /**
+     * Merge series of a snapshot (e.g. taken on another node) into the output of this catalog until the next
+     * {@link #startScrape()}. Only gauge and counter series of families registered in this catalog are merged.
+     * @param snapshot Snapshot to merge
+     */
+    public void merge(MetricsSnapshot snapshot) {
+        merged.add(snapshot);
+    }
+
+    private MetricsEncoder withMerged(MetricsEncoder encoder) {
+        return merged.isEmpty() ? encoder : new MetricsSnapshot.MergingEncoder(encoder, new ArrayList<>(merged));
+    }
+
+    /**
+     * Marks the end of the current scrape and retires all gauge series that were not set since the last call
+     * to {@link #startScrape()}. Registered metric families are kept even if they end up having no series.
+     */
+    public void finishScrape() {
+        int retired = store.finishScrape();
+        if (retired > 0 && logger.isTraceEnabled()) {
+            logger.trace("Retired {} stale series", retired);
+        }
+    }
+
+    /**
+     * Register metric families as members of a group. Every family registered by the registration is a member.
+     * @param group Metric group
+     * @param registration Registration of the families of the group
+     */
+    public void registerGroup(MetricGroup group, Runnable registration) {
+        registrationGroup = group;
+        try {
+            registration.run();
+        } finally {
+            registrationGroup = null;
+        }
+    }
+
+    private void addToGroup(String metric) {
+        if (registrationGroup != null) {
+            familyGroups.put(metricPrefix + metric, registrationGroup);
+        }
     }
 
     private String[] getExtendedClusterLabelNames(String... labelNames) {
@@ -132,17 +228,27 @@ public class PrometheusMetricsCatalog {
      * @param labels Optional set of labels
      */
     public void registerClusterGauge(String metric, String help, String... labels) {
-        Gauge gauge = Gauge.build().
-                name(metricPrefix + metric).
-                help(help).
-                labelNames(getExtendedClusterLabelNames(labels)).
-                register(registry);
-
-        metrics.put(metric, gauge);
+        addToGroup(metric);
+        store.registerGauge(metric, metricPrefix + metric, help, Collector.Type.GAUGE, getExtendedClusterLabelNames(labels));
 
         logger.debug(String.format(Locale.ENGLISH, "Registered new cluster gauge %s", metric));
     }
 
+    /**
+     * Register a new cluster metric with monotonically increasing values (e.g. count of operations). It is set
+     * exactly the same way as a metric registered by {@link #registerClusterGauge(String, String, String...)},
+     * only formats that distinguish counters (like {@link ExpositionFormat#OPENMETRICS_100}) expose it as a counter.
+     * @param metric Metric name without the metric prefix
+     * @param help Help text for the metric
+     * @param labels Optional set of labels
+     */
+    public void registerClusterCounter(String metric, String help, String... labels) {
+        addToGroup(metric);
+        store.registerGauge(metric, metricPrefix + metric, help, Collector.Type.COUNTER, getExtendedClusterLabelNames(labels));
+
+        logger.debug(String.format(Locale.ENGLISH, "Registered new cluster counter %s", metric));
+    }
+
     /**
      * Set a value for cluster metric that has been previously registered using {@link #registerClusterGauge(String, String, String...)}.
      * @see #registerClusterGauge(String, String, String...)
@@ -151,8 +257,42 @@ public class PrometheusMetricsCatalog {
      * @param labelValues Optional set of label values
      */
     public void setClusterGauge(String metric, double value, String... labelValues) {
-        Gauge gauge = (Gauge) metrics.get(metric);
-        gauge.labels(getExtendedClusterLabelValues(labelValues)).set(value);
+        store.gauge(metric, getExtendedClusterLabelValues(labelValues)).set(value);
+    }
+
+    /**
+     * Resolve a handle of cluster metric series that has been previously registered using
+     * {@link #registerClusterGauge(String, String, String...)}. The handle can be kept and set repeatedly
+     * across scrapes without any further label lookups.
+     * @param metric Metric name without the metric prefix
+     * @param labelValues Optional set of label values
+     * @return A handle of the series
+     */
+    public GaugeHandle clusterGaugeHandle(String metric, String... labelValues) {
+        return store.gauge(metric, getExtendedClusterLabelValues(labelValues));
+    }
+
+    /**
+     * Create a cache of cluster gauge handles sharing the same trailing label values (e.g. index name and context).
+     * @see GaugeHandles
+     * @param labelValuesSuffix Label values that follow any metric specific label values
+     * @return An empty cache of handles
+     */
+    public GaugeHandles clusterGaugeHandles(String... labelValuesSuffix) {
+        return new GaugeHandles((metric, labelValues) -> clusterGaugeHandle(metric, concat(labelValues, labelValuesSuffix)));
+    }
+
+    /**
+     * Create a cache of cluster gauge handles sharing the same trailing label values, metric names are mapped
+     * before they are resolved (e.g. to a family of the same metrics with different labels).
+     * @see GaugeHandles
+     * @param metricNames Maps metric names given to the handles to names of the registered metrics
+     * @param labelValuesSuffix Label values that follow any metric specific label values
+     * @return An empty cache of handles
+     */
+    public GaugeHandles clusterGaugeHandles(UnaryOperator<String> metricNames, String... labelValuesSuffix) {
+        return new GaugeHandles((metric, labelValues) ->
+                clusterGaugeHandle(metricNames.apply(metric), concat(labelValues, labelValuesSuffix)));
     }
 
     /**
@@ -183,17 +323,26 @@ public class PrometheusMetricsCatalog {
      * @param labels Optional set of labels
      */
     public void registerNodeGauge(String metric, String help, String... labels) {
-        Gauge gauge = Gauge.build().
-                name(metricPrefix + metric).
-                help(help).
-                labelNames(getExtendedNodeLabelNames(labels)).
-                register(registry);
-
-        metrics.put(metric, gauge);
+        addToGroup(metric);
+        store.registerGauge(metric, metricPrefix + metric, help, Collector.Type.GAUGE, getExtendedNodeLabelNames(labels));
 
         logger.debug(String.format(Locale.ENGLISH, "Registered new node gauge %s", metric));
     }
 
+    /**
+     * Register a new cluster node metric with monotonically increasing values.
+     * @see #registerClusterCounter(String, String, String...)
+     * @param metric Metric name without the metric prefix
+     * @param help Help text for the metric
+     * @param labels Optional set of labels
+     */
+    public void registerNodeCounter(String metric, String help, String... labels) {
+        addToGroup(metric);
+        store.registerGauge(metric, metricPrefix + metric, help, Collector.Type.COUNTER, getExtendedNodeLabelNames(labels));
+
+        logger.debug(String.format(Locale.ENGLISH, "Registered new node counter %s", metric));
+    }
+
     /**
      * Set a value for cluster node metric that has been previously registered using {@link #registerNodeGauge(String, String, String...)}.
      * @see #registerNodeGauge(String, String, String...)
@@ -205,8 +354,37 @@ public class PrometheusMetricsCatalog {
     public void setNodeGauge(Tuple<String, String> nodeInfo,
                              String metric, double value,
                              String... labelValues) {
-        Gauge gauge = (Gauge) metrics.get(metric);
-        gauge.labels(getExtendedNodeLabelValues(nodeInfo, labelValues)).set(value);
+        store.gauge(metric, getExtendedNodeLabelValues(nodeInfo, labelValues)).set(value);
+    }
+
+    /**
+     * Resolve a handle of cluster node metric series that has been previously registered using
+     * {@link #registerNodeGauge(String, String, String...)}.
+     * @see #clusterGaugeHandle(String, String...)
+     * @param nodeInfo A {@link Tuple} holding [nodeName, nodeID]
+     * @param metric Metric name without the metric prefix
+     * @param labelValues Optional set of label values
+     * @return A handle of the series
+     */
+    public GaugeHandle nodeGaugeHandle(Tuple<String, String> nodeInfo, String metric, String... labelValues) {
+        return store.gauge(metric, getExtendedNodeLabelValues(nodeInfo, labelValues));
+    }
+
+    /**
+     * Create a cache of node gauge handles for specific cluster node.
+     * @see GaugeHandles
+     * @param nodeInfo A {@link Tuple} holding [nodeName, nodeID]
+     * @return An empty cache of handles
+     */
+    public GaugeHandles nodeGaugeHandles(Tuple<String, String> nodeInfo) {
+        return new GaugeHandles((metric, labelValues) -> nodeGaugeHandle(nodeInfo, metric, labelValues));
+    }
+
+    private static String[] concat(String[] first, String[] second) {
+        String[] result = new String[first.length + second.length];
+        System.arraycopy(first, 0, result, 0, first.length);
+        System.arraycopy(second, 0, result, first.length, second.length);
+        return result;
     }
 
     /**
@@ -217,13 +395,8 @@ public class PrometheusMetricsCatalog {
      * @param labels Optional set of labels
      */
     public void registerSummaryTimer(String metric, String help, String... labels) {
-        Summary summary = Summary.build().
-                name(metricPrefix + metric).
-                help(help).
-                labelNames(getExtendedNodeLabelNames(labels)).
-                register(registry);
-
-        metrics.put(metric, summary);
+        addToGroup(metric);
+        store.registerSummary(metric, metricPrefix + metric, help, getExtendedNodeLabelNames(labels));
 
         logger.debug(String.format(Locale.ENGLISH, "Registered new summary %s", metric));
     }
@@ -238,8 +411,7 @@ public class PrometheusMetricsCatalog {
      */
     public Summary.Timer startSummaryTimer(Tuple<String, String> nodeInfo, String metric,
                                            String... labelValues) {
-        Summary summary = (Summary) metrics.get(metric);
-        return summary.labels(getExtendedNodeLabelValues(nodeInfo, labelValues)).startTimer();
+        return store.summary(metric, getExtendedNodeLabelValues(nodeInfo, labelValues)).startTimer();
     }
 
     /**
@@ -249,8 +421,109 @@ public class PrometheusMetricsCatalog {
      * @throws IOException If creating the text representation goes wrong
      */
     public String toTextFormat() throws IOException {
-        Writer writer = new StringWriter();
-        TextFormat.write004(writer, registry.metricFamilySamples());
-        return writer.toString();
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        writeTextFormat(out);
+        return out.toString(StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Streams all the metrics from the catalog formatted as {@link TextFormat#CONTENT_TYPE_004} to the output
+     * without building the whole text representation in memory first.
+     * @param out Output stream receiving UTF-8 encoded text, it is neither flushed nor closed
+     * @throws IOException If writing to the output stream fails
+     */
+    public void writeTextFormat(OutputStream out) throws IOException {
+        write(ExpositionFormat.TEXT_004, out);
+    }
+
+    /**
+     * Streams all the metrics from the catalog in the given format to the output.
+     * @param format Exposition format
+     * @param out Output stream, it is neither flushed nor closed
+     * @throws IOException If writing to the output stream fails
+     */
+    public void write(ExpositionFormat format, OutputStream out) throws IOException {
+        write(format, out, null);
+    }
+
+    /**
+     * Streams the metrics of the given groups from the catalog in the given format to the output. Metrics that do not
+     * belong to any group are always written.
+     * @param format Exposition format
+     * @param out Output stream, it is neither flushed nor closed
+     * @param groups Metric groups to write or {@code null} to write all the metrics
+     * @throws IOException If writing to the output stream fails
+     */
+    public void write(ExpositionFormat format, OutputStream out, @Nullable Set<MetricGroup> groups) throws IOException {
+        MetricsEncoder encoder = withMerged(format.encoder(out));
+        if (groups != null) {
+            encoder = new GroupFilteringEncoder(encoder, groups);
+        }
+        store.encode(encoder);
+        encoder.finish();
+    }
+
+    /**
+     * Copy all the metrics from the catalog into a compact snapshot that can be rendered later or elsewhere.
+     * @return Snapshot of the catalog
+     * @throws IOException If copying the metrics fails
+     */
+    public MetricsSnapshot snapshot() throws IOException {
+        MetricsSnapshot.Builder builder = new MetricsSnapshot.Builder();
+        MetricsEncoder encoder = withMerged(builder);
+        store.encode(encoder);
+        encoder.finish();
+        return builder.build();
+    }
+
+    /**
+     * Drops families of groups that are not selected, including the series merged into them.
+     */
+    private final class GroupFilteringEncoder implements MetricsEncoder {
+        private final MetricsEncoder delegate;
+        private final Set<MetricGroup> groups;
+        private boolean skip;
+
+        private GroupFilteringEncoder(MetricsEncoder delegate, Set<MetricGroup> groups) {
+            this.delegate = delegate;
+            this.groups = groups;
+        }
+
+        @Override
+        public void startFamily(String name, String help, Collector.Type type, List<String> labelNames)
+                throws IOException {
+            MetricGroup group = familyGroups.get(name);
+            skip = group != null && !groups.contains(group);
+            if (!skip) {
+                delegate.startFamily(name, help, type, labelNames);
+            }
+        }
+
+        @Override
+        public void gauge(List<String> labelValues, double value) throws IOException {
+            if (!skip) {
+                delegate.gauge(labelValues, value);
+            }
+        }
+
+        @Override
+        public void summary(List<String> labelValues, double count, double sum, double createdSeconds)
+                throws IOException {
+            if (!skip) {
+                delegate.summary(labelValues, count, sum, createdSeconds);
+            }
+        }
+
+        @Override
+        public void endFamily() throws IOException {
+            if (!skip) {
+                delegate.endFamily();
+            }
+        }
+
+        @Override
+        public void finish() throws IOException {
+            delegate.finish();
+        }
     }
 }
@@ -18,9 +18,13 @@
 package org.compuscene.metrics.prometheus;
 
 import org.opensearch.action.ClusterStatsData;
+import org.opensearch.action.NodePrometheusMetricsResponse;
+import org.opensearch.action.SectionResults;
 import org.opensearch.action.admin.cluster.health.ClusterHealthResponse;
 import org.opensearch.action.admin.cluster.node.stats.NodeStats;
+import org.opensearch.action.admin.cluster.node.stats.NodesStatsRequest;
 import org.opensearch.action.admin.indices.stats.CommonStats;
+import org.opensearch.action.admin.indices.stats.CommonStatsFlags;
 import org.opensearch.action.admin.indices.stats.IndexStats;
 import org.opensearch.action.admin.indices.stats.IndicesStatsResponse;
 import org.opensearch.cluster.health.ClusterIndexHealth;
@@ -41,56 +45,193 @@ import org.opensearch.threadpool.ThreadPoolStats;
 import org.opensearch.transport.TransportStats;
 
 import java.io.IOException;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.EnumSet;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.Set;
+import java.util.function.UnaryOperator;
 
 import io.prometheus.client.Summary;
 
 /**
  * A class that describes a Prometheus metrics collector.
+ * <p>
+ * A single collector (and its catalog) is meant to live as long as the node. Metrics are registered once
+ * via {@link #registerMetrics()} and then every scrape calls {@link #updateMetrics} followed by
+ * {@link #writeTextContent(OutputStream)} (or {@link #getTextContent()}). Concurrent scrapes must hold
+ * the collector monitor across both calls, e.g.
+ * <pre>{@code
+ *   synchronized (collector) {
+ *     collector.updateMetrics(...);
+ *     collector.writeTextContent(out);
+ *   }
+ * }</pre>
  */
 public class PrometheusMetricsCollector {
 
-    private boolean isPrometheusClusterSettings;
-    private boolean isPrometheusIndices;
-    private PrometheusMetricsCatalog catalog;
+    private final PrometheusSettings prometheusSettings;
+    private final PrometheusMetricsCatalog catalog;
+
+    // Gauge handles are resolved once per node and per index and reused by following updates.
+    private final Map<String, NodeHandles> nodeHandles = new HashMap<>();
+    private final Map<String, IndexHandles> indexHandles = new HashMap<>();
+    private final Map<String, IndexHandles> indexGroupHandles = new HashMap<>();
+    private long updates = 0;
+
+    private final List<ExporterMetricsSource> exporterMetricsSources = new ArrayList<>();
+
+    // Index group all the indices outside of the top N are folded into. Its sums go down whenever an index
+    // joins the top N, so they are exported by the index group gauges rather than the per index counters.
+    static final String OTHER_INDEX_GROUP = "_other";
+
+    // Counter values the indices are ranked by, when they are ranked by a rate. Kept for every existing index,
+    // also for indices missing from some updates (e.g. of other shards of the indices).
+    private final Map<String, RankCounter> rankCounters = new HashMap<>();
+    private PrometheusSettings.INDEX_RANK_BY previousRankBy;
+
+    // Index group twins of the index level families, registered once index groups are configured.
+    private final List<Runnable> indexGroupRegistrations = new ArrayList<>();
+    private boolean indexGroupMetricsRegistered;
+
+    private static final class RankCounter {
+        private final long counter;
+        private final long timestampMillis;
+        // Per second, between the two last collections of the stats of the index.
+        private final double rate;
+
+        private RankCounter(long counter, long timestampMillis, double rate) {
+            this.counter = counter;
+            this.timestampMillis = timestampMillis;
+            this.rate = rate;
+        }
+    }
+
+    private static final class RankedIndex {
+        private final String name;
+        private final double rank;
+
+        private RankedIndex(String name, double rank) {
+            this.name = name;
+            this.rank = rank;
+        }
+    }
+
+    // Lower rank first, ties are broken by name so that the selection is stable between updates.
+    private static final Comparator<RankedIndex> RANK_ORDER = Comparator.<RankedIndex>comparingDouble(r -> r.rank)
+            .thenComparing(r -> r.name, Comparator.reverseOrder());
+
+    private static final class NodeHandles {
+        private final String nodeName;
+        private final GaugeHandles node;
+        private long update;
+
+        private NodeHandles(String nodeName, GaugeHandles node) {
+            this.nodeName = nodeName;
+            this.node = node;
+        }
+    }
+
+    private final class IndexHandles {
+        private final GaugeHandles index;
+        private final GaugeHandles total;
+        private final GaugeHandles primaries;
+        private long update;
+
+        private IndexHandles(String indexName) {
+            this(indexName, false);
+        }
+
+        private IndexHandles(String name, boolean indexGroup) {
+            UnaryOperator<String> metrics = indexGroup ? PrometheusMetricsCollector::indexGroupMetric : m -> m;
+            this.index = catalog.clusterGaugeHandles(metrics, name);
+            this.total = catalog.clusterGaugeHandles(metrics, name, "total");
+            this.primaries = catalog.clusterGaugeHandles(metrics, name, "primaries");
+        }
+    }
+
+    /**
+     * Index level stats of several indices added up, e.g. of an index group.
+     */
+    private static final class IndexAggregate {
+        private int indices;
+        private int status;
+        // active, shards, active primary, initializing, relocating, unassigned
+        private final int[] shards = new int[6];
+        private final CommonStats total = new CommonStats();
+        private final CommonStats primaries = new CommonStats();
+        private long oldestTimestampMillis = Long.MAX_VALUE;
+
+        private void add(ClusterIndexHealth cih, IndexStats indexStats, @Nullable Long timestampMillis) {
+            indices++;
+            if (timestampMillis != null) {
+                oldestTimestampMillis = Math.min(oldestTimestampMillis, timestampMillis);
+            }
+            // The worst status wins, statuses are ordered from green to red.
+            status = Math.max(status, cih.getStatus().value());
+            shards[0] += cih.getActiveShards();
+            shards[1] += cih.getNumberOfShards();
+            shards[2] += cih.getActivePrimaryShards();
+            shards[3] += cih.getInitializingShards();
+            shards[4] += cih.getRelocatingShards();
+            shards[5] += cih.getUnassignedShards();
+            total.add(indexStats.getTotal());
+            primaries.add(indexStats.getPrimaries());
+        }
+    }
 
     /**
      * A constructor.
      * @param catalog {@link PrometheusMetricsCatalog}
-     * @param isPrometheusIndices boolean flag for index level metric
-     * @param isPrometheusClusterSettings boolean flag cluster settings metrics
+     * @param prometheusSettings {@link PrometheusSettings} consulted on every update for dynamic flags
      */
     public PrometheusMetricsCollector(PrometheusMetricsCatalog catalog,
-                                      boolean isPrometheusIndices,
-                                      boolean isPrometheusClusterSettings) {
-        this.isPrometheusClusterSettings = isPrometheusClusterSettings;
-        this.isPrometheusIndices = isPrometheusIndices;
+                                      PrometheusSettings prometheusSettings) {
+        this.prometheusSettings = prometheusSettings;
         this.catalog = catalog;
     }
 
+    /**
+     * Add a source of metrics about the exporter itself. Sources must be added before {@link #registerMetrics()}
+     * is called.
+     * @param source The source
+     */
+    public void addExporterMetricsSource(ExporterMetricsSource source) {
+        exporterMetricsSources.add(source);
+    }
+
     /**
      * Call this method to register all the metrics that we want to capture.
+     * It is expected to be called only once for the lifetime of the catalog.
      */
     public void registerMetrics() {
         catalog.registerSummaryTimer("metrics_generate_time_seconds", "Time spent while generating metrics");
+        registerSectionMetrics();
+        for (ExporterMetricsSource source : exporterMetricsSources) {
+            source.registerMetrics(catalog);
+        }
 
-        registerClusterMetrics();
-        registerNodeMetrics();
-        registerIndicesMetrics();
-        registerPerIndexMetrics();
-        registerTransportMetrics();
-        registerHTTPMetrics();
-        registerThreadPoolMetrics();
-        registerIngestMetrics();
-        registerCircuitBreakerMetrics();
-        registerScriptMetrics();
-        registerProcessMetrics();
-        registerJVMMetrics();
-        registerOsMetrics();
-        registerFsMetrics();
-        registerESSettings();
+        // The groups can be selected per request, all of them are registered and the output is filtered.
+        catalog.registerGroup(MetricGroup.CLUSTER, this::registerClusterMetrics);
+        catalog.registerGroup(MetricGroup.NODE, this::registerNodeMetrics);
+        catalog.registerGroup(MetricGroup.INDICES, this::registerIndicesMetrics);
+        catalog.registerGroup(MetricGroup.INDEX, this::registerPerIndexMetrics);
+        catalog.registerGroup(MetricGroup.TRANSPORT, this::registerTransportMetrics);
+        catalog.registerGroup(MetricGroup.HTTP, this::registerHTTPMetrics);
+        catalog.registerGroup(MetricGroup.THREADPOOL, this::registerThreadPoolMetrics);
+        catalog.registerGroup(MetricGroup.INGEST, this::registerIngestMetrics);
+        catalog.registerGroup(MetricGroup.CIRCUITBREAKER, this::registerCircuitBreakerMetrics);
+        catalog.registerGroup(MetricGroup.SCRIPT, this::registerScriptMetrics);
+        catalog.registerGroup(MetricGroup.PROCESS, this::registerProcessMetrics);
+        catalog.registerGroup(MetricGroup.JVM, this::registerJVMMetrics);
+        catalog.registerGroup(MetricGroup.OS, this::registerOsMetrics);
+        catalog.registerGroup(MetricGroup.FS, this::registerFsMetrics);
+        catalog.registerGroup(MetricGroup.CLUSTER_SETTINGS, this::registerESSettings);
     }
 
     private void registerClusterMetrics() {
@@ -139,7 +280,7 @@ public class PrometheusMetricsCollector {
         catalog.registerNodeGauge("node_role_bool", "Node role", "role");
     }
 
-    private void updateNodeMetrics(Tuple<String, String> nodeInfo, NodeStats ns) {
+    private void updateNodeMetrics(GaugeHandles node, NodeStats ns) {
         if (ns != null) {
 
             // Plugins can introduce custom node roles from 7.3.0: https://github.com/elastic/elasticsearch/pull/43175
@@ -155,7 +296,7 @@ public class PrometheusMetricsCollector {
             }
 
             for (String k : roles.keySet()) {
-                catalog.setNodeGauge(nodeInfo, "node_role_bool", roles.get(k), k);
+                node.set("node_role_bool", roles.get(k), k);
             }
         }
     }
@@ -166,70 +307,70 @@ public class PrometheusMetricsCollector {
 
         catalog.registerNodeGauge("indices_store_size_bytes", "Store size of the indices in bytes");
 
-        catalog.registerNodeGauge("indices_indexing_delete_count", "Count of documents deleted");
+        catalog.registerNodeCounter("indices_indexing_delete_count", "Count of documents deleted");
         catalog.registerNodeGauge("indices_indexing_delete_current_number", "Current rate of documents deleted");
-        catalog.registerNodeGauge("indices_indexing_delete_time_seconds", "Time spent while deleting documents");
-        catalog.registerNodeGauge("indices_indexing_index_count", "Count of documents indexed");
+        catalog.registerNodeCounter("indices_indexing_delete_time_seconds", "Time spent while deleting documents");
+        catalog.registerNodeCounter("indices_indexing_index_count", "Count of documents indexed");
         catalog.registerNodeGauge("indices_indexing_index_current_number", "Current rate of documents indexed");
-        catalog.registerNodeGauge("indices_indexing_index_failed_count", "Count of failed to index documents");
-        catalog.registerNodeGauge("indices_indexing_index_time_seconds", "Time spent while indexing documents");
-        catalog.registerNodeGauge("indices_indexing_noop_update_count", "Count of noop document updates");
+        catalog.registerNodeCounter("indices_indexing_index_failed_count", "Count of failed to index documents");
+        catalog.registerNodeCounter("indices_indexing_index_time_seconds", "Time spent while indexing documents");
+        catalog.registerNodeCounter("indices_indexing_noop_update_count", "Count of noop document updates");
         catalog.registerNodeGauge("indices_indexing_is_throttled_bool", "Is indexing throttling ?");
-        catalog.registerNodeGauge("indices_indexing_throttle_time_seconds", "Time spent while throttling");
-
-        catalog.registerNodeGauge("indices_get_count", "Count of get commands");
-        catalog.registerNodeGauge("indices_get_time_seconds", "Time spent while get commands");
-        catalog.registerNodeGauge("indices_get_exists_count", "Count of existing documents when get command");
-        catalog.registerNodeGauge("indices_get_exists_time_seconds", "Time spent while existing documents get command");
-        catalog.registerNodeGauge("indices_get_missing_count", "Count of missing documents when get command");
-        catalog.registerNodeGauge("indices_get_missing_time_seconds", "Time spent while missing documents get command");
+        catalog.registerNodeCounter("indices_indexing_throttle_time_seconds", "Time spent while throttling");
+
+        catalog.registerNodeCounter("indices_get_count", "Count of get commands");
+        catalog.registerNodeCounter("indices_get_time_seconds", "Time spent while get commands");
+        catalog.registerNodeCounter("indices_get_exists_count", "Count of existing documents when get command");
+        catalog.registerNodeCounter("indices_get_exists_time_seconds", "Time spent while existing documents get command");
+        catalog.registerNodeCounter("indices_get_missing_count", "Count of missing documents when get command");
+        catalog.registerNodeCounter("indices_get_missing_time_seconds", "Time spent while missing documents get command");
         catalog.registerNodeGauge("indices_get_current_number", "Current rate of get commands");
 
         catalog.registerNodeGauge("indices_search_open_contexts_number", "Number of search open contexts");
-        catalog.registerNodeGauge("indices_search_fetch_count", "Count of search fetches");
+        catalog.registerNodeCounter("indices_search_fetch_count", "Count of search fetches");
         catalog.registerNodeGauge("indices_search_fetch_current_number", "Current rate of search fetches");
-        catalog.registerNodeGauge("indices_search_fetch_time_seconds", "Time spent while search fetches");
-        catalog.registerNodeGauge("indices_search_query_count", "Count of search queries");
+        catalog.registerNodeCounter("indices_search_fetch_time_seconds", "Time spent while search fetches");
+        catalog.registerNodeCounter("indices_search_query_count", "Count of search queries");
         catalog.registerNodeGauge("indices_search_query_current_number", "Current rate of search queries");
-        catalog.registerNodeGauge("indices_search_query_time_seconds", "Time spent while search queries");
-        catalog.registerNodeGauge("indices_search_scroll_count", "Count of search scrolls");
+        catalog.registerNodeCounter("indices_search_query_time_seconds", "Time spent while search queries");
+        catalog.registerNodeCounter("indices_search_scroll_count", "Count of search scrolls");
         catalog.registerNodeGauge("indices_search_scroll_current_number", "Current rate of search scrolls");
-        catalog.registerNodeGauge("indices_search_scroll_time_seconds", "Time spent while search scrolls");
+        catalog.registerNodeCounter("indices_search_scroll_time_seconds", "Time spent while search scrolls");
 
         catalog.registerNodeGauge("indices_merges_current_number", "Current rate of merges");
         catalog.registerNodeGauge("indices_merges_current_docs_number", "Current rate of documents merged");
         catalog.registerNodeGauge("indices_merges_current_size_bytes", "Current rate of bytes merged");
-        catalog.registerNodeGauge("indices_merges_total_number", "Count of merges");
-        catalog.registerNodeGauge("indices_merges_total_time_seconds", "Time spent while merging");
-        catalog.registerNodeGauge("indices_merges_total_docs_count", "Count of documents merged");
-        catalog.registerNodeGauge("indices_merges_total_size_bytes", "Count of bytes of merged documents");
-        catalog.registerNodeGauge("indices_merges_total_stopped_time_seconds", "Time spent while merge process stopped");
-        catalog.registerNodeGauge("indices_merges_total_throttled_time_seconds", "Time spent while merging when throttling");
+        catalog.registerNodeCounter("indices_merges_total_number", "Count of merges");
+        catalog.registerNodeCounter("indices_merges_total_time_seconds", "Time spent while merging");
+        catalog.registerNodeCounter("indices_merges_total_docs_count", "Count of documents merged");
+        catalog.registerNodeCounter("indices_merges_total_size_bytes", "Count of bytes of merged documents");
+        catalog.registerNodeCounter("indices_merges_total_stopped_time_seconds", "Time spent while merge process stopped");
+        catalog.registerNodeCounter("indices_merges_total_throttled_time_seconds", "Time spent while merging when throttling");
         catalog.registerNodeGauge("indices_merges_total_auto_throttle_bytes", "Bytes merged while throttling");
 
-        catalog.registerNodeGauge("indices_refresh_total_count", "Count of refreshes");
-        catalog.registerNodeGauge("indices_refresh_total_time_seconds", "Time spent while refreshes");
+        catalog.registerNodeCounter("indices_refresh_total_count", "Count of refreshes");
+        catalog.registerNodeCounter("indices_refresh_total_time_seconds", "Time spent while refreshes");
         catalog.registerNodeGauge("indices_refresh_listeners_number", "Number of refresh listeners");
 
-        catalog.registerNodeGauge("indices_flush_total_count", "Count of flushes");
-        catalog.registerNodeGauge("indices_flush_total_time_seconds", "Total time spent while flushes");
+        catalog.registerNodeCounter("indices_flush_total_count", "Count of flushes");
+        catalog.registerNodeCounter("indices_flush_total_time_seconds", "Total time spent while flushes");
 
         catalog.registerNodeGauge("indices_querycache_cache_count", "Count of queries in cache");
         catalog.registerNodeGauge("indices_querycache_cache_size_bytes", "Query cache size");
-        catalog.registerNodeGauge("indices_querycache_evictions_count", "Count of evictions in query cache");
-        catalog.registerNodeGauge("indices_querycache_hit_count", "Count of hits in query cache");
+        catalog.registerNodeCounter("indices_querycache_evictions_count", "Count of evictions in query cache");
+        catalog.registerNodeCounter("indices_querycache_hit_count", "Count of hits in query cache");
         catalog.registerNodeGauge("indices_querycache_memory_size_bytes", "Memory usage of query cache");
-        catalog.registerNodeGauge("indices_querycache_miss_number", "Count of misses in query cache");
-        catalog.registerNodeGauge("indices_querycache_total_number", "Count of usages of query cache");
+        catalog.registerNodeCounter("indices_querycache_miss_number", "Count of misses in query cache");
+        catalog.registerNodeCounter("indices_querycache_total_number", "Count of usages of query cache");
 
         catalog.registerNodeGauge("indices_fielddata_memory_size_bytes", "Memory usage of field date cache");
-        catalog.registerNodeGauge("indices_fielddata_evictions_count", "Count of evictions in field data cache");
+        catalog.registerNodeCounter("indices_fielddata_evictions_count", "Count of evictions in field data cache");
 
-        catalog.registerNodeGauge("indices_percolate_count", "Count of percolates");
+        catalog.registerNodeCounter("indices_percolate_count", "Count of percolates");
         catalog.registerNodeGauge("indices_percolate_current_number", "Rate of percolates");
         catalog.registerNodeGauge("indices_percolate_memory_size_bytes", "Percolate memory size");
-        catalog.registerNodeGauge("indices_percolate_queries_count", "Count of queries percolated");
-        catalog.registerNodeGauge("indices_percolate_time_seconds", "Time spent while percolating");
+        catalog.registerNodeCounter("indices_percolate_queries_count", "Count of queries percolated");
+        catalog.registerNodeCounter("indices_percolate_time_seconds", "Time spent while percolating");
 
         catalog.registerNodeGauge("indices_completion_size_bytes", "Size of completion suggest statistics");
 
@@ -237,428 +378,622 @@ public class PrometheusMetricsCollector {
         catalog.registerNodeGauge("indices_segments_memory_bytes", "Memory used by segments", "type");
 
         catalog.registerNodeGauge("indices_suggest_current_number", "Current rate of suggests");
-        catalog.registerNodeGauge("indices_suggest_count", "Count of suggests");
-        catalog.registerNodeGauge("indices_suggest_time_seconds", "Time spent while making suggests");
+        catalog.registerNodeCounter("indices_suggest_count", "Count of suggests");
+        catalog.registerNodeCounter("indices_suggest_time_seconds", "Time spent while making suggests");
 
         catalog.registerNodeGauge("indices_requestcache_memory_size_bytes", "Memory used for request cache");
-        catalog.registerNodeGauge("indices_requestcache_hit_count", "Number of hits in request cache");
-        catalog.registerNodeGauge("indices_requestcache_miss_count", "Number of misses in request cache");
-        catalog.registerNodeGauge("indices_requestcache_evictions_count", "Number of evictions in request cache");
+        catalog.registerNodeCounter("indices_requestcache_hit_count", "Number of hits in request cache");
+        catalog.registerNodeCounter("indices_requestcache_miss_count", "Number of misses in request cache");
+        catalog.registerNodeCounter("indices_requestcache_evictions_count", "Number of evictions in request cache");
 
         catalog.registerNodeGauge("indices_recovery_current_number", "Current number of recoveries", "type");
-        catalog.registerNodeGauge("indices_recovery_throttle_time_seconds", "Time spent while throttling recoveries");
+        catalog.registerNodeCounter("indices_recovery_throttle_time_seconds", "Time spent while throttling recoveries");
     }
 
-    private void updateIndicesMetrics(Tuple<String, String> nodeInfo, NodeIndicesStats idx) {
+    private void updateIndicesMetrics(GaugeHandles node, NodeIndicesStats idx) {
         if (idx != null) {
-            catalog.setNodeGauge(nodeInfo,"indices_doc_number", idx.getDocs().getCount());
-            catalog.setNodeGauge(nodeInfo,"indices_doc_deleted_number", idx.getDocs().getDeleted());
+            node.set("indices_doc_number", idx.getDocs().getCount());
+            node.set("indices_doc_deleted_number", idx.getDocs().getDeleted());
 
-            catalog.setNodeGauge(nodeInfo,"indices_store_size_bytes", idx.getStore().getSizeInBytes());
+            node.set("indices_store_size_bytes", idx.getStore().getSizeInBytes());
 
-            catalog.setNodeGauge(nodeInfo,"indices_indexing_delete_count", idx.getIndexing().getTotal().getDeleteCount());
-            catalog.setNodeGauge(nodeInfo,"indices_indexing_delete_current_number", idx.getIndexing().getTotal().getDeleteCurrent());
-            catalog.setNodeGauge(nodeInfo,"indices_indexing_delete_time_seconds",
+            node.set("indices_indexing_delete_count", idx.getIndexing().getTotal().getDeleteCount());
+            node.set("indices_indexing_delete_current_number", idx.getIndexing().getTotal().getDeleteCurrent());
+            node.set("indices_indexing_delete_time_seconds",
                     idx.getIndexing().getTotal().getDeleteTime().seconds());
-            catalog.setNodeGauge(nodeInfo,"indices_indexing_index_count", idx.getIndexing().getTotal().getIndexCount());
-            catalog.setNodeGauge(nodeInfo,"indices_indexing_index_current_number", idx.getIndexing().getTotal().getIndexCurrent());
-            catalog.setNodeGauge(nodeInfo,"indices_indexing_index_failed_count", idx.getIndexing().getTotal().getIndexFailedCount());
-            catalog.setNodeGauge(nodeInfo,"indices_indexing_index_time_seconds", idx.getIndexing().getTotal().getIndexTime().seconds());
-            catalog.setNodeGauge(nodeInfo,"indices_indexing_noop_update_count", idx.getIndexing().getTotal().getNoopUpdateCount());
-            catalog.setNodeGauge(nodeInfo,"indices_indexing_is_throttled_bool", idx.getIndexing().getTotal().isThrottled() ? 1 : 0);
-            catalog.setNodeGauge(nodeInfo,"indices_indexing_throttle_time_seconds",
+            node.set("indices_indexing_index_count", idx.getIndexing().getTotal().getIndexCount());
+            node.set("indices_indexing_index_current_number", idx.getIndexing().getTotal().getIndexCurrent());
+            node.set("indices_indexing_index_failed_count", idx.getIndexing().getTotal().getIndexFailedCount());
+            node.set("indices_indexing_index_time_seconds", idx.getIndexing().getTotal().getIndexTime().seconds());
+            node.set("indices_indexing_noop_update_count", idx.getIndexing().getTotal().getNoopUpdateCount());
+            node.set("indices_indexing_is_throttled_bool", idx.getIndexing().getTotal().isThrottled() ? 1 : 0);
+            node.set("indices_indexing_throttle_time_seconds",
                     idx.getIndexing().getTotal().getThrottleTime().seconds());
 
-            catalog.setNodeGauge(nodeInfo,"indices_get_count", idx.getGet().getCount());
-            catalog.setNodeGauge(nodeInfo,"indices_get_time_seconds", idx.getGet().getTimeInMillis() / 1000.0);
-            catalog.setNodeGauge(nodeInfo,"indices_get_exists_count", idx.getGet().getExistsCount());
-            catalog.setNodeGauge(nodeInfo,"indices_get_exists_time_seconds", idx.getGet().getExistsTimeInMillis() / 1000.0);
-            catalog.setNodeGauge(nodeInfo,"indices_get_missing_count", idx.getGet().getMissingCount());
-            catalog.setNodeGauge(nodeInfo,"indices_get_missing_time_seconds", idx.getGet().getMissingTimeInMillis() / 1000.0);
-            catalog.setNodeGauge(nodeInfo,"indices_get_current_number", idx.getGet().current());
-
-            catalog.setNodeGauge(nodeInfo,"indices_search_open_contexts_number", idx.getSearch().getOpenContexts());
-            catalog.setNodeGauge(nodeInfo,"indices_search_fetch_count", idx.getSearch().getTotal().getFetchCount());
-            catalog.setNodeGauge(nodeInfo,"indices_search_fetch_current_number", idx.getSearch().getTotal().getFetchCurrent());
-            catalog.setNodeGauge(nodeInfo,"indices_search_fetch_time_seconds",
+            node.set("indices_get_count", idx.getGet().getCount());
+            node.set("indices_get_time_seconds", idx.getGet().getTimeInMillis() / 1000.0);
+            node.set("indices_get_exists_count", idx.getGet().getExistsCount());
+            node.set("indices_get_exists_time_seconds", idx.getGet().getExistsTimeInMillis() / 1000.0);
+            node.set("indices_get_missing_count", idx.getGet().getMissingCount());
+            node.set("indices_get_missing_time_seconds", idx.getGet().getMissingTimeInMillis() / 1000.0);
+            node.set("indices_get_current_number", idx.getGet().current());
+
+            node.set("indices_search_open_contexts_number", idx.getSearch().getOpenContexts());
+            node.set("indices_search_fetch_count", idx.getSearch().getTotal().getFetchCount());
+            node.set("indices_search_fetch_current_number", idx.getSearch().getTotal().getFetchCurrent());
+            node.set("indices_search_fetch_time_seconds",
                     idx.getSearch().getTotal().getFetchTimeInMillis() / 1000.0);
-            catalog.setNodeGauge(nodeInfo,"indices_search_query_count", idx.getSearch().getTotal().getQueryCount());
-            catalog.setNodeGauge(nodeInfo,"indices_search_query_current_number", idx.getSearch().getTotal().getQueryCurrent());
-            catalog.setNodeGauge(nodeInfo,"indices_search_query_time_seconds",
+            node.set("indices_search_query_count", idx.getSearch().getTotal().getQueryCount());
+            node.set("indices_search_query_current_number", idx.getSearch().getTotal().getQueryCurrent());
+            node.set("indices_search_query_time_seconds",
                     idx.getSearch().getTotal().getQueryTimeInMillis() / 1000.0);
-            catalog.setNodeGauge(nodeInfo,"indices_search_scroll_count", idx.getSearch().getTotal().getScrollCount());
-            catalog.setNodeGauge(nodeInfo,"indices_search_scroll_current_number", idx.getSearch().getTotal().getScrollCurrent());
-            catalog.setNodeGauge(nodeInfo,"indices_search_scroll_time_seconds",
+            node.set("indices_search_scroll_count", idx.getSearch().getTotal().getScrollCount());
+            node.set("indices_search_scroll_current_number", idx.getSearch().getTotal().getScrollCurrent());
+            node.set("indices_search_scroll_time_seconds",
                     idx.getSearch().getTotal().getScrollTimeInMillis() / 1000.0);
 
-            catalog.setNodeGauge(nodeInfo,"indices_merges_current_number", idx.getMerge().getCurrent());
-            catalog.setNodeGauge(nodeInfo,"indices_merges_current_docs_number", idx.getMerge().getCurrentNumDocs());
-            catalog.setNodeGauge(nodeInfo,"indices_merges_current_size_bytes", idx.getMerge().getCurrentSizeInBytes());
-            catalog.setNodeGauge(nodeInfo,"indices_merges_total_number", idx.getMerge().getTotal());
-            catalog.setNodeGauge(nodeInfo,"indices_merges_total_time_seconds", idx.getMerge().getTotalTimeInMillis() / 1000.0);
-            catalog.setNodeGauge(nodeInfo,"indices_merges_total_docs_count", idx.getMerge().getTotalNumDocs());
-            catalog.setNodeGauge(nodeInfo,"indices_merges_total_size_bytes", idx.getMerge().getTotalSizeInBytes());
-            catalog.setNodeGauge(nodeInfo,"indices_merges_total_stopped_time_seconds",
+            node.set("indices_merges_current_number", idx.getMerge().getCurrent());
+            node.set("indices_merges_current_docs_number", idx.getMerge().getCurrentNumDocs());
+            node.set("indices_merges_current_size_bytes", idx.getMerge().getCurrentSizeInBytes());
+            node.set("indices_merges_total_number", idx.getMerge().getTotal());
+            node.set("indices_merges_total_time_seconds", idx.getMerge().getTotalTimeInMillis() / 1000.0);
+            node.set("indices_merges_total_docs_count", idx.getMerge().getTotalNumDocs());
+            node.set("indices_merges_total_size_bytes", idx.getMerge().getTotalSizeInBytes());
+            node.set("indices_merges_total_stopped_time_seconds",
                     idx.getMerge().getTotalStoppedTimeInMillis() / 1000.0);
-            catalog.setNodeGauge(nodeInfo,"indices_merges_total_throttled_time_seconds",
+            node.set("indices_merges_total_throttled_time_seconds",
                     idx.getMerge().getTotalThrottledTimeInMillis() / 1000.0);
-            catalog.setNodeGauge(nodeInfo,"indices_merges_total_auto_throttle_bytes", idx.getMerge().getTotalBytesPerSecAutoThrottle());
+            node.set("indices_merges_total_auto_throttle_bytes", idx.getMerge().getTotalBytesPerSecAutoThrottle());
 
-            catalog.setNodeGauge(nodeInfo,"indices_refresh_total_count", idx.getRefresh().getTotal());
-            catalog.setNodeGauge(nodeInfo,"indices_refresh_total_time_seconds", idx.getRefresh().getTotalTimeInMillis() / 1000.0);
-            catalog.setNodeGauge(nodeInfo,"indices_refresh_listeners_number", idx.getRefresh().getListeners());
+            node.set("indices_refresh_total_count", idx.getRefresh().getTotal());
+            node.set("indices_refresh_total_time_seconds", idx.getRefresh().getTotalTimeInMillis() / 1000.0);
+            node.set("indices_refresh_listeners_number", idx.getRefresh().getListeners());
 
-            catalog.setNodeGauge(nodeInfo,"indices_flush_total_count", idx.getFlush().getTotal());
-            catalog.setNodeGauge(nodeInfo,"indices_flush_total_time_seconds", idx.getFlush().getTotalTimeInMillis() / 1000.0);
+            node.set("indices_flush_total_count", idx.getFlush().getTotal());
+            node.set("indices_flush_total_time_seconds", idx.getFlush().getTotalTimeInMillis() / 1000.0);
 
-            catalog.setNodeGauge(nodeInfo,"indices_querycache_cache_count", idx.getQueryCache().getCacheCount());
-            catalog.setNodeGauge(nodeInfo,"indices_querycache_cache_size_bytes", idx.getQueryCache().getCacheSize());
-            catalog.setNodeGauge(nodeInfo,"indices_querycache_evictions_count", idx.getQueryCache().getEvictions());
-            catalog.setNodeGauge(nodeInfo,"indices_querycache_hit_count", idx.getQueryCache().getHitCount());
-            catalog.setNodeGauge(nodeInfo,"indices_querycache_memory_size_bytes", idx.getQueryCache().getMemorySizeInBytes());
-            catalog.setNodeGauge(nodeInfo,"indices_querycache_miss_number", idx.getQueryCache().getMissCount());
-            catalog.setNodeGauge(nodeInfo,"indices_querycache_total_number", idx.getQueryCache().getTotalCount());
+            node.set("indices_querycache_cache_count", idx.getQueryCache().getCacheCount());
+            node.set("indices_querycache_cache_size_bytes", idx.getQueryCache().getCacheSize());
+            node.set("indices_querycache_evictions_count", idx.getQueryCache().getEvictions());
+            node.set("indices_querycache_hit_count", idx.getQueryCache().getHitCount());
+            node.set("indices_querycache_memory_size_bytes", idx.getQueryCache().getMemorySizeInBytes());
+            node.set("indices_querycache_miss_number", idx.getQueryCache().getMissCount());
+            node.set("indices_querycache_total_number", idx.getQueryCache().getTotalCount());
 
-            catalog.setNodeGauge(nodeInfo,"indices_fielddata_memory_size_bytes", idx.getFieldData().getMemorySizeInBytes());
-            catalog.setNodeGauge(nodeInfo,"indices_fielddata_evictions_count", idx.getFieldData().getEvictions());
+            node.set("indices_fielddata_memory_size_bytes", idx.getFieldData().getMemorySizeInBytes());
+            node.set("indices_fielddata_evictions_count", idx.getFieldData().getEvictions());
 
-            catalog.setNodeGauge(nodeInfo,"indices_completion_size_bytes", idx.getCompletion().getSizeInBytes());
+            node.set("indices_completion_size_bytes", idx.getCompletion().getSizeInBytes());
 
-            catalog.setNodeGauge(nodeInfo,"indices_segments_number", idx.getSegments().getCount());
-            catalog.setNodeGauge(nodeInfo,"indices_segments_memory_bytes", idx.getSegments().getBitsetMemoryInBytes(), "bitset");
-            catalog.setNodeGauge(nodeInfo,"indices_segments_memory_bytes", idx.getSegments().getIndexWriterMemoryInBytes(), "indexwriter");
-            catalog.setNodeGauge(nodeInfo,"indices_segments_memory_bytes", idx.getSegments().getVersionMapMemoryInBytes(), "versionmap");
+            node.set("indices_segments_number", idx.getSegments().getCount());
+            node.set("indices_segments_memory_bytes", idx.getSegments().getBitsetMemoryInBytes(), "bitset");
+            node.set("indices_segments_memory_bytes", idx.getSegments().getIndexWriterMemoryInBytes(), "indexwriter");
+            node.set("indices_segments_memory_bytes", idx.getSegments().getVersionMapMemoryInBytes(), "versionmap");
 
-            catalog.setNodeGauge(nodeInfo,"indices_suggest_current_number", idx.getSearch().getTotal().getSuggestCurrent());
-            catalog.setNodeGauge(nodeInfo,"indices_suggest_count", idx.getSearch().getTotal().getSuggestCount());
-            catalog.setNodeGauge(nodeInfo,"indices_suggest_time_seconds", idx.getSearch().getTotal().getSuggestTimeInMillis() / 1000.0);
+            node.set("indices_suggest_current_number", idx.getSearch().getTotal().getSuggestCurrent());
+            node.set("indices_suggest_count", idx.getSearch().getTotal().getSuggestCount());
+            node.set("indices_suggest_time_seconds", idx.getSearch().getTotal().getSuggestTimeInMillis() / 1000.0);
 
-            catalog.setNodeGauge(nodeInfo,"indices_requestcache_memory_size_bytes", idx.getRequestCache().getMemorySizeInBytes());
-            catalog.setNodeGauge(nodeInfo,"indices_requestcache_hit_count", idx.getRequestCache().getHitCount());
-            catalog.setNodeGauge(nodeInfo,"indices_requestcache_miss_count", idx.getRequestCache().getMissCount());
-            catalog.setNodeGauge(nodeInfo,"indices_requestcache_evictions_count", idx.getRequestCache().getEvictions());
+            node.set("indices_requestcache_memory_size_bytes", idx.getRequestCache().getMemorySizeInBytes());
+            node.set("indices_requestcache_hit_count", idx.getRequestCache().getHitCount());
+            node.set("indices_requestcache_miss_count", idx.getRequestCache().getMissCount());
+            node.set("indices_requestcache_evictions_count", idx.getRequestCache().getEvictions());
 
-            catalog.setNodeGauge(nodeInfo,"indices_recovery_current_number", idx.getRecoveryStats().currentAsSource(), "source");
-            catalog.setNodeGauge(nodeInfo,"indices_recovery_current_number", idx.getRecoveryStats().currentAsTarget(), "target");
-            catalog.setNodeGauge(nodeInfo,"indices_recovery_throttle_time_seconds", idx.getRecoveryStats().throttleTime().getSeconds());
+            node.set("indices_recovery_current_number", idx.getRecoveryStats().currentAsSource(), "source");
+            node.set("indices_recovery_current_number", idx.getRecoveryStats().currentAsTarget(), "target");
+            node.set("indices_recovery_throttle_time_seconds", idx.getRecoveryStats().throttleTime().getSeconds());
         }
     }
 
     @SuppressWarnings("checkstyle:LineLength")
     private void registerPerIndexMetrics() {
-        catalog.registerClusterGauge("index_status", "Index status", "index");
-        catalog.registerClusterGauge("index_replicas_number", "Number of replicas", "index");
-        catalog.registerClusterGauge("index_shards_number", "Number of shards", "type", "index");
-
-        catalog.registerClusterGauge("index_doc_number", "Total number of documents", "index", "context");
-        catalog.registerClusterGauge("index_doc_deleted_number", "Number of deleted documents", "index", "context");
-
-        catalog.registerClusterGauge("index_store_size_bytes", "Store size of the indices in bytes", "index", "context");
-
-        catalog.registerClusterGauge("index_indexing_delete_count", "Count of documents deleted", "index", "context");
-        catalog.registerClusterGauge("index_indexing_delete_current_number", "Current rate of documents deleted", "index", "context");
-        catalog.registerClusterGauge("index_indexing_delete_time_seconds", "Time spent while deleting documents", "index", "context");
-        catalog.registerClusterGauge("index_indexing_index_count", "Count of documents indexed", "index", "context");
-        catalog.registerClusterGauge("index_indexing_index_current_number", "Current rate of documents indexed", "index", "context");
-        catalog.registerClusterGauge("index_indexing_index_failed_count", "Count of failed to index documents", "index", "context");
-        catalog.registerClusterGauge("index_indexing_index_time_seconds", "Time spent while indexing documents", "index", "context");
-        catalog.registerClusterGauge("index_indexing_noop_update_count", "Count of noop document updates", "index", "context");
-        catalog.registerClusterGauge("index_indexing_is_throttled_bool", "Is indexing throttling ?", "index", "context");
-        catalog.registerClusterGauge("index_indexing_throttle_time_seconds", "Time spent while throttling", "index", "context");
-
-        catalog.registerClusterGauge("index_get_count", "Count of get commands", "index", "context");
-        catalog.registerClusterGauge("index_get_time_seconds", "Time spent while get commands", "index", "context");
-        catalog.registerClusterGauge("index_get_exists_count", "Count of existing documents when get command", "index", "context");
-        catalog.registerClusterGauge("index_get_exists_time_seconds", "Time spent while existing documents get command", "index", "context");
-        catalog.registerClusterGauge("index_get_missing_count", "Count of missing documents when get command", "index", "context");
-        catalog.registerClusterGauge("index_get_missing_time_seconds", "Time spent while missing documents get command", "index", "context");
-        catalog.registerClusterGauge("index_get_current_number", "Current rate of get commands", "index", "context");
-
-        catalog.registerClusterGauge("index_search_open_contexts_number", "Number of search open contexts", "index", "context");
-        catalog.registerClusterGauge("index_search_fetch_count", "Count of search fetches", "index", "context");
-        catalog.registerClusterGauge("index_search_fetch_current_number", "Current rate of search fetches", "index", "context");
-        catalog.registerClusterGauge("index_search_fetch_time_seconds", "Time spent while search fetches", "index", "context");
-        catalog.registerClusterGauge("index_search_query_count", "Count of search queries", "index", "context");
-        catalog.registerClusterGauge("index_search_query_current_number", "Current rate of search queries", "index", "context");
-        catalog.registerClusterGauge("index_search_query_time_seconds", "Time spent while search queries", "index", "context");
-        catalog.registerClusterGauge("index_search_scroll_count", "Count of search scrolls", "index", "context");
-        catalog.registerClusterGauge("index_search_scroll_current_number", "Current rate of search scrolls", "index", "context");
-        catalog.registerClusterGauge("index_search_scroll_time_seconds", "Time spent while search scrolls", "index", "context");
-
-        catalog.registerClusterGauge("index_merges_current_number", "Current rate of merges", "index", "context");
-        catalog.registerClusterGauge("index_merges_current_docs_number", "Current rate of documents merged", "index", "context");
-        catalog.registerClusterGauge("index_merges_current_size_bytes", "Current rate of bytes merged", "index", "context");
-        catalog.registerClusterGauge("index_merges_total_number", "Count of merges", "index", "context");
-        catalog.registerClusterGauge("index_merges_total_time_seconds", "Time spent while merging", "index", "context");
-        catalog.registerClusterGauge("index_merges_total_docs_count", "Count of documents merged", "index", "context");
-        catalog.registerClusterGauge("index_merges_total_size_bytes", "Count of bytes of merged documents", "index", "context");
-        catalog.registerClusterGauge("index_merges_total_stopped_time_seconds", "Time spent while merge process stopped", "index", "context");
-        catalog.registerClusterGauge("index_merges_total_throttled_time_seconds", "Time spent while merging when throttling", "index", "context");
-        catalog.registerClusterGauge("index_merges_total_auto_throttle_bytes", "Bytes merged while throttling", "index", "context");
-
-        catalog.registerClusterGauge("index_refresh_total_count", "Count of refreshes", "index", "context");
-        catalog.registerClusterGauge("index_refresh_total_time_seconds", "Time spent while refreshes", "index", "context");
-        catalog.registerClusterGauge("index_refresh_listeners_number", "Number of refresh listeners", "index", "context");
-
-        catalog.registerClusterGauge("index_flush_total_count", "Count of flushes", "index", "context");
-        catalog.registerClusterGauge("index_flush_total_time_seconds", "Total time spent while flushes", "index", "context");
-
-        catalog.registerClusterGauge("index_querycache_cache_count", "Count of queries in cache", "index", "context");
-        catalog.registerClusterGauge("index_querycache_cache_size_bytes", "Query cache size", "index", "context");
-        catalog.registerClusterGauge("index_querycache_evictions_count", "Count of evictions in query cache", "index", "context");
-        catalog.registerClusterGauge("index_querycache_hit_count", "Count of hits in query cache", "index", "context");
-        catalog.registerClusterGauge("index_querycache_memory_size_bytes", "Memory usage of query cache", "index", "context");
-        catalog.registerClusterGauge("index_querycache_miss_number", "Count of misses in query cache", "index", "context");
-        catalog.registerClusterGauge("index_querycache_total_number", "Count of usages of query cache", "index", "context");
-
-        catalog.registerClusterGauge("index_fielddata_memory_size_bytes", "Memory usage of field date cache", "index", "context");
-        catalog.registerClusterGauge("index_fielddata_evictions_count", "Count of evictions in field data cache", "index", "context");
+        indexGroupRegistrations.add(() -> catalog.registerClusterGauge("index_group_indices_number",
+                "Number of indices in the index group", "index_group"));
+        registerPerIndexGauge("index_status", "Index status", "index");
+        registerPerIndexGauge("index_replicas_number", "Number of replicas", "index");
+        registerPerIndexGauge("index_shards_number", "Number of shards", "type", "index");
+        registerPerIndexGauge("index_stats_timestamp_seconds",
+                "Time the index stats were collected at when they are collected in batches", "index");
+
+        registerPerIndexGauge("index_doc_number", "Total number of documents", "index", "context");
+        registerPerIndexGauge("index_doc_deleted_number", "Number of deleted documents", "index", "context");
+
+        registerPerIndexGauge("index_store_size_bytes", "Store size of the indices in bytes", "index", "context");
+
+        registerPerIndexCounter("index_indexing_delete_count", "Count of documents deleted", "index", "context");
+        registerPerIndexGauge("index_indexing_delete_current_number", "Current rate of documents deleted", "index", "context");
+        registerPerIndexCounter("index_indexing_delete_time_seconds", "Time spent while deleting documents", "index", "context");
+        registerPerIndexCounter("index_indexing_index_count", "Count of documents indexed", "index", "context");
+        registerPerIndexGauge("index_indexing_index_current_number", "Current rate of documents indexed", "index", "context");
+        registerPerIndexCounter("index_indexing_index_failed_count", "Count of failed to index documents", "index", "context");
+        registerPerIndexCounter("index_indexing_index_time_seconds", "Time spent while indexing documents", "index", "context");
+        registerPerIndexCounter("index_indexing_noop_update_count", "Count of noop document updates", "index", "context");
+        registerPerIndexGauge("index_indexing_is_throttled_bool", "Is indexing throttling ?", "index", "context");
+        registerPerIndexCounter("index_indexing_throttle_time_seconds", "Time spent while throttling", "index", "context");
+
+        registerPerIndexCounter("index_get_count", "Count of get commands", "index", "context");
+        registerPerIndexCounter("index_get_time_seconds", "Time spent while get commands", "index", "context");
+        registerPerIndexCounter("index_get_exists_count", "Count of existing documents when get command", "index", "context");
+        registerPerIndexCounter("index_get_exists_time_seconds", "Time spent while existing documents get command", "index", "context");
+        registerPerIndexCounter("index_get_missing_count", "Count of missing documents when get command", "index", "context");
+        registerPerIndexCounter("index_get_missing_time_seconds", "Time spent while missing documents get command", "index", "context");
+        registerPerIndexGauge("index_get_current_number", "Current rate of get commands", "index", "context");
+
+        registerPerIndexGauge("index_search_open_contexts_number", "Number of search open contexts", "index", "context");
+        registerPerIndexCounter("index_search_fetch_count", "Count of search fetches", "index", "context");
+        registerPerIndexGauge("index_search_fetch_current_number", "Current rate of search fetches", "index", "context");
+        registerPerIndexCounter("index_search_fetch_time_seconds", "Time spent while search fetches", "index", "context");
+        registerPerIndexCounter("index_search_query_count", "Count of search queries", "index", "context");
+        registerPerIndexGauge("index_search_query_current_number", "Current rate of search queries", "index", "context");
+        registerPerIndexCounter("index_search_query_time_seconds", "Time spent while search queries", "index", "context");
+        registerPerIndexCounter("index_search_scroll_count", "Count of search scrolls", "index", "context");
+        registerPerIndexGauge("index_search_scroll_current_number", "Current rate of search scrolls", "index", "context");
+        registerPerIndexCounter("index_search_scroll_time_seconds", "Time spent while search scrolls", "index", "context");
+
+        registerPerIndexGauge("index_merges_current_number", "Current rate of merges", "index", "context");
+        registerPerIndexGauge("index_merges_current_docs_number", "Current rate of documents merged", "index", "context");
+        registerPerIndexGauge("index_merges_current_size_bytes", "Current rate of bytes merged", "index", "context");
+        registerPerIndexCounter("index_merges_total_number", "Count of merges", "index", "context");
+        registerPerIndexCounter("index_merges_total_time_seconds", "Time spent while merging", "index", "context");
+        registerPerIndexCounter("index_merges_total_docs_count", "Count of documents merged", "index", "context");
+        registerPerIndexCounter("index_merges_total_size_bytes", "Count of bytes of merged documents", "index", "context");
+        registerPerIndexCounter("index_merges_total_stopped_time_seconds", "Time spent while merge process stopped", "index", "context");
+        registerPerIndexCounter("index_merges_total_throttled_time_seconds", "Time spent while merging when throttling", "index", "context");
+        registerPerIndexGauge("index_merges_total_auto_throttle_bytes", "Bytes merged while throttling", "index", "context");
+
+        registerPerIndexCounter("index_refresh_total_count", "Count of refreshes", "index", "context");
+        registerPerIndexCounter("index_refresh_total_time_seconds", "Time spent while refreshes", "index", "context");
+        registerPerIndexGauge("index_refresh_listeners_number", "Number of refresh listeners", "index", "context");
+
+        registerPerIndexCounter("index_flush_total_count", "Count of flushes", "index", "context");
+        registerPerIndexCounter("index_flush_total_time_seconds", "Total time spent while flushes", "index", "context");
+
+        registerPerIndexGauge("index_querycache_cache_count", "Count of queries in cache", "index", "context");
+        registerPerIndexGauge("index_querycache_cache_size_bytes", "Query cache size", "index", "context");
+        registerPerIndexCounter("index_querycache_evictions_count", "Count of evictions in query cache", "index", "context");
+        registerPerIndexCounter("index_querycache_hit_count", "Count of hits in query cache", "index", "context");
+        registerPerIndexGauge("index_querycache_memory_size_bytes", "Memory usage of query cache", "index", "context");
+        registerPerIndexCounter("index_querycache_miss_number", "Count of misses in query cache", "index", "context");
+        registerPerIndexCounter("index_querycache_total_number", "Count of usages of query cache", "index", "context");
+
+        registerPerIndexGauge("index_fielddata_memory_size_bytes", "Memory usage of field date cache", "index", "context");
+        registerPerIndexCounter("index_fielddata_evictions_count", "Count of evictions in field data cache", "index", "context");
 
         // Percolator cache was removed in ES 5.x
         // See https://github.com/elastic/elasticsearch/commit/80fee8666ff5dd61ba29b175857cf42ce3b9eab9
 
-        catalog.registerClusterGauge("index_completion_size_bytes", "Size of completion suggest statistics", "index", "context");
+        registerPerIndexGauge("index_completion_size_bytes", "Size of completion suggest statistics", "index", "context");
+
+        registerPerIndexGauge("index_segments_number", "Current number of segments", "index", "context");
+        registerPerIndexGauge("index_segments_memory_bytes", "Memory used by segments", "type", "index", "context");
 
-        catalog.registerClusterGauge("index_segments_number", "Current number of segments", "index", "context");
-        catalog.registerClusterGauge("index_segments_memory_bytes", "Memory used by segments", "type", "index", "context");
+        registerPerIndexGauge("index_suggest_current_number", "Current rate of suggests", "index", "context");
+        registerPerIndexCounter("index_suggest_count", "Count of suggests", "index", "context");
+        registerPerIndexCounter("index_suggest_time_seconds", "Time spent while making suggests", "index", "context");
 
-        catalog.registerClusterGauge("index_suggest_current_number", "Current rate of suggests", "index", "context");
-        catalog.registerClusterGauge("index_suggest_count", "Count of suggests", "index", "context");
-        catalog.registerClusterGauge("index_suggest_time_seconds", "Time spent while making suggests", "index", "context");
+        registerPerIndexGauge("index_requestcache_memory_size_bytes", "Memory used for request cache", "index", "context");
+        registerPerIndexCounter("index_requestcache_hit_count", "Number of hits in request cache", "index", "context");
+        registerPerIndexCounter("index_requestcache_miss_count", "Number of misses in request cache", "index", "context");
+        registerPerIndexCounter("index_requestcache_evictions_count", "Number of evictions in request cache", "index", "context");
 
-        catalog.registerClusterGauge("index_requestcache_memory_size_bytes", "Memory used for request cache", "index", "context");
-        catalog.registerClusterGauge("index_requestcache_hit_count", "Number of hits in request cache", "index", "context");
-        catalog.registerClusterGauge("index_requestcache_miss_count", "Number of misses in request cache", "index", "context");
-        catalog.registerClusterGauge("index_requestcache_evictions_count", "Number of evictions in request cache", "index", "context");
+        registerPerIndexGauge("index_recovery_current_number", "Current number of recoveries", "type", "index", "context");
+        registerPerIndexCounter("index_recovery_throttle_time_seconds", "Time spent while throttling recoveries", "index", "context");
 
-        catalog.registerClusterGauge("index_recovery_current_number", "Current number of recoveries", "type", "index", "context");
-        catalog.registerClusterGauge("index_recovery_throttle_time_seconds", "Time spent while throttling recoveries", "index", "context");
+        registerPerIndexGauge("index_translog_operations_number", "Current number of translog operations", "index", "context");
+        registerPerIndexGauge("index_translog_size_bytes", "Translog size", "index", "context");
+        registerPerIndexGauge("index_translog_uncommitted_operations_number", "Current number of uncommitted translog operations", "index", "context");
+        registerPerIndexGauge("index_translog_uncommitted_size_bytes", "Translog uncommitted size", "index", "context");
 
-        catalog.registerClusterGauge("index_translog_operations_number", "Current number of translog operations", "index", "context");
-        catalog.registerClusterGauge("index_translog_size_bytes", "Translog size", "index", "context");
-        catalog.registerClusterGauge("index_translog_uncommitted_operations_number", "Current number of uncommitted translog operations", "index", "context");
-        catalog.registerClusterGauge("index_translog_uncommitted_size_bytes", "Translog uncommitted size", "index", "context");
+        registerPerIndexGauge("index_warmer_current_number", "Current number of warmer", "index", "context");
+        registerPerIndexCounter("index_warmer_time_seconds", "Time spent during warmers", "index", "context");
+        registerPerIndexCounter("index_warmer_count", "Counter of warmers", "index", "context");
+    }
+
+    // Index level metrics are registered per index and, once index groups are configured, per index group
+    // (see IndexGroups). Sums over indices joining and leaving a group are not monotonic, the twins of counters
+    // are gauges.
+    private void registerPerIndexGauge(String metric, String help, String... labels) {
+        catalog.registerClusterGauge(metric, help, labels);
+        indexGroupRegistrations.add(() -> catalog.registerClusterGauge(indexGroupMetric(metric), help,
+                indexGroupLabels(labels)));
+    }
 
-        catalog.registerClusterGauge("index_warmer_current_number", "Current number of warmer", "index", "context");
-        catalog.registerClusterGauge("index_warmer_time_seconds", "Time spent during warmers", "index", "context");
-        catalog.registerClusterGauge("index_warmer_count", "Counter of warmers", "index", "context");
+    private void registerPerIndexCounter(String metric, String help, String... labels) {
+        catalog.registerClusterCounter(metric, help, labels);
+        indexGroupRegistrations.add(() -> catalog.registerClusterGauge(indexGroupMetric(metric), help,
+                indexGroupLabels(labels)));
     }
 
-    private void updatePerIndexMetrics(@Nullable ClusterHealthResponse chr, @Nullable IndicesStatsResponse isr) {
+    private void registerIndexGroupMetrics() {
+        if (!indexGroupMetricsRegistered) {
+            indexGroupMetricsRegistered = true;
+            catalog.registerGroup(MetricGroup.INDEX, () -> indexGroupRegistrations.forEach(Runnable::run));
+        }
+    }
+
+    private static String indexGroupMetric(String metric) {
+        return metric.startsWith("index_group_") ? metric : "index_group_" + metric.substring("index_".length());
+    }
+
+    private static String[] indexGroupLabels(String[] labels) {
+        String[] groupLabels = labels.clone();
+        for (int i = 0; i < groupLabels.length; i++) {
+            if ("index".equals(groupLabels[i])) {
+                groupLabels[i] = "index_group";
+            }
+        }
+        return groupLabels;
+    }
+
+    private void updatePerIndexMetrics(@Nullable ClusterHealthResponse chr, @Nullable IndicesStatsResponse isr,
+                                       @Nullable Map<String, Long> timestamps) {
 
         if (chr != null && isr != null) {
+            boolean perIndex = prometheusSettings.getPrometheusIndicesRollupPerIndex();
+            Set<String> topIndices = perIndex
+                    ? topIndices(isr.getIndices(), chr.getIndices().keySet(), timestamps)
+                    : null;
+            IndexGroups rules = prometheusSettings.getIndexGroups();
+            if (!rules.isEmpty()) {
+                registerIndexGroupMetrics();
+            }
+            IndexAggregate other = new IndexAggregate();
+            Map<String, IndexAggregate> groups = new HashMap<>();
+            // A single pass over the indices updates the per index metrics and aggregates the index groups.
             for (Map.Entry<String, IndexStats> entry : isr.getIndices().entrySet()) {
                 String indexName = entry.getKey();
                 ClusterIndexHealth cih = chr.getIndices().get(indexName);
-                catalog.setClusterGauge("index_status", cih.getStatus().value(), indexName);
-                catalog.setClusterGauge("index_replicas_number", cih.getNumberOfReplicas(), indexName);
-                catalog.setClusterGauge("index_shards_number", cih.getActiveShards(), "active", indexName);
-                catalog.setClusterGauge("index_shards_number", cih.getNumberOfShards(), "shards", indexName);
-                catalog.setClusterGauge("index_shards_number", cih.getActivePrimaryShards(), "active_primary", indexName);
-                catalog.setClusterGauge("index_shards_number", cih.getInitializingShards(), "initializing", indexName);
-                catalog.setClusterGauge("index_shards_number", cih.getRelocatingShards(), "relocating", indexName);
-                catalog.setClusterGauge("index_shards_number", cih.getUnassignedShards(), "unassigned", indexName);
+                if (cih == null) {
+                    // Deleted since its stats were collected.
+                    continue;
+                }
                 IndexStats indexStats = entry.getValue();
-                updatePerIndexContextMetrics(indexName, "total", indexStats.getTotal());
-                updatePerIndexContextMetrics(indexName, "primaries", indexStats.getPrimaries());
+                Long timestampMillis = timestamps != null ? timestamps.get(indexName) : null;
+                if (!rules.isEmpty()) {
+                    for (String group : rules.resolve(indexName)) {
+                        groups.computeIfAbsent(group, g -> new IndexAggregate()).add(cih, indexStats, timestampMillis);
+                    }
+                }
+                if (!perIndex) {
+                    continue;
+                }
+                if (topIndices != null && !topIndices.contains(indexName)) {
+                    other.add(cih, indexStats, timestampMillis);
+                    continue;
+                }
+                IndexHandles handles = indexHandles(indexName);
+
+                handles.index.set("index_status", cih.getStatus().value());
+                handles.index.set("index_replicas_number", cih.getNumberOfReplicas());
+                handles.index.set("index_shards_number", cih.getActiveShards(), "active");
+                handles.index.set("index_shards_number", cih.getNumberOfShards(), "shards");
+                handles.index.set("index_shards_number", cih.getActivePrimaryShards(), "active_primary");
+                handles.index.set("index_shards_number", cih.getInitializingShards(), "initializing");
+                handles.index.set("index_shards_number", cih.getRelocatingShards(), "relocating");
+                handles.index.set("index_shards_number", cih.getUnassignedShards(), "unassigned");
+                if (timestampMillis != null) {
+                    handles.index.set("index_stats_timestamp_seconds", timestampMillis / 1000.0);
+                }
+                updatePerIndexContextMetrics(handles.total, indexStats.getTotal());
+                updatePerIndexContextMetrics(handles.primaries, indexStats.getPrimaries());
+            }
+            // Indices that are gone are dropped from the cache, a new index of the same name is resolved again.
+            rules.retain(chr.getIndices().keySet());
+
+            if (other.indices > 0) {
+                registerIndexGroupMetrics();
+                groups.put(OTHER_INDEX_GROUP, other);
+            }
+            for (Map.Entry<String, IndexAggregate> group : groups.entrySet()) {
+                IndexHandles handles = indexGroupHandles.get(group.getKey());
+                if (handles == null) {
+                    handles = new IndexHandles(group.getKey(), true);
+                    indexGroupHandles.put(group.getKey(), handles);
+                }
+                handles.update = updates;
+                handles.index.set("index_group_indices_number", group.getValue().indices);
+                updateIndexAggregateMetrics(handles, group.getValue());
             }
         }
     }
 
+    // Replicas of the aggregated indices differ, their number would be meaningless.
+    private void updateIndexAggregateMetrics(IndexHandles handles, IndexAggregate aggregate) {
+        handles.index.set("index_status", aggregate.status);
+        handles.index.set("index_shards_number", aggregate.shards[0], "active");
+        handles.index.set("index_shards_number", aggregate.shards[1], "shards");
+        handles.index.set("index_shards_number", aggregate.shards[2], "active_primary");
+        handles.index.set("index_shards_number", aggregate.shards[3], "initializing");
+        handles.index.set("index_shards_number", aggregate.shards[4], "relocating");
+        handles.index.set("index_shards_number", aggregate.shards[5], "unassigned");
+        // The stats of an aggregate are as old as the stats of its oldest index.
+        if (aggregate.oldestTimestampMillis != Long.MAX_VALUE) {
+            handles.index.set("index_stats_timestamp_seconds", aggregate.oldestTimestampMillis / 1000.0);
+        }
+        updatePerIndexContextMetrics(handles.total, aggregate.total);
+        updatePerIndexContextMetrics(handles.primaries, aggregate.primaries);
+    }
+
+    private IndexHandles indexHandles(String indexName) {
+        IndexHandles handles = indexHandles.get(indexName);
+        if (handles == null) {
+            handles = new IndexHandles(indexName);
+            indexHandles.put(indexName, handles);
+        }
+        handles.update = updates;
+        return handles;
+    }
+
+    /**
+     * Select the top N indices by the configured rank. Only N indices are kept in a min-heap at any time,
+     * so the selection costs O(indices * log N).
+     * @param indices Stats of the indices to select from
+     * @param existing Names of all the existing indices
+     * @param timestamps Time the stats of each index were collected at or {@code null} if they were all collected now
+     * @return Names of the selected indices or {@code null} if the number of indices is not limited
+     */
+    @Nullable
+    private Set<String> topIndices(Map<String, IndexStats> indices, Set<String> existing,
+                                   @Nullable Map<String, Long> timestamps) {
+        int topN = prometheusSettings.getIndicesTopN();
+        PrometheusSettings.INDEX_RANK_BY rankBy = prometheusSettings.getIndicesRankBy();
+        boolean byRate = rankBy != PrometheusSettings.INDEX_RANK_BY.STORE_SIZE;
+        if (topN == 0 || !byRate || rankBy != previousRankBy) {
+            // Counters of different stats can not be compared, rates are known from the next update on.
+            rankCounters.clear();
+        }
+        previousRankBy = rankBy;
+        if (topN == 0) {
+            return null;
+        }
+
+        long nowMillis = System.currentTimeMillis();
+        PriorityQueue<RankedIndex> top = new PriorityQueue<>(topN, RANK_ORDER);
+        for (Map.Entry<String, IndexStats> entry : indices.entrySet()) {
+            String indexName = entry.getKey();
+            CommonStats stats = entry.getValue().getTotal();
+            double rank;
+            if (byRate) {
+                long counter = rankBy == PrometheusSettings.INDEX_RANK_BY.INDEXING_RATE
+                        ? stats.getIndexing().getTotal().getIndexCount()
+                        : stats.getSearch().getTotal().getQueryCount();
+                Long timestampMillis = timestamps != null ? timestamps.get(indexName) : null;
+                rank = rankCounter(indexName, counter, timestampMillis != null ? timestampMillis : nowMillis).rate;
+            } else {
+                rank = stats.getStore().getSizeInBytes();
+            }
+            RankedIndex candidate = new RankedIndex(indexName, rank);
+            if (top.size() < topN) {
+                top.offer(candidate);
+            } else if (RANK_ORDER.compare(candidate, top.peek()) > 0) {
+                top.poll();
+                top.offer(candidate);
+            }
+        }
+        // Deleted indices are dropped, indices missing from this update only (e.g. of another shard) are kept.
+        rankCounters.keySet().retainAll(existing);
+
+        Set<String> names = new HashSet<>();
+        for (RankedIndex index : top) {
+            names.add(index.name);
+        }
+        return names;
+    }
+
+    /**
+     * Update the rate of an index with its counter. Stats merged from an earlier collection (see
+     * {@link PrometheusSettings#PROMETHEUS_INDICES_BATCHES}) keep the rate computed when they were collected,
+     * so that indices refreshed by different batches are ranked by comparable rates.
+     */
+    private RankCounter rankCounter(String indexName, long counter, long timestampMillis) {
+        RankCounter previous = rankCounters.get(indexName);
+        if (previous != null && previous.timestampMillis >= timestampMillis && previous.counter == counter) {
+            return previous;
+        }
+        double rate = 0;
+        if (previous != null && counter >= previous.counter && timestampMillis > previous.timestampMillis) {
+            rate = (counter - previous.counter) * 1000.0 / (timestampMillis - previous.timestampMillis);
+        }
+        // A counter going down (e.g. the index was recreated) starts over.
+        RankCounter next = new RankCounter(counter, timestampMillis, rate);
+        rankCounters.put(indexName, next);
+        return next;
+    }
+
     @SuppressWarnings("checkstyle:LineLength")
-    private void updatePerIndexContextMetrics(String indexName, String context, CommonStats idx) {
-        catalog.setClusterGauge("index_doc_number", idx.getDocs().getCount(), indexName, context);
-        catalog.setClusterGauge("index_doc_deleted_number", idx.getDocs().getDeleted(), indexName, context);
-
-        catalog.setClusterGauge("index_store_size_bytes", idx.getStore().getSizeInBytes(), indexName, context);
-
-        catalog.setClusterGauge("index_indexing_delete_count", idx.getIndexing().getTotal().getDeleteCount(), indexName, context);
-        catalog.setClusterGauge("index_indexing_delete_current_number", idx.getIndexing().getTotal().getDeleteCurrent(), indexName, context);
-        catalog.setClusterGauge("index_indexing_delete_time_seconds", idx.getIndexing().getTotal().getDeleteTime().seconds(), indexName, context);
-        catalog.setClusterGauge("index_indexing_index_count", idx.getIndexing().getTotal().getIndexCount(), indexName, context);
-        catalog.setClusterGauge("index_indexing_index_current_number", idx.getIndexing().getTotal().getIndexCurrent(), indexName, context);
-        catalog.setClusterGauge("index_indexing_index_failed_count", idx.getIndexing().getTotal().getIndexFailedCount(), indexName, context);
-        catalog.setClusterGauge("index_indexing_index_time_seconds", idx.getIndexing().getTotal().getIndexTime().seconds(), indexName, context);
-        catalog.setClusterGauge("index_indexing_noop_update_count", idx.getIndexing().getTotal().getNoopUpdateCount(), indexName, context);
-        catalog.setClusterGauge("index_indexing_is_throttled_bool", idx.getIndexing().getTotal().isThrottled() ? 1 : 0, indexName, context);
-        catalog.setClusterGauge("index_indexing_throttle_time_seconds", idx.getIndexing().getTotal().getThrottleTime().seconds(), indexName, context);
-
-        catalog.setClusterGauge("index_get_count", idx.getGet().getCount(), indexName, context);
-        catalog.setClusterGauge("index_get_time_seconds", idx.getGet().getTimeInMillis() / 1000.0, indexName, context);
-        catalog.setClusterGauge("index_get_exists_count", idx.getGet().getExistsCount(), indexName, context);
-        catalog.setClusterGauge("index_get_exists_time_seconds", idx.getGet().getExistsTimeInMillis() / 1000.0, indexName, context);
-        catalog.setClusterGauge("index_get_missing_count", idx.getGet().getMissingCount(), indexName, context);
-        catalog.setClusterGauge("index_get_missing_time_seconds", idx.getGet().getMissingTimeInMillis() / 1000.0, indexName, context);
-        catalog.setClusterGauge("index_get_current_number", idx.getGet().current(), indexName, context);
-
-        catalog.setClusterGauge("index_search_open_contexts_number", idx.getSearch().getOpenContexts(), indexName, context);
-        catalog.setClusterGauge("index_search_fetch_count", idx.getSearch().getTotal().getFetchCount(), indexName, context);
-        catalog.setClusterGauge("index_search_fetch_current_number", idx.getSearch().getTotal().getFetchCurrent(), indexName, context);
-        catalog.setClusterGauge("index_search_fetch_time_seconds", idx.getSearch().getTotal().getFetchTimeInMillis() / 1000.0, indexName, context);
-        catalog.setClusterGauge("index_search_query_count", idx.getSearch().getTotal().getQueryCount(), indexName, context);
-        catalog.setClusterGauge("index_search_query_current_number", idx.getSearch().getTotal().getQueryCurrent(), indexName, context);
-        catalog.setClusterGauge("index_search_query_time_seconds", idx.getSearch().getTotal().getQueryTimeInMillis() / 1000.0, indexName, context);
-        catalog.setClusterGauge("index_search_scroll_count", idx.getSearch().getTotal().getScrollCount(), indexName, context);
-        catalog.setClusterGauge("index_search_scroll_current_number", idx.getSearch().getTotal().getScrollCurrent(), indexName, context);
-        catalog.setClusterGauge("index_search_scroll_time_seconds", idx.getSearch().getTotal().getScrollTimeInMillis() / 1000.0, indexName, context);
-
-        catalog.setClusterGauge("index_merges_current_number", idx.getMerge().getCurrent(), indexName, context);
-        catalog.setClusterGauge("index_merges_current_docs_number", idx.getMerge().getCurrentNumDocs(), indexName, context);
-        catalog.setClusterGauge("index_merges_current_size_bytes", idx.getMerge().getCurrentSizeInBytes(), indexName, context);
-        catalog.setClusterGauge("index_merges_total_number", idx.getMerge().getTotal(), indexName, context);
-        catalog.setClusterGauge("index_merges_total_time_seconds", idx.getMerge().getTotalTimeInMillis() / 1000.0, indexName, context);
-        catalog.setClusterGauge("index_merges_total_docs_count", idx.getMerge().getTotalNumDocs(), indexName, context);
-        catalog.setClusterGauge("index_merges_total_size_bytes", idx.getMerge().getTotalSizeInBytes(), indexName, context);
-        catalog.setClusterGauge("index_merges_total_stopped_time_seconds", idx.getMerge().getTotalStoppedTimeInMillis() / 1000.0, indexName, context);
-        catalog.setClusterGauge("index_merges_total_throttled_time_seconds", idx.getMerge().getTotalThrottledTimeInMillis() / 1000.0, indexName, context);
-        catalog.setClusterGauge("index_merges_total_auto_throttle_bytes", idx.getMerge().getTotalBytesPerSecAutoThrottle(), indexName, context);
-
-        catalog.setClusterGauge("index_refresh_total_count", idx.getRefresh().getTotal(), indexName, context);
-        catalog.setClusterGauge("index_refresh_total_time_seconds", idx.getRefresh().getTotalTimeInMillis() / 1000.0, indexName, context);
-        catalog.setClusterGauge("index_refresh_listeners_number", idx.getRefresh().getListeners(), indexName, context);
-
-        catalog.setClusterGauge("index_flush_total_count", idx.getFlush().getTotal(), indexName, context);
-        catalog.setClusterGauge("index_flush_total_time_seconds", idx.getFlush().getTotalTimeInMillis() / 1000.0, indexName, context);
-
-        catalog.setClusterGauge("index_querycache_cache_count", idx.getQueryCache().getCacheCount(), indexName, context);
-        catalog.setClusterGauge("index_querycache_cache_size_bytes", idx.getQueryCache().getCacheSize(), indexName, context);
-        catalog.setClusterGauge("index_querycache_evictions_count", idx.getQueryCache().getEvictions(), indexName, context);
-        catalog.setClusterGauge("index_querycache_hit_count", idx.getQueryCache().getHitCount(), indexName, context);
-        catalog.setClusterGauge("index_querycache_memory_size_bytes", idx.getQueryCache().getMemorySizeInBytes(), indexName, context);
-        catalog.setClusterGauge("index_querycache_miss_number", idx.getQueryCache().getMissCount(), indexName, context);
-        catalog.setClusterGauge("index_querycache_total_number", idx.getQueryCache().getTotalCount(), indexName, context);
-
-        catalog.setClusterGauge("index_fielddata_memory_size_bytes", idx.getFieldData().getMemorySizeInBytes(), indexName, context);
-        catalog.setClusterGauge("index_fielddata_evictions_count", idx.getFieldData().getEvictions(), indexName, context);
+    private void updatePerIndexContextMetrics(GaugeHandles ctx, CommonStats idx) {
+        ctx.set("index_doc_number", idx.getDocs().getCount());
+        ctx.set("index_doc_deleted_number", idx.getDocs().getDeleted());
+
+        ctx.set("index_store_size_bytes", idx.getStore().getSizeInBytes());
+
+        ctx.set("index_indexing_delete_count", idx.getIndexing().getTotal().getDeleteCount());
+        ctx.set("index_indexing_delete_current_number", idx.getIndexing().getTotal().getDeleteCurrent());
+        ctx.set("index_indexing_delete_time_seconds", idx.getIndexing().getTotal().getDeleteTime().seconds());
+        ctx.set("index_indexing_index_count", idx.getIndexing().getTotal().getIndexCount());
+        ctx.set("index_indexing_index_current_number", idx.getIndexing().getTotal().getIndexCurrent());
+        ctx.set("index_indexing_index_failed_count", idx.getIndexing().getTotal().getIndexFailedCount());
+        ctx.set("index_indexing_index_time_seconds", idx.getIndexing().getTotal().getIndexTime().seconds());
+        ctx.set("index_indexing_noop_update_count", idx.getIndexing().getTotal().getNoopUpdateCount());
+        ctx.set("index_indexing_is_throttled_bool", idx.getIndexing().getTotal().isThrottled() ? 1 : 0);
+        ctx.set("index_indexing_throttle_time_seconds", idx.getIndexing().getTotal().getThrottleTime().seconds());
+
+        ctx.set("index_get_count", idx.getGet().getCount());
+        ctx.set("index_get_time_seconds", idx.getGet().getTimeInMillis() / 1000.0);
+        ctx.set("index_get_exists_count", idx.getGet().getExistsCount());
+        ctx.set("index_get_exists_time_seconds", idx.getGet().getExistsTimeInMillis() / 1000.0);
+        ctx.set("index_get_missing_count", idx.getGet().getMissingCount());
+        ctx.set("index_get_missing_time_seconds", idx.getGet().getMissingTimeInMillis() / 1000.0);
+        ctx.set("index_get_current_number", idx.getGet().current());
+
+        ctx.set("index_search_open_contexts_number", idx.getSearch().getOpenContexts());
+        ctx.set("index_search_fetch_count", idx.getSearch().getTotal().getFetchCount());
+        ctx.set("index_search_fetch_current_number", idx.getSearch().getTotal().getFetchCurrent());
+        ctx.set("index_search_fetch_time_seconds", idx.getSearch().getTotal().getFetchTimeInMillis() / 1000.0);
+        ctx.set("index_search_query_count", idx.getSearch().getTotal().getQueryCount());
+        ctx.set("index_search_query_current_number", idx.getSearch().getTotal().getQueryCurrent());
+        ctx.set("index_search_query_time_seconds", idx.getSearch().getTotal().getQueryTimeInMillis() / 1000.0);
+        ctx.set("index_search_scroll_count", idx.getSearch().getTotal().getScrollCount());
+        ctx.set("index_search_scroll_current_number", idx.getSearch().getTotal().getScrollCurrent());
+        ctx.set("index_search_scroll_time_seconds", idx.getSearch().getTotal().getScrollTimeInMillis() / 1000.0);
+
+        ctx.set("index_merges_current_number", idx.getMerge().getCurrent());
+        ctx.set("index_merges_current_docs_number", idx.getMerge().getCurrentNumDocs());
+        ctx.set("index_merges_current_size_bytes", idx.getMerge().getCurrentSizeInBytes());
+        ctx.set("index_merges_total_number", idx.getMerge().getTotal());
+        ctx.set("index_merges_total_time_seconds", idx.getMerge().getTotalTimeInMillis() / 1000.0);
+        ctx.set("index_merges_total_docs_count", idx.getMerge().getTotalNumDocs());
+        ctx.set("index_merges_total_size_bytes", idx.getMerge().getTotalSizeInBytes());
+        ctx.set("index_merges_total_stopped_time_seconds", idx.getMerge().getTotalStoppedTimeInMillis() / 1000.0);
+        ctx.set("index_merges_total_throttled_time_seconds", idx.getMerge().getTotalThrottledTimeInMillis() / 1000.0);
+        ctx.set("index_merges_total_auto_throttle_bytes", idx.getMerge().getTotalBytesPerSecAutoThrottle());
+
+        ctx.set("index_refresh_total_count", idx.getRefresh().getTotal());
+        ctx.set("index_refresh_total_time_seconds", idx.getRefresh().getTotalTimeInMillis() / 1000.0);
+        ctx.set("index_refresh_listeners_number", idx.getRefresh().getListeners());
+
+        ctx.set("index_flush_total_count", idx.getFlush().getTotal());
+        ctx.set("index_flush_total_time_seconds", idx.getFlush().getTotalTimeInMillis() / 1000.0);
+
+        ctx.set("index_querycache_cache_count", idx.getQueryCache().getCacheCount());
+        ctx.set("index_querycache_cache_size_bytes", idx.getQueryCache().getCacheSize());
+        ctx.set("index_querycache_evictions_count", idx.getQueryCache().getEvictions());
+        ctx.set("index_querycache_hit_count", idx.getQueryCache().getHitCount());
+        ctx.set("index_querycache_memory_size_bytes", idx.getQueryCache().getMemorySizeInBytes());
+        ctx.set("index_querycache_miss_number", idx.getQueryCache().getMissCount());
+        ctx.set("index_querycache_total_number", idx.getQueryCache().getTotalCount());
+
+        ctx.set("index_fielddata_memory_size_bytes", idx.getFieldData().getMemorySizeInBytes());
+        ctx.set("index_fielddata_evictions_count", idx.getFieldData().getEvictions());
 
         // Percolator cache was removed in ES 5.x
         // See https://github.com/elastic/elasticsearch/commit/80fee8666ff5dd61ba29b175857cf42ce3b9eab9
 
-        catalog.setClusterGauge("index_completion_size_bytes", idx.getCompletion().getSizeInBytes(), indexName, context);
+        ctx.set("index_completion_size_bytes", idx.getCompletion().getSizeInBytes());
 
-        catalog.setClusterGauge("index_segments_number", idx.getSegments().getCount(), indexName, context);
-        catalog.setClusterGauge("index_segments_memory_bytes", idx.getSegments().getBitsetMemoryInBytes(), "bitset", indexName, context);
-        catalog.setClusterGauge("index_segments_memory_bytes", idx.getSegments().getIndexWriterMemoryInBytes(), "indexwriter", indexName, context);
-        catalog.setClusterGauge("index_segments_memory_bytes", idx.getSegments().getVersionMapMemoryInBytes(), "versionmap", indexName, context);
+        ctx.set("index_segments_number", idx.getSegments().getCount());
+        ctx.set("index_segments_memory_bytes", idx.getSegments().getBitsetMemoryInBytes(), "bitset");
+        ctx.set("index_segments_memory_bytes", idx.getSegments().getIndexWriterMemoryInBytes(), "indexwriter");
+        ctx.set("index_segments_memory_bytes", idx.getSegments().getVersionMapMemoryInBytes(), "versionmap");
 
-        catalog.setClusterGauge("index_suggest_current_number", idx.getSearch().getTotal().getSuggestCurrent(), indexName, context);
-        catalog.setClusterGauge("index_suggest_count", idx.getSearch().getTotal().getSuggestCount(), indexName, context);
-        catalog.setClusterGauge("index_suggest_time_seconds", idx.getSearch().getTotal().getSuggestTimeInMillis() / 1000.0, indexName, context);
+        ctx.set("index_suggest_current_number", idx.getSearch().getTotal().getSuggestCurrent());
+        ctx.set("index_suggest_count", idx.getSearch().getTotal().getSuggestCount());
+        ctx.set("index_suggest_time_seconds", idx.getSearch().getTotal().getSuggestTimeInMillis() / 1000.0);
 
-        catalog.setClusterGauge("index_requestcache_memory_size_bytes", idx.getRequestCache().getMemorySizeInBytes(), indexName, context);
-        catalog.setClusterGauge("index_requestcache_hit_count", idx.getRequestCache().getHitCount(), indexName, context);
-        catalog.setClusterGauge("index_requestcache_miss_count", idx.getRequestCache().getMissCount(), indexName, context);
-        catalog.setClusterGauge("index_requestcache_evictions_count", idx.getRequestCache().getEvictions(), indexName, context);
+        ctx.set("index_requestcache_memory_size_bytes", idx.getRequestCache().getMemorySizeInBytes());
+        ctx.set("index_requestcache_hit_count", idx.getRequestCache().getHitCount());
+        ctx.set("index_requestcache_miss_count", idx.getRequestCache().getMissCount());
+        ctx.set("index_requestcache_evictions_count", idx.getRequestCache().getEvictions());
 
-        catalog.setClusterGauge("index_recovery_current_number", idx.getRecoveryStats().currentAsSource(), "source", indexName, context);
-        catalog.setClusterGauge("index_recovery_current_number", idx.getRecoveryStats().currentAsTarget(), "target", indexName, context);
-        catalog.setClusterGauge("index_recovery_throttle_time_seconds", idx.getRecoveryStats().throttleTime().getSeconds(), indexName, context);
+        ctx.set("index_recovery_current_number", idx.getRecoveryStats().currentAsSource(), "source");
+        ctx.set("index_recovery_current_number", idx.getRecoveryStats().currentAsTarget(), "target");
+        ctx.set("index_recovery_throttle_time_seconds", idx.getRecoveryStats().throttleTime().getSeconds());
 
-        catalog.setClusterGauge("index_translog_operations_number", idx.getTranslog().estimatedNumberOfOperations(), indexName, context);
-        catalog.setClusterGauge("index_translog_size_bytes", idx.getTranslog().getTranslogSizeInBytes(), indexName, context);
-        catalog.setClusterGauge("index_translog_uncommitted_operations_number", idx.getTranslog().getUncommittedOperations(), indexName, context);
-        catalog.setClusterGauge("index_translog_uncommitted_size_bytes", idx.getTranslog().getUncommittedSizeInBytes(), indexName, context);
+        ctx.set("index_translog_operations_number", idx.getTranslog().estimatedNumberOfOperations());
+        ctx.set("index_translog_size_bytes", idx.getTranslog().getTranslogSizeInBytes());
+        ctx.set("index_translog_uncommitted_operations_number", idx.getTranslog().getUncommittedOperations());
+        ctx.set("index_translog_uncommitted_size_bytes", idx.getTranslog().getUncommittedSizeInBytes());
 
-        catalog.setClusterGauge("index_warmer_current_number", idx.getWarmer().current(), indexName, context);
-        catalog.setClusterGauge("index_warmer_time_seconds", idx.getWarmer().totalTimeInMillis(), indexName, context);
-        catalog.setClusterGauge("index_warmer_count", idx.getWarmer().total(), indexName, context);
+        ctx.set("index_warmer_current_number", idx.getWarmer().current());
+        ctx.set("index_warmer_time_seconds", idx.getWarmer().totalTimeInMillis());
+        ctx.set("index_warmer_count", idx.getWarmer().total());
     }
 
     private void registerTransportMetrics() {
         catalog.registerNodeGauge("transport_server_open_number", "Opened server connections");
 
-        catalog.registerNodeGauge("transport_rx_packets_count", "Received packets");
-        catalog.registerNodeGauge("transport_tx_packets_count", "Sent packets");
+        catalog.registerNodeCounter("transport_rx_packets_count", "Received packets");
+        catalog.registerNodeCounter("transport_tx_packets_count", "Sent packets");
 
-        catalog.registerNodeGauge("transport_rx_bytes_count", "Bytes received");
-        catalog.registerNodeGauge("transport_tx_bytes_count", "Bytes sent");
+        catalog.registerNodeCounter("transport_rx_bytes_count", "Bytes received");
+        catalog.registerNodeCounter("transport_tx_bytes_count", "Bytes sent");
     }
 
-    private void updateTransportMetrics(Tuple<String, String> nodeInfo, TransportStats ts) {
+    private void updateTransportMetrics(GaugeHandles node, TransportStats ts) {
         if (ts != null) {
-            catalog.setNodeGauge(nodeInfo, "transport_server_open_number", ts.getServerOpen());
+            node.set("transport_server_open_number", ts.getServerOpen());
 
-            catalog.setNodeGauge(nodeInfo, "transport_rx_packets_count", ts.getRxCount());
-            catalog.setNodeGauge(nodeInfo, "transport_tx_packets_count", ts.getTxCount());
+            node.set("transport_rx_packets_count", ts.getRxCount());
+            node.set("transport_tx_packets_count", ts.getTxCount());
 
-            catalog.setNodeGauge(nodeInfo, "transport_rx_bytes_count", ts.getRxSize().getBytes());
-            catalog.setNodeGauge(nodeInfo, "transport_tx_bytes_count", ts.getTxSize().getBytes());
+            node.set("transport_rx_bytes_count", ts.getRxSize().getBytes());
+            node.set("transport_tx_bytes_count", ts.getTxSize().getBytes());
         }
     }
 
     private void registerHTTPMetrics() {
         catalog.registerNodeGauge("http_open_server_number", "Number of open server connections");
-        catalog.registerNodeGauge("http_open_total_count", "Count of opened connections");
+        catalog.registerNodeCounter("http_open_total_count", "Count of opened connections");
     }
 
-    private void updateHTTPMetrics(Tuple<String, String> nodeInfo, HttpStats http) {
+    private void updateHTTPMetrics(GaugeHandles node, HttpStats http) {
         if (http != null) {
-            catalog.setNodeGauge(nodeInfo, "http_open_server_number", http.getServerOpen());
-            catalog.setNodeGauge(nodeInfo, "http_open_total_count", http.getTotalOpen());
+            node.set("http_open_server_number", http.getServerOpen());
+            node.set("http_open_total_count", http.getTotalOpen());
         }
     }
 
     private void registerThreadPoolMetrics() {
         catalog.registerNodeGauge("threadpool_threads_number", "Number of threads in thread pool", "name", "type");
-        catalog.registerNodeGauge("threadpool_threads_count", "Count of threads in thread pool", "name", "type");
+        catalog.registerNodeCounter("threadpool_threads_count", "Count of threads in thread pool", "name", "type");
         catalog.registerNodeGauge("threadpool_tasks_number", "Number of tasks in thread pool", "name", "type");
     }
 
-    private void updateThreadPoolMetrics(Tuple<String, String> nodeInfo, ThreadPoolStats tps) {
+    private void updateThreadPoolMetrics(GaugeHandles node, ThreadPoolStats tps) {
         if (tps != null) {
             for (ThreadPoolStats.Stats st : tps) {
                 String name = st.getName();
-                catalog.setNodeGauge(nodeInfo, "threadpool_threads_number", st.getThreads(), name, "threads");
-                catalog.setNodeGauge(nodeInfo, "threadpool_threads_number", st.getActive(), name, "active");
-                catalog.setNodeGauge(nodeInfo, "threadpool_threads_number", st.getLargest(), name, "largest");
-                catalog.setNodeGauge(nodeInfo, "threadpool_threads_count", st.getCompleted(), name, "completed");
-                catalog.setNodeGauge(nodeInfo, "threadpool_threads_count", st.getRejected(), name, "rejected");
-                catalog.setNodeGauge(nodeInfo, "threadpool_tasks_number", st.getQueue(), name, "queue");
+                node.set("threadpool_threads_number", st.getThreads(), name, "threads");
+                node.set("threadpool_threads_number", st.getActive(), name, "active");
+                node.set("threadpool_threads_number", st.getLargest(), name, "largest");
+                node.set("threadpool_threads_count", st.getCompleted(), name, "completed");
+                node.set("threadpool_threads_count", st.getRejected(), name, "rejected");
+                node.set("threadpool_tasks_number", st.getQueue(), name, "queue");
             }
         }
     }
 
     @SuppressWarnings("checkstyle:LineLength")
     private void registerIngestMetrics() {
-        catalog.registerNodeGauge("ingest_total_count", "Ingestion total number");
-        catalog.registerNodeGauge("ingest_total_time_seconds", "Ingestion total time in seconds");
+        catalog.registerNodeCounter("ingest_total_count", "Ingestion total number");
+        catalog.registerNodeCounter("ingest_total_time_seconds", "Ingestion total time in seconds");
         catalog.registerNodeGauge("ingest_total_current", "Ingestion total current");
-        catalog.registerNodeGauge("ingest_total_failed_count", "Ingestion total failed");
+        catalog.registerNodeCounter("ingest_total_failed_count", "Ingestion total failed");
 
-        catalog.registerNodeGauge("ingest_pipeline_total_count", "Ingestion total number", "pipeline");
-        catalog.registerNodeGauge("ingest_pipeline_total_time_seconds", "Ingestion total time in seconds", "pipeline");
+        catalog.registerNodeCounter("ingest_pipeline_total_count", "Ingestion total number", "pipeline");
+        catalog.registerNodeCounter("ingest_pipeline_total_time_seconds", "Ingestion total time in seconds", "pipeline");
         catalog.registerNodeGauge("ingest_pipeline_total_current", "Ingestion total current", "pipeline");
-        catalog.registerNodeGauge("ingest_pipeline_total_failed_count", "Ingestion total failed", "pipeline");
+        catalog.registerNodeCounter("ingest_pipeline_total_failed_count", "Ingestion total failed", "pipeline");
 
-        catalog.registerNodeGauge("ingest_pipeline_processor_total_count", "Ingestion total number", "pipeline", "processor");
-        catalog.registerNodeGauge("ingest_pipeline_processor_total_time_seconds", "Ingestion total time in seconds", "pipeline", "processor");
+        catalog.registerNodeCounter("ingest_pipeline_processor_total_count", "Ingestion total number", "pipeline", "processor");
+        catalog.registerNodeCounter("ingest_pipeline_processor_total_time_seconds", "Ingestion total time in seconds", "pipeline", "processor");
         catalog.registerNodeGauge("ingest_pipeline_processor_total_current", "Ingestion total current", "pipeline", "processor");
-        catalog.registerNodeGauge("ingest_pipeline_processor_total_failed_count", "Ingestion total failed", "pipeline", "processor");
+        catalog.registerNodeCounter("ingest_pipeline_processor_total_failed_count", "Ingestion total failed", "pipeline", "processor");
     }
 
     @SuppressWarnings("checkstyle:LineLength")
-    private void updateIngestMetrics(Tuple<String, String> nodeInfo, IngestStats is) {
+    private void updateIngestMetrics(GaugeHandles node, IngestStats is) {
         if (is != null) {
-            catalog.setNodeGauge(nodeInfo, "ingest_total_count", is.getTotalStats().getCount());
-            catalog.setNodeGauge(nodeInfo, "ingest_total_time_seconds", is.getTotalStats().getTotalTimeInMillis() / 1000.0);
-            catalog.setNodeGauge(nodeInfo, "ingest_total_current", is.getTotalStats().getCurrent());
-            catalog.setNodeGauge(nodeInfo, "ingest_total_failed_count", is.getTotalStats().getFailedCount());
+            node.set("ingest_total_count", is.getTotalStats().getCount());
+            node.set("ingest_total_time_seconds", is.getTotalStats().getTotalTimeInMillis() / 1000.0);
+            node.set("ingest_total_current", is.getTotalStats().getCurrent());
+            node.set("ingest_total_failed_count", is.getTotalStats().getFailedCount());
 
             for (IngestStats.PipelineStat st : is.getPipelineStats()) {
                 String pipeline = st.getPipelineId();
-                catalog.setNodeGauge(nodeInfo, "ingest_pipeline_total_count", st.getStats().getCount(), pipeline);
-                catalog.setNodeGauge(nodeInfo, "ingest_pipeline_total_time_seconds", st.getStats().getTotalTimeInMillis() / 1000.0, pipeline);
-                catalog.setNodeGauge(nodeInfo, "ingest_pipeline_total_current", st.getStats().getCurrent(), pipeline);
-                catalog.setNodeGauge(nodeInfo, "ingest_pipeline_total_failed_count", st.getStats().getFailedCount(), pipeline);
+                node.set("ingest_pipeline_total_count", st.getStats().getCount(), pipeline);
+                node.set("ingest_pipeline_total_time_seconds", st.getStats().getTotalTimeInMillis() / 1000.0, pipeline);
+                node.set("ingest_pipeline_total_current", st.getStats().getCurrent(), pipeline);
+                node.set("ingest_pipeline_total_failed_count", st.getStats().getFailedCount(), pipeline);
 
                 List<IngestStats.ProcessorStat> pss = is.getProcessorStats().get(pipeline);
                 if (pss != null) {
                     for (IngestStats.ProcessorStat ps : pss) {
                         String processor = ps.getName();
-                        catalog.setNodeGauge(nodeInfo, "ingest_pipeline_processor_total_count", ps.getStats().getCount(), pipeline, processor);
-                        catalog.setNodeGauge(nodeInfo, "ingest_pipeline_processor_total_time_seconds", ps.getStats().getTotalTimeInMillis() / 1000.0, pipeline, processor);
-                        catalog.setNodeGauge(nodeInfo, "ingest_pipeline_processor_total_current", ps.getStats().getCurrent(), pipeline, processor);
-                        catalog.setNodeGauge(nodeInfo, "ingest_pipeline_processor_total_failed_count", ps.getStats().getFailedCount(), pipeline, processor);
+                        node.set("ingest_pipeline_processor_total_count", ps.getStats().getCount(), pipeline, processor);
+                        node.set("ingest_pipeline_processor_total_time_seconds", ps.getStats().getTotalTimeInMillis() / 1000.0, pipeline, processor);
+                        node.set("ingest_pipeline_processor_total_current", ps.getStats().getCurrent(), pipeline, processor);
+                        node.set("ingest_pipeline_processor_total_failed_count", ps.getStats().getFailedCount(), pipeline, processor);
                     }
                 }
             }
@@ -669,36 +1004,36 @@ public class PrometheusMetricsCollector {
         catalog.registerNodeGauge("circuitbreaker_estimated_bytes", "Circuit breaker estimated size", "name");
         catalog.registerNodeGauge("circuitbreaker_limit_bytes", "Circuit breaker size limit", "name");
         catalog.registerNodeGauge("circuitbreaker_overhead_ratio", "Circuit breaker overhead ratio", "name");
-        catalog.registerNodeGauge("circuitbreaker_tripped_count", "Circuit breaker tripped count", "name");
+        catalog.registerNodeCounter("circuitbreaker_tripped_count", "Circuit breaker tripped count", "name");
     }
 
-    private void updateCircuitBreakersMetrics(Tuple<String, String> nodeInfo, AllCircuitBreakerStats acbs) {
+    private void updateCircuitBreakersMetrics(GaugeHandles node, AllCircuitBreakerStats acbs) {
         if (acbs != null) {
             for (CircuitBreakerStats cbs : acbs.getAllStats()) {
                 String name = cbs.getName();
-                catalog.setNodeGauge(nodeInfo, "circuitbreaker_estimated_bytes", cbs.getEstimated(), name);
-                catalog.setNodeGauge(nodeInfo, "circuitbreaker_limit_bytes", cbs.getLimit(), name);
-                catalog.setNodeGauge(nodeInfo, "circuitbreaker_overhead_ratio", cbs.getOverhead(), name);
-                catalog.setNodeGauge(nodeInfo, "circuitbreaker_tripped_count", cbs.getTrippedCount(), name);
+                node.set("circuitbreaker_estimated_bytes", cbs.getEstimated(), name);
+                node.set("circuitbreaker_limit_bytes", cbs.getLimit(), name);
+                node.set("circuitbreaker_overhead_ratio", cbs.getOverhead(), name);
+                node.set("circuitbreaker_tripped_count", cbs.getTrippedCount(), name);
             }
         }
     }
 
     private void registerScriptMetrics() {
-        catalog.registerNodeGauge("script_cache_evictions_count", "Number of evictions in scripts cache");
-        catalog.registerNodeGauge("script_compilations_count", "Number of scripts compilations");
+        catalog.registerNodeCounter("script_cache_evictions_count", "Number of evictions in scripts cache");
+        catalog.registerNodeCounter("script_compilations_count", "Number of scripts compilations");
     }
 
-    private void updateScriptMetrics(Tuple<String, String> nodeInfo, ScriptStats sc) {
+    private void updateScriptMetrics(GaugeHandles node, ScriptStats sc) {
         if (sc != null) {
-            catalog.setNodeGauge(nodeInfo, "script_cache_evictions_count", sc.getCacheEvictions());
-            catalog.setNodeGauge(nodeInfo, "script_compilations_count", sc.getCompilations());
+            node.set("script_cache_evictions_count", sc.getCacheEvictions());
+            node.set("script_compilations_count", sc.getCompilations());
         }
     }
 
     private void registerProcessMetrics() {
         catalog.registerNodeGauge("process_cpu_percent", "CPU percentage used by ES process");
-        catalog.registerNodeGauge("process_cpu_time_seconds", "CPU time used by ES process");
+        catalog.registerNodeCounter("process_cpu_time_seconds", "CPU time used by ES process");
 
         catalog.registerNodeGauge("process_mem_total_virtual_bytes", "Memory used by ES process");
 
@@ -706,15 +1041,15 @@ public class PrometheusMetricsCollector {
         catalog.registerNodeGauge("process_file_descriptors_max_number", "Max file descriptors");
     }
 
-    private void updateProcessMetrics(Tuple<String, String> nodeInfo, ProcessStats ps) {
+    private void updateProcessMetrics(GaugeHandles node, ProcessStats ps) {
         if (ps != null) {
-            catalog.setNodeGauge(nodeInfo, "process_cpu_percent", ps.getCpu().getPercent());
-            catalog.setNodeGauge(nodeInfo, "process_cpu_time_seconds", ps.getCpu().getTotal().getSeconds());
+            node.set("process_cpu_percent", ps.getCpu().getPercent());
+            node.set("process_cpu_time_seconds", ps.getCpu().getTotal().getSeconds());
 
-            catalog.setNodeGauge(nodeInfo, "process_mem_total_virtual_bytes", ps.getMem().getTotalVirtual().getBytes());
+            node.set("process_mem_total_virtual_bytes", ps.getMem().getTotalVirtual().getBytes());
 
-            catalog.setNodeGauge(nodeInfo, "process_file_descriptors_open_number", ps.getOpenFileDescriptors());
-            catalog.setNodeGauge(nodeInfo, "process_file_descriptors_max_number", ps.getMaxFileDescriptors());
+            node.set("process_file_descriptors_open_number", ps.getOpenFileDescriptors());
+            node.set("process_file_descriptors_max_number", ps.getMaxFileDescriptors());
         }
     }
 
@@ -735,8 +1070,8 @@ public class PrometheusMetricsCollector {
         catalog.registerNodeGauge("jvm_threads_number", "Number of threads");
         catalog.registerNodeGauge("jvm_threads_peak_number", "Peak number of threads");
 
-        catalog.registerNodeGauge("jvm_gc_collection_count", "Count of GC collections", "gc");
-        catalog.registerNodeGauge("jvm_gc_collection_time_seconds", "Time spent for GC collections", "gc");
+        catalog.registerNodeCounter("jvm_gc_collection_count", "Count of GC collections", "gc");
+        catalog.registerNodeCounter("jvm_gc_collection_time_seconds", "Time spent for GC collections", "gc");
 
         catalog.registerNodeGauge("jvm_bufferpool_number", "Number of buffer pools", "bufferpool");
         catalog.registerNodeGauge("jvm_bufferpool_total_capacity_bytes", "Total capacity provided by buffer pools",
@@ -744,48 +1079,48 @@ public class PrometheusMetricsCollector {
         catalog.registerNodeGauge("jvm_bufferpool_used_bytes", "Used memory in buffer pools", "bufferpool");
 
         catalog.registerNodeGauge("jvm_classes_loaded_number", "Count of loaded classes");
-        catalog.registerNodeGauge("jvm_classes_total_loaded_number", "Total count of loaded classes");
-        catalog.registerNodeGauge("jvm_classes_unloaded_number", "Count of unloaded classes");
+        catalog.registerNodeCounter("jvm_classes_total_loaded_number", "Total count of loaded classes");
+        catalog.registerNodeCounter("jvm_classes_unloaded_number", "Count of unloaded classes");
     }
 
-    private void updateJVMMetrics(Tuple<String, String> nodeInfo, JvmStats jvm) {
+    private void updateJVMMetrics(GaugeHandles node, JvmStats jvm) {
         if (jvm != null) {
-            catalog.setNodeGauge(nodeInfo, "jvm_uptime_seconds", jvm.getUptime().getSeconds());
+            node.set("jvm_uptime_seconds", jvm.getUptime().getSeconds());
 
-            catalog.setNodeGauge(nodeInfo, "jvm_mem_heap_max_bytes", jvm.getMem().getHeapMax().getBytes());
-            catalog.setNodeGauge(nodeInfo, "jvm_mem_heap_used_bytes", jvm.getMem().getHeapUsed().getBytes());
-            catalog.setNodeGauge(nodeInfo, "jvm_mem_heap_used_percent", jvm.getMem().getHeapUsedPercent());
-            catalog.setNodeGauge(nodeInfo, "jvm_mem_nonheap_used_bytes", jvm.getMem().getNonHeapUsed().getBytes());
-            catalog.setNodeGauge(nodeInfo, "jvm_mem_heap_committed_bytes", jvm.getMem().getHeapCommitted().getBytes());
-            catalog.setNodeGauge(nodeInfo, "jvm_mem_nonheap_committed_bytes", jvm.getMem().getNonHeapCommitted().getBytes());
+            node.set("jvm_mem_heap_max_bytes", jvm.getMem().getHeapMax().getBytes());
+            node.set("jvm_mem_heap_used_bytes", jvm.getMem().getHeapUsed().getBytes());
+            node.set("jvm_mem_heap_used_percent", jvm.getMem().getHeapUsedPercent());
+            node.set("jvm_mem_nonheap_used_bytes", jvm.getMem().getNonHeapUsed().getBytes());
+            node.set("jvm_mem_heap_committed_bytes", jvm.getMem().getHeapCommitted().getBytes());
+            node.set("jvm_mem_nonheap_committed_bytes", jvm.getMem().getNonHeapCommitted().getBytes());
 
             for (JvmStats.MemoryPool mp : jvm.getMem()) {
                 String name = mp.getName();
-                catalog.setNodeGauge(nodeInfo, "jvm_mem_pool_max_bytes", mp.getMax().getBytes(), name);
-                catalog.setNodeGauge(nodeInfo, "jvm_mem_pool_peak_max_bytes", mp.getPeakMax().getBytes(), name);
-                catalog.setNodeGauge(nodeInfo, "jvm_mem_pool_used_bytes", mp.getUsed().getBytes(), name);
-                catalog.setNodeGauge(nodeInfo, "jvm_mem_pool_peak_used_bytes", mp.getPeakUsed().getBytes(), name);
+                node.set("jvm_mem_pool_max_bytes", mp.getMax().getBytes(), name);
+                node.set("jvm_mem_pool_peak_max_bytes", mp.getPeakMax().getBytes(), name);
+                node.set("jvm_mem_pool_used_bytes", mp.getUsed().getBytes(), name);
+                node.set("jvm_mem_pool_peak_used_bytes", mp.getPeakUsed().getBytes(), name);
             }
 
-            catalog.setNodeGauge(nodeInfo, "jvm_threads_number", jvm.getThreads().getCount());
-            catalog.setNodeGauge(nodeInfo, "jvm_threads_peak_number", jvm.getThreads().getPeakCount());
+            node.set("jvm_threads_number", jvm.getThreads().getCount());
+            node.set("jvm_threads_peak_number", jvm.getThreads().getPeakCount());
 
             for (JvmStats.GarbageCollector gc : jvm.getGc().getCollectors()) {
                 String name = gc.getName();
-                catalog.setNodeGauge(nodeInfo, "jvm_gc_collection_count", gc.getCollectionCount(), name);
-                catalog.setNodeGauge(nodeInfo, "jvm_gc_collection_time_seconds", gc.getCollectionTime().getSeconds(), name);
+                node.set("jvm_gc_collection_count", gc.getCollectionCount(), name);
+                node.set("jvm_gc_collection_time_seconds", gc.getCollectionTime().getSeconds(), name);
             }
 
             for (JvmStats.BufferPool bp : jvm.getBufferPools()) {
                 String name = bp.getName();
-                catalog.setNodeGauge(nodeInfo, "jvm_bufferpool_number", bp.getCount(), name);
-                catalog.setNodeGauge(nodeInfo, "jvm_bufferpool_total_capacity_bytes", bp.getTotalCapacity().getBytes(), name);
-                catalog.setNodeGauge(nodeInfo, "jvm_bufferpool_used_bytes", bp.getUsed().getBytes(), name);
+                node.set("jvm_bufferpool_number", bp.getCount(), name);
+                node.set("jvm_bufferpool_total_capacity_bytes", bp.getTotalCapacity().getBytes(), name);
+                node.set("jvm_bufferpool_used_bytes", bp.getUsed().getBytes(), name);
             }
             if (jvm.getClasses() != null) {
-                catalog.setNodeGauge(nodeInfo, "jvm_classes_loaded_number", jvm.getClasses().getLoadedClassCount());
-                catalog.setNodeGauge(nodeInfo, "jvm_classes_total_loaded_number", jvm.getClasses().getTotalLoadedClassCount());
-                catalog.setNodeGauge(nodeInfo, "jvm_classes_unloaded_number", jvm.getClasses().getUnloadedClassCount());
+                node.set("jvm_classes_loaded_number", jvm.getClasses().getLoadedClassCount());
+                node.set("jvm_classes_total_loaded_number", jvm.getClasses().getTotalLoadedClassCount());
+                node.set("jvm_classes_unloaded_number", jvm.getClasses().getUnloadedClassCount());
             }
         }
     }
@@ -808,30 +1143,30 @@ public class PrometheusMetricsCollector {
         catalog.registerNodeGauge("os_swap_total_bytes", "Total swap size");
     }
 
-    private void updateOsMetrics(Tuple<String, String> nodeInfo, OsStats os) {
+    private void updateOsMetrics(GaugeHandles node, OsStats os) {
         if (os != null) {
             if (os.getCpu() != null) {
-                catalog.setNodeGauge(nodeInfo, "os_cpu_percent", os.getCpu().getPercent());
+                node.set("os_cpu_percent", os.getCpu().getPercent());
                 double[] loadAverage = os.getCpu().getLoadAverage();
                 if (loadAverage != null && loadAverage.length == 3) {
-                    catalog.setNodeGauge(nodeInfo, "os_load_average_one_minute", os.getCpu().getLoadAverage()[0]);
-                    catalog.setNodeGauge(nodeInfo, "os_load_average_five_minutes", os.getCpu().getLoadAverage()[1]);
-                    catalog.setNodeGauge(nodeInfo, "os_load_average_fifteen_minutes", os.getCpu().getLoadAverage()[2]);
+                    node.set("os_load_average_one_minute", os.getCpu().getLoadAverage()[0]);
+                    node.set("os_load_average_five_minutes", os.getCpu().getLoadAverage()[1]);
+                    node.set("os_load_average_fifteen_minutes", os.getCpu().getLoadAverage()[2]);
                 }
             }
 
             if (os.getMem() != null) {
-                catalog.setNodeGauge(nodeInfo, "os_mem_free_bytes", os.getMem().getFree().getBytes());
-                catalog.setNodeGauge(nodeInfo, "os_mem_free_percent", os.getMem().getFreePercent());
-                catalog.setNodeGauge(nodeInfo, "os_mem_used_bytes", os.getMem().getUsed().getBytes());
-                catalog.setNodeGauge(nodeInfo, "os_mem_used_percent", os.getMem().getUsedPercent());
-                catalog.setNodeGauge(nodeInfo, "os_mem_total_bytes", os.getMem().getTotal().getBytes());
+                node.set("os_mem_free_bytes", os.getMem().getFree().getBytes());
+                node.set("os_mem_free_percent", os.getMem().getFreePercent());
+                node.set("os_mem_used_bytes", os.getMem().getUsed().getBytes());
+                node.set("os_mem_used_percent", os.getMem().getUsedPercent());
+                node.set("os_mem_total_bytes", os.getMem().getTotal().getBytes());
             }
 
             if (os.getSwap() != null) {
-                catalog.setNodeGauge(nodeInfo, "os_swap_free_bytes", os.getSwap().getFree().getBytes());
-                catalog.setNodeGauge(nodeInfo, "os_swap_used_bytes", os.getSwap().getUsed().getBytes());
-                catalog.setNodeGauge(nodeInfo, "os_swap_total_bytes", os.getSwap().getTotal().getBytes());
+                node.set("os_swap_free_bytes", os.getSwap().getFree().getBytes());
+                node.set("os_swap_used_bytes", os.getSwap().getUsed().getBytes());
+                node.set("os_swap_total_bytes", os.getSwap().getTotal().getBytes());
             }
         }
     }
@@ -845,35 +1180,35 @@ public class PrometheusMetricsCollector {
         catalog.registerNodeGauge("fs_path_available_bytes", "Available disk space", "path", "mount", "type");
         catalog.registerNodeGauge("fs_path_free_bytes", "Free disk space", "path", "mount", "type");
 
-        catalog.registerNodeGauge("fs_io_total_operations", "Total IO operations");
-        catalog.registerNodeGauge("fs_io_total_read_operations", "Total IO read operations");
-        catalog.registerNodeGauge("fs_io_total_write_operations", "Total IO write operations");
-        catalog.registerNodeGauge("fs_io_total_read_bytes", "Total IO read bytes");
-        catalog.registerNodeGauge("fs_io_total_write_bytes", "Total IO write bytes");
+        catalog.registerNodeCounter("fs_io_total_operations", "Total IO operations");
+        catalog.registerNodeCounter("fs_io_total_read_operations", "Total IO read operations");
+        catalog.registerNodeCounter("fs_io_total_write_operations", "Total IO write operations");
+        catalog.registerNodeCounter("fs_io_total_read_bytes", "Total IO read bytes");
+        catalog.registerNodeCounter("fs_io_total_write_bytes", "Total IO write bytes");
     }
 
-    private void updateFsMetrics(Tuple<String, String> nodeInfo, FsInfo fs) {
+    private void updateFsMetrics(GaugeHandles node, FsInfo fs) {
         if (fs != null) {
-            catalog.setNodeGauge(nodeInfo, "fs_total_total_bytes", fs.getTotal().getTotal().getBytes());
-            catalog.setNodeGauge(nodeInfo, "fs_total_available_bytes", fs.getTotal().getAvailable().getBytes());
-            catalog.setNodeGauge(nodeInfo, "fs_total_free_bytes", fs.getTotal().getFree().getBytes());
+            node.set("fs_total_total_bytes", fs.getTotal().getTotal().getBytes());
+            node.set("fs_total_available_bytes", fs.getTotal().getAvailable().getBytes());
+            node.set("fs_total_free_bytes", fs.getTotal().getFree().getBytes());
 
             for (FsInfo.Path fspath : fs) {
                 String path = fspath.getPath();
                 String mount = fspath.getMount();
                 String type = fspath.getType();
-                catalog.setNodeGauge(nodeInfo, "fs_path_total_bytes", fspath.getTotal().getBytes(), path, mount, type);
-                catalog.setNodeGauge(nodeInfo, "fs_path_available_bytes", fspath.getAvailable().getBytes(), path, mount, type);
-                catalog.setNodeGauge(nodeInfo, "fs_path_free_bytes", fspath.getFree().getBytes(), path, mount, type);
+                node.set("fs_path_total_bytes", fspath.getTotal().getBytes(), path, mount, type);
+                node.set("fs_path_available_bytes", fspath.getAvailable().getBytes(), path, mount, type);
+                node.set("fs_path_free_bytes", fspath.getFree().getBytes(), path, mount, type);
             }
 
             FsInfo.IoStats ioStats = fs.getIoStats();
             if (ioStats != null) {
-                catalog.setNodeGauge(nodeInfo, "fs_io_total_operations", fs.getIoStats().getTotalOperations());
-                catalog.setNodeGauge(nodeInfo, "fs_io_total_read_operations", fs.getIoStats().getTotalReadOperations());
-                catalog.setNodeGauge(nodeInfo, "fs_io_total_write_operations", fs.getIoStats().getTotalWriteOperations());
-                catalog.setNodeGauge(nodeInfo, "fs_io_total_read_bytes", fs.getIoStats().getTotalReadKilobytes() * 1024);
-                catalog.setNodeGauge(nodeInfo, "fs_io_total_write_bytes", fs.getIoStats().getTotalWriteKilobytes() * 1024);
+                node.set("fs_io_total_operations", fs.getIoStats().getTotalOperations());
+                node.set("fs_io_total_read_operations", fs.getIoStats().getTotalReadOperations());
+                node.set("fs_io_total_write_operations", fs.getIoStats().getTotalWriteOperations());
+                node.set("fs_io_total_read_bytes", fs.getIoStats().getTotalReadKilobytes() * 1024);
+                node.set("fs_io_total_write_bytes", fs.getIoStats().getTotalWriteKilobytes() * 1024);
             }
         }
     }
@@ -909,57 +1244,183 @@ public class PrometheusMetricsCollector {
         }
     }
 
+    /**
+     * @return Names of the nodes stats sections read by {@link #updateMetrics}, to be requested instead of all
+     * the sections (e.g. discovery, adaptive selection or indexing pressure are never exported)
+     */
+    public static String[] nodeStatsMetrics() {
+        return nodeStatsMetrics(EnumSet.allOf(MetricGroup.class));
+    }
+
+    /**
+     * @param groups Metric groups to collect
+     * @return Names of the nodes stats sections read by {@link #updateMetrics} for the given groups
+     */
+    public static String[] nodeStatsMetrics(Set<MetricGroup> groups) {
+        List<String> metrics = new ArrayList<>();
+        for (MetricGroup group : groups) {
+            NodesStatsRequest.Metric metric = nodeStatsMetric(group);
+            if (metric != null) {
+                metrics.add(metric.metricName());
+            }
+        }
+        return metrics.toArray(new String[0]);
+    }
+
+    @Nullable
+    private static NodesStatsRequest.Metric nodeStatsMetric(MetricGroup group) {
+        switch (group) {
+            case OS: return NodesStatsRequest.Metric.OS;
+            case PROCESS: return NodesStatsRequest.Metric.PROCESS;
+            case JVM: return NodesStatsRequest.Metric.JVM;
+            case THREADPOOL: return NodesStatsRequest.Metric.THREAD_POOL;
+            case FS: return NodesStatsRequest.Metric.FS;
+            case TRANSPORT: return NodesStatsRequest.Metric.TRANSPORT;
+            case HTTP: return NodesStatsRequest.Metric.HTTP;
+            case CIRCUITBREAKER: return NodesStatsRequest.Metric.BREAKER;
+            case SCRIPT: return NodesStatsRequest.Metric.SCRIPT;
+            case INGEST: return NodesStatsRequest.Metric.INGEST;
+            default: return null;
+        }
+    }
+
+    /**
+     * @return Flags of the node level indices stats read by {@link #updateMetrics}
+     */
+    public static CommonStatsFlags nodeIndicesStatsFlags() {
+        return new CommonStatsFlags(
+                CommonStatsFlags.Flag.Docs,
+                CommonStatsFlags.Flag.Store,
+                CommonStatsFlags.Flag.Indexing,
+                CommonStatsFlags.Flag.Get,
+                CommonStatsFlags.Flag.Search,
+                CommonStatsFlags.Flag.Merge,
+                CommonStatsFlags.Flag.Refresh,
+                CommonStatsFlags.Flag.Flush,
+                CommonStatsFlags.Flag.QueryCache,
+                CommonStatsFlags.Flag.FieldData,
+                CommonStatsFlags.Flag.Completion,
+                CommonStatsFlags.Flag.Segments,
+                CommonStatsFlags.Flag.RequestCache,
+                CommonStatsFlags.Flag.Recovery);
+    }
+
+    /**
+     * @return Flags of the per index stats read by {@link #updateMetrics}, stats that are not exported (including
+     * the ones added by future OpenSearch versions) are not requested
+     */
+    public static CommonStatsFlags indexStatsFlags() {
+        return nodeIndicesStatsFlags().set(CommonStatsFlags.Flag.Translog, true).set(CommonStatsFlags.Flag.Warmer, true);
+    }
+
     /**
      * Update all collected metrics from relevant response data.
      *
      * Metrics gathering requests were originated on one particular node called "originating" node.
+     * Series that were present in the previous update but are not part of this one are retired.
+     * Node level metrics of some nodes may come as snapshots rendered by the nodes themselves
+     * ({@link NodePrometheusMetricsResponse#getNodeSnapshots()}) and index level stats of some indices may come
+     * from earlier collections ({@link NodePrometheusMetricsResponse#getIndexStatsTimestamps()}).
      *
-     * @param originNodeName            Originating node name.
-     * @param originNodeId              Originating node ID.
-     * @param clusterHealthResponse     ClusterHealthResponse
-     * @param nodeStats                 NodeStats filtered using nodes filter
-     * @param indicesStats              IndicesStatsResponse
-     * @param clusterStatsData          ClusterStatsData
+     * @param response The collected responses, sections missing from it are left out
      */
-    public void updateMetrics(String originNodeName, String originNodeId,
-                              @Nullable ClusterHealthResponse clusterHealthResponse,
-                              NodeStats[] nodeStats,
-                              @Nullable IndicesStatsResponse indicesStats,
-                              @Nullable ClusterStatsData clusterStatsData) {
+    public void updateMetrics(NodePrometheusMetricsResponse response) {
+        String originNodeName = response.getNodeName();
+        String originNodeId = response.getNodeId();
+        ClusterHealthResponse clusterHealthResponse = response.getClusterHealth();
+        NodeStats[] nodeStats = response.getNodeStats();
+        IndicesStatsResponse indicesStats = response.getIndicesStats();
+        ClusterStatsData clusterStatsData = response.getClusterStatsData();
+        MetricsSnapshot[] nodeSnapshots = response.getNodeSnapshots();
+        SectionResults sectionResults = response.getSectionResults();
+        Map<String, Long> indexStatsTimestamps = response.getIndexStatsTimestamps();
+        // read the state of prometheus dynamic settings only once per update
+        boolean isPrometheusIndices = prometheusSettings.getPrometheusIndices();
+        boolean isPrometheusClusterSettings = prometheusSettings.getPrometheusClusterSettings();
+
         Summary.Timer timer = catalog.startSummaryTimer(
                 new Tuple<>(originNodeName, originNodeId),
                 "metrics_generate_time_seconds");
 
+        catalog.startScrape();
+        updates++;
+        if (nodeSnapshots != null) {
+            for (MetricsSnapshot snapshot : nodeSnapshots) {
+                catalog.merge(snapshot);
+            }
+        }
+
         updateClusterMetrics(clusterHealthResponse);
         for (NodeStats s : nodeStats) {
             // For each node we create specific context and pass it to all metrics
-            String nodeName = s.getNode().getName();
-            String nodeID = s.getNode().getId();
-            Tuple<String, String> nodeInfo = new Tuple<>(nodeName, nodeID);
-
-            updateNodeMetrics(nodeInfo, s);
-            updateIndicesMetrics(nodeInfo, s.getIndices());
-            updateTransportMetrics(nodeInfo, s.getTransport());
-            updateHTTPMetrics(nodeInfo, s.getHttp());
-            updateThreadPoolMetrics(nodeInfo, s.getThreadPool());
-            updateIngestMetrics(nodeInfo, s.getIngestStats());
-            updateCircuitBreakersMetrics(nodeInfo, s.getBreaker());
-            updateScriptMetrics(nodeInfo, s.getScriptStats());
-            updateProcessMetrics(nodeInfo, s.getProcess());
-            updateJVMMetrics(nodeInfo, s.getJvm());
-            updateOsMetrics(nodeInfo, s.getOs());
-            updateFsMetrics(nodeInfo, s.getFs());
+            GaugeHandles node = nodeHandles(s.getNode().getName(), s.getNode().getId());
+
+            updateNodeMetrics(node, s);
+            updateIndicesMetrics(node, s.getIndices());
+            updateTransportMetrics(node, s.getTransport());
+            updateHTTPMetrics(node, s.getHttp());
+            updateThreadPoolMetrics(node, s.getThreadPool());
+            updateIngestMetrics(node, s.getIngestStats());
+            updateCircuitBreakersMetrics(node, s.getBreaker());
+            updateScriptMetrics(node, s.getScriptStats());
+            updateProcessMetrics(node, s.getProcess());
+            updateJVMMetrics(node, s.getJvm());
+            updateOsMetrics(node, s.getOs());
+            updateFsMetrics(node, s.getFs());
         }
         if (isPrometheusIndices) {
-            updatePerIndexMetrics(clusterHealthResponse, indicesStats);
+            updatePerIndexMetrics(clusterHealthResponse, indicesStats, indexStatsTimestamps);
         }
         if (isPrometheusClusterSettings) {
             updateESSettings(clusterStatsData);
         }
+        if (sectionResults != null || !exporterMetricsSources.isEmpty()) {
+            GaugeHandles origin = nodeHandles(originNodeName, originNodeId);
+            updateSectionMetrics(origin, sectionResults);
+            for (ExporterMetricsSource source : exporterMetricsSources) {
+                source.updateMetrics(origin);
+            }
+        }
+        catalog.finishScrape();
+        // Drop cached handles of nodes and indices that were not part of this update.
+        nodeHandles.values().removeIf(h -> h.update != updates);
+        indexHandles.values().removeIf(h -> h.update != updates);
+        indexGroupHandles.values().removeIf(h -> h.update != updates);
 
         timer.observeDuration();
     }
 
+    private void registerSectionMetrics() {
+        catalog.registerNodeGauge("exporter_collector_success",
+                "Whether the section of the last collection succeeded", "section");
+        catalog.registerNodeGauge("exporter_collector_duration_seconds",
+                "Time spent by the section of the last collection", "section");
+        catalog.registerNodeGauge("exporter_collector_failed_nodes",
+                "Number of nodes that failed to respond to the section of the last collection", "section");
+    }
+
+    private void updateSectionMetrics(GaugeHandles origin, @Nullable SectionResults sectionResults) {
+        if (sectionResults != null) {
+            for (int i = 0; i < sectionResults.size(); i++) {
+                String section = sectionResults.section(i);
+                origin.set("exporter_collector_success", sectionResults.success(i) ? 1 : 0, section);
+                origin.set("exporter_collector_duration_seconds",
+                        sectionResults.durationNanos(i) / 1e9, section);
+                origin.set("exporter_collector_failed_nodes", sectionResults.failedNodes(i), section);
+            }
+        }
+    }
+
+    private GaugeHandles nodeHandles(String nodeName, String nodeID) {
+        NodeHandles handles = nodeHandles.get(nodeID);
+        if (handles == null || !handles.nodeName.equals(nodeName)) {
+            handles = new NodeHandles(nodeName, catalog.nodeGaugeHandles(new Tuple<>(nodeName, nodeID)));
+            nodeHandles.put(nodeID, handles);
+        }
+        handles.update = updates;
+        return handles.node;
+    }
+
     /**
      * Get the metric catalog.
      * @return The catalog
@@ -976,4 +1437,44 @@ public class PrometheusMetricsCollector {
     public String getTextContent() throws IOException {
         return this.catalog.toTextFormat();
     }
+
+    /**
+     * @see PrometheusMetricsCatalog#writeTextFormat(OutputStream)
+     * @param out Output stream receiving the text representation of the catalog
+     * @throws IOException If writing to the output stream fails
+     */
+    public void writeTextContent(OutputStream out) throws IOException {
+        this.catalog.writeTextFormat(out);
+    }
+
+    /**
+     * @see PrometheusMetricsCatalog#write(ExpositionFormat, OutputStream)
+     * @param format Exposition format
+     * @param out Output stream receiving the representation of the catalog
+     * @throws IOException If writing to the output stream fails
+     */
+    public void writeContent(ExpositionFormat format, OutputStream out) throws IOException {
+        this.catalog.write(format, out);
+    }
+
+    /**
+     * @see PrometheusMetricsCatalog#write(ExpositionFormat, OutputStream, Set)
+     * @param format Exposition format
+     * @param out Output stream receiving the representation of the catalog
+     * @param groups Metric groups to write or {@code null} to write all the metrics
+     * @throws IOException If writing to the output stream fails
+     */
+    public void writeContent(ExpositionFormat format, OutputStream out, @Nullable Set<MetricGroup> groups)
+            throws IOException {
+        this.catalog.write(format, out, groups);
+    }
+
+    /**
+     * @see PrometheusMetricsCatalog#snapshot()
+     * @return Snapshot of the catalog
+     * @throws IOException If copying the metrics fails
+     */
+    public MetricsSnapshot snapshot() throws IOException {
+        return this.catalog.snapshot();
+    }
 }
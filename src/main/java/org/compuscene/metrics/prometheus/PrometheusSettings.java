@@ -22,6 +22,11 @@ import org.opensearch.core.common.Strings;
 import org.opensearch.common.settings.ClusterSettings;
 import org.opensearch.common.settings.Setting;
 import org.opensearch.common.settings.Settings;
+import org.opensearch.common.unit.TimeValue;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
 
 /**
  * Dynamically updatable Prometheus exporter settings.
@@ -47,11 +52,27 @@ public class PrometheusSettings {
         LENIENT_EXPAND_OPEN_CLOSED_HIDDEN
     }
 
+    /**
+     * Index stats the indices are ranked by when their number is limited, see {@link #PROMETHEUS_INDICES_TOP_N}.
+     */
+    public enum INDEX_RANK_BY {
+        STORE_SIZE,
+        INDEXING_RATE,
+        QUERY_RATE
+    }
+
     static String PROMETHEUS_CLUSTER_SETTINGS_KEY = "prometheus.cluster.settings";
     static String PROMETHEUS_INDICES_KEY = "prometheus.indices";
     static String PROMETHEUS_NODES_FILTER_KEY = "prometheus.nodes.filter";
     static String PROMETHEUS_SELECTED_INDICES_KEY = "prometheus.indices_filter.selected_indices";
     static String PROMETHEUS_SELECTED_OPTION_KEY = "prometheus.indices_filter.selected_option";
+    static String PROMETHEUS_CACHE_TTL_KEY = "prometheus.cache.ttl";
+    static String PROMETHEUS_INDICES_TOP_N_KEY = "prometheus.indices_limit.top_n";
+    static String PROMETHEUS_INDICES_RANK_BY_KEY = "prometheus.indices_limit.rank_by";
+    static String PROMETHEUS_INDICES_ROLLUP_GROUPS_KEY = "prometheus.indices_rollup.groups";
+    static String PROMETHEUS_INDICES_ROLLUP_PER_INDEX_KEY = "prometheus.indices_rollup.per_index";
+    static String PROMETHEUS_METRIC_GROUPS_KEY = "prometheus.metric_groups";
+    static String PROMETHEUS_INDICES_BATCHES_KEY = "prometheus.indices_incremental.batches";
 
     /**
      * This setting is used configure weather to expose cluster settings metrics or not. The default value is true.
@@ -95,11 +116,90 @@ public class PrometheusSettings {
                     String.valueOf(INDEX_FILTER_OPTIONS.STRICT_EXPAND_OPEN_FORBID_CLOSED),
                     INDEX_FILTER_OPTIONS::valueOf, Setting.Property.Dynamic, Setting.Property.NodeScope);
 
+    /**
+     * This setting is used configure for how long rendered metrics responses are cached and served again
+     * on each node. The default value is 0 which disables the cache.
+     * Can be configured in opensearch.yml file or update dynamically under key {@link #PROMETHEUS_CACHE_TTL_KEY}.
+     */
+    public static final Setting<TimeValue> PROMETHEUS_CACHE_TTL =
+            Setting.positiveTimeSetting(PROMETHEUS_CACHE_TTL_KEY, TimeValue.ZERO,
+                    Setting.Property.Dynamic, Setting.Property.NodeScope);
+
+    /**
+     * This setting is used configure how many indices get their own index level metrics, the top indices ranked by
+     * {@link #PROMETHEUS_INDICES_RANK_BY}. All the other indices are folded into the index group {@code _other}.
+     * The default value is 0 which exports all indices.
+     * Can be configured in opensearch.yml file or update dynamically under key {@link #PROMETHEUS_INDICES_TOP_N_KEY}.
+     */
+    public static final Setting<Integer> PROMETHEUS_INDICES_TOP_N =
+            Setting.intSetting(PROMETHEUS_INDICES_TOP_N_KEY, 0, 0,
+                    Setting.Property.Dynamic, Setting.Property.NodeScope);
+
+    /**
+     * This setting is used configure which index stats the indices are ranked by when their number is limited.
+     * The default value is STORE_SIZE.
+     * Can be configured in opensearch.yml file or update dynamically under key {@link #PROMETHEUS_INDICES_RANK_BY_KEY}.
+     */
+    public static final Setting<INDEX_RANK_BY> PROMETHEUS_INDICES_RANK_BY =
+            new Setting<>(PROMETHEUS_INDICES_RANK_BY_KEY,
+                    String.valueOf(INDEX_RANK_BY.STORE_SIZE),
+                    INDEX_RANK_BY::valueOf, Setting.Property.Dynamic, Setting.Property.NodeScope);
+
+    /**
+     * This setting is used configure rules rolling indices up into index groups, see {@link IndexGroups}. Index level
+     * metrics of each group are aggregated and exported with label {@code index_group}. The default value is
+     * an empty list which disables index groups.
+     * Can be configured in opensearch.yml file or update dynamically under key
+     * {@link #PROMETHEUS_INDICES_ROLLUP_GROUPS_KEY}.
+     */
+    public static final Setting<List<String>> PROMETHEUS_INDICES_ROLLUP_GROUPS =
+            Setting.listSetting(PROMETHEUS_INDICES_ROLLUP_GROUPS_KEY, Collections.emptyList(),
+                    IndexGroups::validateRule, Setting.Property.Dynamic, Setting.Property.NodeScope);
+
+    /**
+     * This setting is used configure weather to export index level metrics of individual indices along with
+     * the index groups. The default value is true.
+     * Can be configured in opensearch.yml file or update dynamically under key
+     * {@link #PROMETHEUS_INDICES_ROLLUP_PER_INDEX_KEY}.
+     */
+    public static final Setting<Boolean> PROMETHEUS_INDICES_ROLLUP_PER_INDEX =
+            Setting.boolSetting(PROMETHEUS_INDICES_ROLLUP_PER_INDEX_KEY, true,
+                    Setting.Property.Dynamic, Setting.Property.NodeScope);
+
+    /**
+     * This setting is used configure the metric groups (see {@link MetricGroup}) collected when the request does
+     * not select any with the {@code collect[]} parameter. The default value is all the groups. Groups of index level
+     * metrics and cluster settings are also subject to {@link #PROMETHEUS_INDICES} and
+     * {@link #PROMETHEUS_CLUSTER_SETTINGS}.
+     * Can be configured in opensearch.yml file or update dynamically under key {@link #PROMETHEUS_METRIC_GROUPS_KEY}.
+     */
+    public static final Setting<List<String>> PROMETHEUS_METRIC_GROUPS =
+            Setting.listSetting(PROMETHEUS_METRIC_GROUPS_KEY, MetricGroup.keys(), key -> MetricGroup.fromKey(key).key(),
+                    Setting.Property.Dynamic, Setting.Property.NodeScope);
+
+    /**
+     * This setting is used configure the number of batches the index level stats are collected in. Indices are
+     * assigned to batches by a stable hash of their name and each collection refreshes the stats of one batch only,
+     * the stats of the other indices are kept from the previous collections. The default value is 1 which collects
+     * the stats of all indices every time.
+     * Can be configured in opensearch.yml file or update dynamically under key {@link #PROMETHEUS_INDICES_BATCHES_KEY}.
+     */
+    public static final Setting<Integer> PROMETHEUS_INDICES_BATCHES =
+            Setting.intSetting(PROMETHEUS_INDICES_BATCHES_KEY, 1, 1,
+                    Setting.Property.Dynamic, Setting.Property.NodeScope);
+
     private volatile boolean clusterSettings;
     private volatile boolean indices;
     private volatile String nodesFilter;
     private volatile String selectedIndices;
     private volatile INDEX_FILTER_OPTIONS selectedOption;
+    private volatile TimeValue cacheTtl;
+    private volatile int indicesTopN;
+    private volatile INDEX_RANK_BY indicesRankBy;
+    private volatile IndexGroups indexGroups;
+    private volatile boolean perIndex;
+    private volatile Set<MetricGroup> metricGroups;
+    private volatile int indicesBatches;
 
     /**
      * A constructor.
@@ -112,11 +212,26 @@ public class PrometheusSettings {
         setPrometheusNodesFilter(PROMETHEUS_NODES_FILTER.get(settings));
         setPrometheusSelectedIndices(PROMETHEUS_SELECTED_INDICES.get(settings));
         setPrometheusSelectedOption(PROMETHEUS_SELECTED_OPTION.get(settings));
+        setPrometheusCacheTtl(PROMETHEUS_CACHE_TTL.get(settings));
+        setPrometheusIndicesTopN(PROMETHEUS_INDICES_TOP_N.get(settings));
+        setPrometheusIndicesRankBy(PROMETHEUS_INDICES_RANK_BY.get(settings));
+        setPrometheusIndicesRollupGroups(PROMETHEUS_INDICES_ROLLUP_GROUPS.get(settings));
+        setPrometheusIndicesRollupPerIndex(PROMETHEUS_INDICES_ROLLUP_PER_INDEX.get(settings));
+        setPrometheusMetricGroups(PROMETHEUS_METRIC_GROUPS.get(settings));
+        setPrometheusIndicesBatches(PROMETHEUS_INDICES_BATCHES.get(settings));
         clusterSettings.addSettingsUpdateConsumer(PROMETHEUS_CLUSTER_SETTINGS, this::setPrometheusClusterSettings);
         clusterSettings.addSettingsUpdateConsumer(PROMETHEUS_INDICES, this::setPrometheusIndices);
         clusterSettings.addSettingsUpdateConsumer(PROMETHEUS_NODES_FILTER, this::setPrometheusNodesFilter);
         clusterSettings.addSettingsUpdateConsumer(PROMETHEUS_SELECTED_INDICES, this::setPrometheusSelectedIndices);
         clusterSettings.addSettingsUpdateConsumer(PROMETHEUS_SELECTED_OPTION, this::setPrometheusSelectedOption);
+        clusterSettings.addSettingsUpdateConsumer(PROMETHEUS_CACHE_TTL, this::setPrometheusCacheTtl);
+        clusterSettings.addSettingsUpdateConsumer(PROMETHEUS_INDICES_TOP_N, this::setPrometheusIndicesTopN);
+        clusterSettings.addSettingsUpdateConsumer(PROMETHEUS_INDICES_RANK_BY, this::setPrometheusIndicesRankBy);
+        clusterSettings.addSettingsUpdateConsumer(PROMETHEUS_INDICES_ROLLUP_GROUPS, this::setPrometheusIndicesRollupGroups);
+        clusterSettings.addSettingsUpdateConsumer(PROMETHEUS_INDICES_ROLLUP_PER_INDEX,
+                this::setPrometheusIndicesRollupPerIndex);
+        clusterSettings.addSettingsUpdateConsumer(PROMETHEUS_METRIC_GROUPS, this::setPrometheusMetricGroups);
+        clusterSettings.addSettingsUpdateConsumer(PROMETHEUS_INDICES_BATCHES, this::setPrometheusIndicesBatches);
     }
 
     private void setPrometheusClusterSettings(boolean flag) {
@@ -137,6 +252,35 @@ public class PrometheusSettings {
         this.selectedOption = selectedOption;
     }
 
+    private void setPrometheusCacheTtl(TimeValue cacheTtl) {
+        this.cacheTtl = cacheTtl;
+    }
+
+    private void setPrometheusIndicesTopN(int indicesTopN) {
+        this.indicesTopN = indicesTopN;
+    }
+
+    private void setPrometheusIndicesRankBy(INDEX_RANK_BY indicesRankBy) {
+        this.indicesRankBy = indicesRankBy;
+    }
+
+    private void setPrometheusIndicesRollupGroups(List<String> rules) {
+        // The groups resolved by the previous rules are dropped along with their instance.
+        this.indexGroups = rules.isEmpty() ? IndexGroups.NONE : new IndexGroups(rules);
+    }
+
+    private void setPrometheusIndicesRollupPerIndex(boolean flag) {
+        this.perIndex = flag;
+    }
+
+    private void setPrometheusMetricGroups(List<String> keys) {
+        this.metricGroups = Collections.unmodifiableSet(MetricGroup.fromKeys(keys));
+    }
+
+    private void setPrometheusIndicesBatches(int indicesBatches) {
+        this.indicesBatches = indicesBatches;
+    }
+
     /**
      * Get value of settings key {@link #PROMETHEUS_CLUSTER_SETTINGS_KEY}.
      * @return boolean value of the key
@@ -167,6 +311,63 @@ public class PrometheusSettings {
         return Strings.splitStringByCommaToArray(this.selectedIndices);
     }
 
+    /**
+     * Get value of settings key {@link #PROMETHEUS_CACHE_TTL_KEY}.
+     * @return time value of the key
+     */
+    public TimeValue getCacheTtl() {
+        return this.cacheTtl;
+    }
+
+    /**
+     * Get value of settings key {@link #PROMETHEUS_INDICES_TOP_N_KEY}.
+     * @return int value of the key
+     */
+    public int getIndicesTopN() {
+        return this.indicesTopN;
+    }
+
+    /**
+     * Get value of settings key {@link #PROMETHEUS_INDICES_RANK_BY_KEY}.
+     * @return enum value of the key
+     */
+    public INDEX_RANK_BY getIndicesRankBy() {
+        return this.indicesRankBy;
+    }
+
+    /**
+     * Get parsed value of settings key {@link #PROMETHEUS_INDICES_ROLLUP_GROUPS_KEY}. A new instance is returned
+     * only when the setting changes.
+     * @return index groups of the key
+     */
+    public IndexGroups getIndexGroups() {
+        return this.indexGroups;
+    }
+
+    /**
+     * Get value of settings key {@link #PROMETHEUS_INDICES_ROLLUP_PER_INDEX_KEY}.
+     * @return boolean value of the key
+     */
+    public boolean getPrometheusIndicesRollupPerIndex() {
+        return this.perIndex;
+    }
+
+    /**
+     * Get parsed value of settings key {@link #PROMETHEUS_METRIC_GROUPS_KEY}.
+     * @return unmodifiable set of metric groups of the key
+     */
+    public Set<MetricGroup> getMetricGroups() {
+        return this.metricGroups;
+    }
+
+    /**
+     * Get value of settings key {@link #PROMETHEUS_INDICES_BATCHES_KEY}.
+     * @return int value of the key
+     */
+    public int getIndicesBatches() {
+        return this.indicesBatches;
+    }
+
     /**
      * Get IndicesOptions of settings key {@link #PROMETHEUS_SELECTED_OPTION_KEY}.
      * @return IndicesOptions of the key
@@ -0,0 +1,261 @@
+/*
+ * Copyright [2016] [Vincent VAN HOLLEBEKE]
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+package org.compuscene.metrics.prometheus;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.Arrays;
+import java.util.List;
+
+import io.prometheus.client.Collector;
+
+/**
+ * {@link MetricsEncoder} streaming length-delimited {@code io.prometheus.client.MetricFamily} protobuf messages
+ * (see {@code metrics.proto} of the Prometheus client model).
+ * <p>
+ * Messages are encoded by hand: a family is encoded into a reusable buffer and written out prefixed by its length
+ * as soon as it ends, so only one family is held in memory at a time and no message objects are created. Families
+ * keep their names, so that series are named the same as in the text format (Prometheus does not add the
+ * {@code _total} suffix to counters scraped as protobuf).
+ */
+final class ProtobufEncoder implements MetricsEncoder {
+
+    private static final int WIRE_VARINT = 0;
+    private static final int WIRE_FIXED64 = 1;
+    private static final int WIRE_LENGTH_DELIMITED = 2;
+
+    // MetricType enum values
+    private static final int TYPE_COUNTER = 0;
+    private static final int TYPE_GAUGE = 1;
+    private static final int TYPE_SUMMARY = 2;
+
+    // Metric field numbers
+    private static final int METRIC_LABEL = 1;
+    private static final int METRIC_GAUGE = 2;
+    private static final int METRIC_COUNTER = 3;
+    private static final int METRIC_SUMMARY = 4;
+
+    private final OutputStream out;
+    private final Buffer family = new Buffer();
+    private final Buffer metric = new Buffer();
+    private final Buffer prefix = new Buffer();
+
+    private List<String> labelNames;
+    private int valueField;
+
+    /**
+     * A growable byte array with protobuf primitives.
+     */
+    private static final class Buffer {
+        private byte[] bytes = new byte[1024];
+        private int size;
+
+        private void ensure(int length) {
+            if (size + length > bytes.length) {
+                bytes = Arrays.copyOf(bytes, Math.max(bytes.length * 2, size + length));
+            }
+        }
+
+        private void reset() {
+            size = 0;
+        }
+
+        private void varint(long value) {
+            ensure(10);
+            while ((value & ~0x7FL) != 0) {
+                bytes[size++] = (byte) ((value & 0x7F) | 0x80);
+                value >>>= 7;
+            }
+            bytes[size++] = (byte) value;
+        }
+
+        private void tag(int field, int wireType) {
+            varint((field << 3) | wireType);
+        }
+
+        private void fixed64(long value) {
+            ensure(8);
+            for (int i = 0; i < 8; i++) {
+                bytes[size++] = (byte) (value >>> (8 * i));
+            }
+        }
+
+        private void doubleField(int field, double value) {
+            tag(field, WIRE_FIXED64);
+            fixed64(Double.doubleToRawLongBits(value));
+        }
+
+        private void stringField(int field, String value) {
+            tag(field, WIRE_LENGTH_DELIMITED);
+            varint(utf8Length(value));
+            ensure(value.length() * 3);
+            for (int i = 0, length = value.length(); i < length; i++) {
+                char c = value.charAt(i);
+                if (c < 0x80) {
+                    bytes[size++] = (byte) c;
+                } else if (c < 0x800) {
+                    bytes[size++] = (byte) (0xC0 | (c >> 6));
+                    bytes[size++] = (byte) (0x80 | (c & 0x3F));
+                } else if (Character.isSurrogate(c)) {
+                    if (Character.isHighSurrogate(c) && i + 1 < length && Character.isLowSurrogate(value.charAt(i + 1))) {
+                        int codePoint = Character.toCodePoint(c, value.charAt(++i));
+                        bytes[size++] = (byte) (0xF0 | (codePoint >> 18));
+                        bytes[size++] = (byte) (0x80 | ((codePoint >> 12) & 0x3F));
+                        bytes[size++] = (byte) (0x80 | ((codePoint >> 6) & 0x3F));
+                        bytes[size++] = (byte) (0x80 | (codePoint & 0x3F));
+                    } else {
+                        bytes[size++] = (byte) '?';
+                    }
+                } else {
+                    bytes[size++] = (byte) (0xE0 | (c >> 12));
+                    bytes[size++] = (byte) (0x80 | ((c >> 6) & 0x3F));
+                    bytes[size++] = (byte) (0x80 | (c & 0x3F));
+                }
+            }
+        }
+
+        private void messageField(int field, Buffer message) {
+            tag(field, WIRE_LENGTH_DELIMITED);
+            varint(message.size);
+            ensure(message.size);
+            System.arraycopy(message.bytes, 0, bytes, size, message.size);
+            size += message.size;
+        }
+    }
+
+    // Number of bytes of the string encoded the same way as Buffer#stringField does it.
+    private static int utf8Length(String value) {
+        int length = 0;
+        for (int i = 0, chars = value.length(); i < chars; i++) {
+            char c = value.charAt(i);
+            if (c < 0x80) {
+                length++;
+            } else if (c < 0x800) {
+                length += 2;
+            } else if (Character.isSurrogate(c)) {
+                if (Character.isHighSurrogate(c) && i + 1 < chars && Character.isLowSurrogate(value.charAt(i + 1))) {
+                    i++;
+                    length += 4;
+                } else {
+                    length++;
+                }
+            } else {
+                length += 3;
+            }
+        }
+        return length;
+    }
+
+    private static int varintSize(long value) {
+        int size = 1;
+        while ((value & ~0x7FL) != 0) {
+            value >>>= 7;
+            size++;
+        }
+        return size;
+    }
+
+    private static int stringFieldSize(String value) {
+        int length = utf8Length(value);
+        return 1 + varintSize(length) + length;
+    }
+
+    ProtobufEncoder(OutputStream out) {
+        this.out = out;
+    }
+
+    @Override
+    public void startFamily(String name, String help, Collector.Type type, List<String> labelNames) {
+        this.labelNames = labelNames;
+        family.reset();
+        family.stringField(1, name);
+        family.stringField(2, help);
+        family.tag(3, WIRE_VARINT);
+        switch (type) {
+            case COUNTER:
+                family.varint(TYPE_COUNTER);
+                valueField = METRIC_COUNTER;
+                break;
+            case SUMMARY:
+                family.varint(TYPE_SUMMARY);
+                valueField = METRIC_SUMMARY;
+                break;
+            default:
+                family.varint(TYPE_GAUGE);
+                valueField = METRIC_GAUGE;
+        }
+    }
+
+    private void startMetric(List<String> labelValues) {
+        metric.reset();
+        for (int i = 0; i < labelNames.size(); i++) {
+            String labelName = labelNames.get(i);
+            String labelValue = labelValues.get(i);
+            metric.tag(METRIC_LABEL, WIRE_LENGTH_DELIMITED);
+            metric.varint(stringFieldSize(labelName) + stringFieldSize(labelValue));
+            metric.stringField(1, labelName);
+            metric.stringField(2, labelValue);
+        }
+    }
+
+    @Override
+    public void gauge(List<String> labelValues, double value) {
+        startMetric(labelValues);
+        // Gauge and Counter messages both carry the value as field 1
+        metric.tag(valueField, WIRE_LENGTH_DELIMITED);
+        metric.varint(9);
+        metric.doubleField(1, value);
+        family.messageField(4, metric);
+    }
+
+    @Override
+    public void summary(List<String> labelValues, double count, double sum, double createdSeconds) {
+        startMetric(labelValues);
+        long seconds = (long) Math.floor(createdSeconds);
+        int nanos = (int) Math.round((createdSeconds - seconds) * 1e9);
+        if (nanos >= 1_000_000_000) {
+            seconds++;
+            nanos -= 1_000_000_000;
+        }
+        int timestampSize = 1 + varintSize(seconds) + 1 + varintSize(nanos);
+        long sampleCount = (long) count;
+        metric.tag(valueField, WIRE_LENGTH_DELIMITED);
+        metric.varint(1 + varintSize(sampleCount) + 9 + 1 + varintSize(timestampSize) + timestampSize);
+        metric.tag(1, WIRE_VARINT);
+        metric.varint(sampleCount);
+        metric.doubleField(2, sum);
+        metric.tag(4, WIRE_LENGTH_DELIMITED);
+        metric.varint(timestampSize);
+        metric.tag(1, WIRE_VARINT);
+        metric.varint(seconds);
+        metric.tag(2, WIRE_VARINT);
+        metric.varint(nanos);
+        family.messageField(4, metric);
+    }
+
+    @Override
+    public void endFamily() throws IOException {
+        prefix.reset();
+        prefix.varint(family.size);
+        out.write(prefix.bytes, 0, prefix.size);
+        out.write(family.bytes, 0, family.size);
+    }
+
+    @Override
+    public void finish() {
+    }
+}
@@ -0,0 +1,161 @@
+/*
+ * Copyright [2016] [Vincent VAN HOLLEBEKE]
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package org.compuscene.metrics.prometheus;
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import io.prometheus.client.Collector;
+import io.prometheus.client.Gauge;
+import io.prometheus.client.Summary;
+
+/**
+ * {@link MetricStore} keeping every gauge family as a Prometheus simpleclient collector.
+ */
+final class SimpleclientMetricStore implements MetricStore {
+
+    private final LinkedHashMap<String, TrackedGauge> gauges = new LinkedHashMap<>();
+    private final LinkedHashMap<String, SummaryFamily> summaries = new LinkedHashMap<>();
+
+    // Incremented at the start of every scrape. Series not touched during the current generation are retired.
+    private long generation = 0;
+
+    /**
+     * A gauge together with all the label sets that have been set on it so far.
+     */
+    private static final class TrackedGauge {
+        private final Gauge gauge;
+        private final String name;
+        private final String help;
+        private final Collector.Type type;
+        private final List<String> labelNames;
+        private final Map<List<String>, Series> series = new HashMap<>();
+
+        private TrackedGauge(Gauge gauge, String name, String help, Collector.Type type, String[] labelNames) {
+            this.gauge = gauge;
+            this.name = name;
+            this.help = help;
+            this.type = type;
+            this.labelNames = Arrays.asList(labelNames);
+        }
+    }
+
+    /**
+     * A single gauge child and the generation of the scrape that set it last. The series is also the
+     * {@link GaugeHandle} handed out to callers: if it was retired in the meantime, setting it again
+     * attaches it back to its gauge.
+     */
+    private final class Series implements GaugeHandle {
+        private final TrackedGauge tracked;
+        private final Gauge.Child child;
+        private final String[] labelValues;
+        private long generation;
+        private boolean retired;
+
+        private Series(TrackedGauge tracked, String[] labelValues) {
+            this.tracked = tracked;
+            this.child = tracked.gauge.labels(labelValues);
+            this.labelValues = labelValues;
+        }
+
+        @Override
+        public void set(double value) {
+            child.set(value);
+            generation = SimpleclientMetricStore.this.generation;
+            if (retired) {
+                retired = false;
+                tracked.gauge.setChild(child, labelValues);
+                tracked.series.put(Arrays.asList(labelValues), this);
+            }
+        }
+    }
+
+    @Override
+    public void registerGauge(String metric, String name, String help, Collector.Type type, String[] labelNames) {
+        Gauge gauge = Gauge.build().
+                name(name).
+                help(help).
+                labelNames(labelNames).
+                create();
+        gauges.put(metric, new TrackedGauge(gauge, name, help, type, labelNames));
+    }
+
+    @Override
+    public void registerSummary(String metric, String name, String help, String[] labelNames) {
+        summaries.put(metric, new SummaryFamily(name, help, labelNames));
+    }
+
+    @Override
+    public GaugeHandle gauge(String metric, String[] labelValues) {
+        TrackedGauge tracked = gauges.get(metric);
+        List<String> key = Arrays.asList(labelValues);
+        Series series = tracked.series.get(key);
+        if (series == null) {
+            series = new Series(tracked, labelValues);
+            tracked.series.put(key, series);
+        }
+        return series;
+    }
+
+    @Override
+    public Summary.Child summary(String metric, String[] labelValues) {
+        return summaries.get(metric).child(labelValues);
+    }
+
+    @Override
+    public void startScrape() {
+        generation++;
+    }
+
+    @Override
+    public int finishScrape() {
+        int retired = 0;
+        for (TrackedGauge tracked : gauges.values()) {
+            Iterator<Series> it = tracked.series.values().iterator();
+            while (it.hasNext()) {
+                Series series = it.next();
+                if (series.generation != generation) {
+                    tracked.gauge.remove(series.labelValues);
+                    series.retired = true;
+                    it.remove();
+                    retired++;
+                }
+            }
+        }
+        return retired;
+    }
+
+    @Override
+    public void encode(MetricsEncoder encoder) throws IOException {
+        for (TrackedGauge tracked : gauges.values()) {
+            encoder.startFamily(tracked.name, tracked.help, tracked.type, tracked.labelNames);
+            for (Series series : tracked.series.values()) {
+                encoder.gauge(Arrays.asList(series.labelValues), series.child.get());
+            }
+            encoder.endFamily();
+        }
+        for (SummaryFamily summary : summaries.values()) {
+            summary.encode(encoder);
+        }
+    }
+}
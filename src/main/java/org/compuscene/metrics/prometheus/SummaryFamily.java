@@ -0,0 +1,64 @@
+/*
+ * Copyright [2016] [Vincent VAN HOLLEBEKE]
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+package org.compuscene.metrics.prometheus;
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import io.prometheus.client.Collector;
+import io.prometheus.client.Summary;
+
+/**
+ * A summary family shared by the {@link MetricStore} implementations. Summaries are rare (a single one times
+ * the scrape itself), so they are kept as a simpleclient {@link Summary} that is not registered anywhere and
+ * its children are tracked here to be able to pass them to a {@link MetricsEncoder}.
+ */
+final class SummaryFamily {
+
+    private final String name;
+    private final String help;
+    private final List<String> labelNames;
+    private final Summary summary;
+    private final Map<List<String>, Summary.Child> children = new LinkedHashMap<>();
+
+    SummaryFamily(String name, String help, String[] labelNames) {
+        this.name = name;
+        this.help = help;
+        this.labelNames = Arrays.asList(labelNames);
+        this.summary = Summary.build().
+                name(name).
+                help(help).
+                labelNames(labelNames).
+                create();
+    }
+
+    Summary.Child child(String[] labelValues) {
+        return children.computeIfAbsent(Arrays.asList(labelValues), key -> summary.labels(labelValues));
+    }
+
+    void encode(MetricsEncoder encoder) throws IOException {
+        encoder.startFamily(name, help, Collector.Type.SUMMARY, labelNames);
+        for (Map.Entry<List<String>, Summary.Child> child : children.entrySet()) {
+            Summary.Child.Value value = child.getValue().get();
+            encoder.summary(child.getKey(), value.count, value.sum, value.created / 1000.0);
+        }
+        encoder.endFamily();
+    }
+}
@@ -0,0 +1,138 @@
+/*
+ * Copyright [2016] [Vincent VAN HOLLEBEKE]
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+package org.compuscene.metrics.prometheus;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.List;
+
+import io.prometheus.client.Collector;
+
+/**
+ * {@link MetricsEncoder} streaming the Prometheus text exposition format version 0.0.4.
+ * <p>
+ * The output is byte for byte the same as the one of
+ * {@link io.prometheus.client.exporter.common.TextFormat#write004}: label sets keep the trailing comma and the
+ * {@code _created} samples of summaries are written as separate gauge families at the end. Counter families are
+ * written as plain gauges under their registered name, the way they have always been exposed in this format.
+ */
+final class TextFormatEncoder implements MetricsEncoder {
+
+    private final ExpositionOutput out;
+
+    private String name;
+    private String help;
+    private List<String> labelNames;
+    private final List<Created> created = new ArrayList<>();
+
+    private static final class Created {
+        private final String name;
+        private final String help;
+        private final List<String> labelNames;
+        private final List<String> labelValues;
+        private final double value;
+
+        private Created(String name, String help, List<String> labelNames, List<String> labelValues, double value) {
+            this.name = name;
+            this.help = help;
+            this.labelNames = labelNames;
+            this.labelValues = labelValues;
+            this.value = value;
+        }
+    }
+
+    TextFormatEncoder(OutputStream out) {
+        this.out = new ExpositionOutput(out);
+    }
+
+    @Override
+    public void startFamily(String name, String help, Collector.Type type, List<String> labelNames) throws IOException {
+        this.name = name;
+        this.help = help;
+        this.labelNames = labelNames;
+        writeHeader(name, help, type == Collector.Type.SUMMARY ? "summary" : "gauge");
+    }
+
+    private void writeHeader(String name, String help, String type) throws IOException {
+        out.write("# HELP ");
+        out.write(name);
+        out.writeByte(' ');
+        out.writeEscaped(help, false);
+        out.writeByte('\n');
+        out.write("# TYPE ");
+        out.write(name);
+        out.writeByte(' ');
+        out.write(type);
+        out.writeByte('\n');
+    }
+
+    private void writeSample(String name, String suffix, List<String> labelNames, List<String> labelValues,
+                             double value) throws IOException {
+        out.write(name);
+        if (suffix != null) {
+            out.write(suffix);
+        }
+        if (!labelNames.isEmpty()) {
+            out.writeByte('{');
+            for (int i = 0; i < labelNames.size(); i++) {
+                out.write(labelNames.get(i));
+                out.writeByte('=');
+                out.writeByte('"');
+                out.writeEscaped(labelValues.get(i), true);
+                out.writeByte('"');
+                out.writeByte(',');
+            }
+            out.writeByte('}');
+        }
+        out.writeByte(' ');
+        out.writeDouble(value);
+        out.writeByte('\n');
+    }
+
+    @Override
+    public void gauge(List<String> labelValues, double value) throws IOException {
+        writeSample(name, null, labelNames, labelValues, value);
+    }
+
+    @Override
+    public void summary(List<String> labelValues, double count, double sum, double createdSeconds) throws IOException {
+        writeSample(name, "_count", labelNames, labelValues, count);
+        writeSample(name, "_sum", labelNames, labelValues, sum);
+        created.add(new Created(name + "_created", help, labelNames, new ArrayList<>(labelValues), createdSeconds));
+    }
+
+    @Override
+    public void endFamily() {
+    }
+
+    @Override
+    public void finish() throws IOException {
+        // Families of _created samples are sorted by name, and samples of the same family stay together.
+        created.sort((a, b) -> a.name.compareTo(b.name));
+        String current = null;
+        for (Created c : created) {
+            if (!c.name.equals(current)) {
+                current = c.name;
+                writeHeader(c.name, c.help, "gauge");
+            }
+            writeSample(c.name, null, c.labelNames, c.labelValues, c.value);
+        }
+        created.clear();
+        out.flush();
+    }
+}
@@ -19,8 +19,6 @@ package org.opensearch.action;
 import static org.opensearch.cluster.routing.allocation.DiskThresholdSettings.*;
 
 import org.opensearch.OpenSearchParseException;
-import org.opensearch.action.admin.cluster.state.ClusterStateResponse;
-import org.opensearch.cluster.metadata.Metadata;
 import org.opensearch.common.Nullable;
 import org.opensearch.core.action.ActionResponse;
 import org.opensearch.core.common.io.stream.StreamInput;
@@ -29,6 +27,7 @@ import org.opensearch.common.settings.ClusterSettings;
 import org.opensearch.common.settings.Settings;
 import org.opensearch.common.settings.SettingsException;
 import org.opensearch.common.unit.RatioValue;
+import org.opensearch.core.common.unit.ByteSizeValue;
 
 import java.io.IOException;
 
@@ -46,6 +45,9 @@ import java.io.IOException;
  * In order to make it easy for Prometheus to consume the data we expose these settings in both formats (pct and bytes)
  * and we do our best in determining if they are currently set as pct or bytes filling appropriate variables with data
  * or null value.
+ *
+ * The values are effective values of the settings (i.e. transient, persistent, node or default value in this order),
+ * an instance is created only when the settings change.
  */
 // TODO(lukas-vlcek): should this extend TransportMessage instead?
 public class ClusterStatsData extends ActionResponse {
@@ -86,30 +88,35 @@ public class ClusterStatsData extends ActionResponse {
         floodStageInPct = in.readOptionalDouble();
     }
 
-    @SuppressWarnings({"checkstyle:LineLength"})
-    ClusterStatsData(ClusterStateResponse clusterStateResponse, Settings settings, ClusterSettings clusterSettings) {
-
-        Metadata m = clusterStateResponse.getState().getMetadata();
-        // There are several layers of cluster settings in Elasticsearch each having different priority.
-        // We need to traverse them from the top priority down to find relevant value of each setting.
-        // See https://www.elastic.co/guide/en/elasticsearch/reference/master/cluster-update-settings.html#_order_of_precedence
-        // TODO[lukas-vlcek]: update to OpenSearch referenced
-        for (Settings s : new Settings[]{
-                // See: RestClusterGetSettingsAction#response
-                // or: https://github.com/elastic/elasticsearch/pull/33247/files
-                // We do not filter the settings, but we use the clusterSettings.diff()
-                // In the end we expose just a few selected settings ATM.
-                m.transientSettings(),
-                m.persistentSettings(),
-                clusterSettings.diff(m.settings(), settings)
-        }) {
-            thresholdEnabled = thresholdEnabled == null ?
-                    s.getAsBoolean(CLUSTER_ROUTING_ALLOCATION_DISK_THRESHOLD_ENABLED_SETTING.getKey(), null) : thresholdEnabled;
-
-            parseValue(s, CLUSTER_ROUTING_ALLOCATION_LOW_DISK_WATERMARK_SETTING.getKey(), diskLowInBytesRef, diskLowInPctRef);
-            parseValue(s, CLUSTER_ROUTING_ALLOCATION_HIGH_DISK_WATERMARK_SETTING.getKey(), diskHighInBytesRef, diskHighInPctRef);
-            parseValue(s, CLUSTER_ROUTING_ALLOCATION_DISK_FLOOD_STAGE_WATERMARK_SETTING.getKey(), floodStageInBytesRef, floodStageInPctRef);
-        }
+    /**
+     * A constructor.
+     * @param settings Settings holding effective values of the disk threshold settings (or their defaults)
+     */
+    ClusterStatsData(Settings settings) {
+        this(CLUSTER_ROUTING_ALLOCATION_DISK_THRESHOLD_ENABLED_SETTING.get(settings),
+                CLUSTER_ROUTING_ALLOCATION_LOW_DISK_WATERMARK_SETTING.get(settings),
+                CLUSTER_ROUTING_ALLOCATION_HIGH_DISK_WATERMARK_SETTING.get(settings),
+                CLUSTER_ROUTING_ALLOCATION_DISK_FLOOD_STAGE_WATERMARK_SETTING.get(settings));
+    }
+
+    /**
+     * A constructor.
+     * @param clusterSettings Cluster settings holding effective values of the disk threshold settings
+     */
+    ClusterStatsData(ClusterSettings clusterSettings) {
+        this(clusterSettings.get(CLUSTER_ROUTING_ALLOCATION_DISK_THRESHOLD_ENABLED_SETTING),
+                clusterSettings.get(CLUSTER_ROUTING_ALLOCATION_LOW_DISK_WATERMARK_SETTING),
+                clusterSettings.get(CLUSTER_ROUTING_ALLOCATION_HIGH_DISK_WATERMARK_SETTING),
+                clusterSettings.get(CLUSTER_ROUTING_ALLOCATION_DISK_FLOOD_STAGE_WATERMARK_SETTING));
+    }
+
+    private ClusterStatsData(Boolean thresholdEnabled, String diskLow, String diskHigh, String floodStage) {
+        // Values are parsed only when the settings change, scrapes just reuse the instance.
+        this.thresholdEnabled = thresholdEnabled;
+
+        parseValue(diskLow, diskLowInBytesRef, diskLowInPctRef);
+        parseValue(diskHigh, diskHighInBytesRef, diskHighInPctRef);
+        parseValue(floodStage, floodStageInBytesRef, floodStageInPctRef);
 
         diskLowInBytes = diskLowInBytesRef[0];
         diskHighInBytes = diskHighInBytesRef[0];
@@ -121,26 +128,23 @@ public class ClusterStatsData extends ActionResponse {
     }
 
     /**
-     * Try to extract and parse value from settings for given key.
+     * Try to parse a watermark value.
      * First it tries to parse it as a RatioValue (pct) then as byte size value.
      * It assigns parsed value to corresponding argument references (passed via array hack).
-     * If parsing fails the method fires exception, however, this should not happen - we rely on Elasticsearch
+     * If parsing fails the method fires exception, however, this should not happen - we rely on OpenSearch
      * to already have parsed and validated these values before. Unless we screwed something up...
      */
-    private void parseValue(Settings s, String key, Long[] bytesPointer, Double[] pctPointer) {
-        String value = s.get(key);
-        if (value != null && pctPointer[0] == null) {
+    private void parseValue(String value, Long[] bytesPointer, Double[] pctPointer) {
+        if (value != null) {
             try {
-                pctPointer[0] = RatioValue.parseRatioValue(s.get(key, null)).getAsPercent();
-            } catch (SettingsException | OpenSearchParseException | NullPointerException e1) {
-                if (bytesPointer[0] == null) {
-                    try {
-                        bytesPointer[0] = s.getAsBytesSize(key, null).getBytes();
-                    } catch (SettingsException | OpenSearchParseException | NullPointerException e2) {
-                        // TODO(lvlcek): log.debug("This went wrong, but 'Keep Calm and Carry On'")
-                        // We should avoid using logs in this class (due to perf impact), instead we should
-                        // consider moving this logic to some static helper class/method going forward.
-                    }
+                pctPointer[0] = RatioValue.parseRatioValue(value).getAsPercent();
+            } catch (SettingsException | OpenSearchParseException e1) {
+                try {
+                    bytesPointer[0] = ByteSizeValue.parseBytesSizeValue(value, "watermark").getBytes();
+                } catch (SettingsException | OpenSearchParseException e2) {
+                    // TODO(lvlcek): log.debug("This went wrong, but 'Keep Calm and Carry On'")
+                    // We should avoid using logs in this class (due to perf impact), instead we should
+                    // consider moving this logic to some static helper class/method going forward.
                 }
             }
         }
@@ -0,0 +1,131 @@
+/*
+ * Copyright [2016] [Vincent VAN HOLLEBEKE]
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+package org.opensearch.action;
+
+import org.opensearch.action.admin.indices.stats.IndicesStatsResponse;
+import org.opensearch.action.admin.indices.stats.ShardStats;
+import org.opensearch.cluster.routing.Murmur3HashFunction;
+import org.opensearch.common.Nullable;
+import org.opensearch.common.collect.Tuple;
+import org.opensearch.common.util.BitMixer;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Index level stats collected in batches, see
+ * {@link org.compuscene.metrics.prometheus.PrometheusSettings#PROMETHEUS_INDICES_BATCHES}.
+ * <p>
+ * Indices are assigned to batches by a stable hash of their name, mixed so that the batches are independent of
+ * the slots of {@link #slot(String, int)} (the indices of one slot are still spread over all batches). Every collection takes the next batch in
+ * round-robin order, refreshes the stats of its indices only and merges them with the stats of the other indices
+ * kept from the previous collections, so the cost of a collection does not grow with the number of indices.
+ * Instances are thread-safe.
+ */
+final class IndicesStatsBatches {
+
+    // Guarded by this.
+    private int batches;
+    private int next;
+    private final Map<String, IndexEntry> entries = new HashMap<>();
+
+    private static final class IndexEntry {
+        private final List<ShardStats> shards;
+        private final long timestampMillis;
+
+        private IndexEntry(List<ShardStats> shards, long timestampMillis) {
+            this.shards = shards;
+            this.timestampMillis = timestampMillis;
+        }
+    }
+
+    /**
+     * @param indexName Name of the index
+     * @param slots Number of slots
+     * @return Slot the index is assigned to, the same on every node and after restarts
+     */
+    static int slot(String indexName, int slots) {
+        return Math.floorMod(Murmur3HashFunction.hash(indexName), slots);
+    }
+
+    private static int batch(String indexName, int batches) {
+        return Math.floorMod(BitMixer.mix32(Murmur3HashFunction.hash(indexName)), batches);
+    }
+
+    /**
+     * Take the next batch. Batches without any index are passed over.
+     * @param indices Concrete names of all the indices
+     * @param batches Number of batches, when it changes the kept stats are dropped
+     * @return Indices of the batch, empty only if there are no indices at all
+     */
+    synchronized String[] nextBatch(String[] indices, int batches) {
+        if (batches != this.batches) {
+            this.batches = batches;
+            next = 0;
+            entries.clear();
+        }
+        for (int i = 0; i < batches; i++) {
+            int batch = next;
+            next = (next + 1) % batches;
+            String[] batchIndices = Arrays.stream(indices).filter(index -> batch(index, batches) == batch)
+                    .toArray(String[]::new);
+            if (batchIndices.length > 0) {
+                return batchIndices;
+            }
+        }
+        return new String[0];
+    }
+
+    /**
+     * Merge the stats of a batch with the kept stats of the other indices.
+     * @param indices Concrete names of all the indices, the kept stats of any other index are dropped
+     * @param batchStats Stats of the indices of the batch or {@code null} if they could not be collected
+     * @param timestampMillis Time the stats of the batch were collected at
+     * @return Stats of all the indices collected so far and the time the stats of each of them were collected at
+     */
+    synchronized Tuple<IndicesStatsResponse, Map<String, Long>> merge(String[] indices,
+                                                                     @Nullable IndicesStatsResponse batchStats,
+                                                                     long timestampMillis) {
+        if (batchStats != null) {
+            Map<String, List<ShardStats>> batchShards = new HashMap<>();
+            for (ShardStats shard : batchStats.getShards()) {
+                batchShards.computeIfAbsent(shard.getShardRouting().getIndexName(), i -> new ArrayList<>()).add(shard);
+            }
+            for (Map.Entry<String, List<ShardStats>> index : batchShards.entrySet()) {
+                entries.put(index.getKey(), new IndexEntry(index.getValue(), timestampMillis));
+            }
+        }
+        Set<String> existing = new HashSet<>(Arrays.asList(indices));
+        entries.keySet().retainAll(existing);
+
+        List<ShardStats> shards = new ArrayList<>();
+        Map<String, Long> timestamps = new HashMap<>();
+        for (Map.Entry<String, IndexEntry> index : entries.entrySet()) {
+            shards.addAll(index.getValue().shards);
+            timestamps.put(index.getKey(), index.getValue().timestampMillis);
+        }
+        IndicesStatsResponse merged = new IndicesStatsResponse(shards.toArray(new ShardStats[0]), shards.size(),
+                shards.size(), 0, Collections.emptyList());
+        return new Tuple<>(merged, timestamps);
+    }
+}
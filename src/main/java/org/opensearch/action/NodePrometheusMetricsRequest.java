@@ -17,16 +17,29 @@
 
 package org.opensearch.action;
 
+import org.compuscene.metrics.prometheus.MetricGroup;
+import org.opensearch.Version;
 import org.opensearch.action.support.clustermanager.ClusterManagerNodeReadRequest;
+import org.opensearch.common.Nullable;
+import org.opensearch.common.unit.TimeValue;
 import org.opensearch.core.common.io.stream.StreamInput;
+import org.opensearch.core.common.io.stream.StreamOutput;
 
 import java.io.IOException;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Set;
 
 /**
  * Action request class for Prometheus Exporter plugin.
  */
 public class NodePrometheusMetricsRequest extends ClusterManagerNodeReadRequest<NodePrometheusMetricsRequest> {
 
+    @Nullable private TimeValue scrapeTimeout = null;
+    @Nullable private Set<MetricGroup> metricGroups = null;
+    private int indexShard = 0;
+    private int indexShards = 1;
+
     /**
      * A constructor.
      */
@@ -41,15 +54,99 @@ public class NodePrometheusMetricsRequest extends ClusterManagerNodeReadRequest<
      */
     public NodePrometheusMetricsRequest(StreamInput in) throws IOException {
         super(in);
+        scrapeTimeout = in.readOptionalTimeValue();
+        String[] keys = in.readOptionalStringArray();
+        metricGroups = keys != null ? Collections.unmodifiableSet(MetricGroup.fromKeys(Arrays.asList(keys))) : null;
+        indexShard = in.readVInt();
+        indexShards = in.readVInt();
+    }
+
+    @Override
+    public void writeTo(StreamOutput out) throws IOException {
+        super.writeTo(out);
+        out.writeOptionalTimeValue(scrapeTimeout);
+        out.writeOptionalStringArray(metricGroups != null
+                ? metricGroups.stream().map(MetricGroup::key).toArray(String[]::new)
+                : null);
+        out.writeVInt(indexShard);
+        out.writeVInt(indexShards);
+    }
+
+    /**
+     * Set the time the whole collection must finish within, sections still running by then are skipped.
+     * @param scrapeTimeout The time or {@code null} for no deadline other than the per-section timeout
+     * @return this request
+     */
+    public NodePrometheusMetricsRequest scrapeTimeout(@Nullable TimeValue scrapeTimeout) {
+        this.scrapeTimeout = scrapeTimeout;
+        return this;
+    }
+
+    /**
+     * @return The time the whole collection must finish within or {@code null} if there is no such deadline
+     */
+    @Nullable
+    public TimeValue scrapeTimeout() {
+        return scrapeTimeout;
+    }
+
+    /**
+     * Set the metric groups to collect.
+     * @param metricGroups The groups or {@code null} for the default groups
+     *                     (see {@link org.compuscene.metrics.prometheus.PrometheusSettings#PROMETHEUS_METRIC_GROUPS})
+     * @return this request
+     */
+    public NodePrometheusMetricsRequest metricGroups(@Nullable Set<MetricGroup> metricGroups) {
+        this.metricGroups = metricGroups;
+        return this;
+    }
+
+    /**
+     * @return The metric groups to collect or {@code null} for the default groups
+     */
+    @Nullable
+    public Set<MetricGroup> metricGroups() {
+        return metricGroups;
+    }
+
+    /**
+     * Restrict the index level metrics to the indices whose name hashes into one of several shards, so that several
+     * scrapers can split the indices among themselves.
+     * @param indexShard The shard, from {@code 0} to {@code indexShards - 1}
+     * @param indexShards Number of shards, {@code 1} for all the indices
+     * @return this request
+     */
+    public NodePrometheusMetricsRequest indexShard(int indexShard, int indexShards) {
+        this.indexShard = indexShard;
+        this.indexShards = indexShards;
+        return this;
+    }
+
+    /**
+     * @return The shard of the indices the index level metrics are restricted to
+     */
+    public int indexShard() {
+        return indexShard;
+    }
+
+    /**
+     * @return Number of shards the indices are split into, {@code 1} if the index level metrics are not restricted
+     */
+    public int indexShards() {
+        return indexShards;
     }
 
     /**
      * A validation of the request.
-     * Currently, no validations are needed, thus this method always returns null.
-     * @return null
+     * Only the index shard needs to be validated.
+     * @return validation exception or null if the request is valid
      */
     @Override
     public ActionRequestValidationException validate() {
+        if (indexShards < 1 || indexShard < 0 || indexShard >= indexShards) {
+            return ValidateActions.addValidationError("index shard [" + indexShard + "] must be between 0 and "
+                    + "the number of shards [" + indexShards + "] minus 1", null);
+        }
         return null;
     }
 }
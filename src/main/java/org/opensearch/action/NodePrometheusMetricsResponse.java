@@ -17,32 +17,38 @@
 
 package org.opensearch.action;
 
+import org.compuscene.metrics.prometheus.MetricsSnapshot;
 import org.opensearch.action.admin.cluster.health.ClusterHealthResponse;
-import org.opensearch.action.admin.cluster.node.info.NodesInfoResponse;
 import org.opensearch.action.admin.cluster.node.stats.NodeStats;
-import org.opensearch.action.admin.cluster.state.ClusterStateResponse;
 import org.opensearch.action.admin.indices.stats.IndicesStatsResponse;
 import org.opensearch.action.admin.indices.stats.PackageAccessHelper;
 import org.opensearch.common.Nullable;
 import org.opensearch.core.action.ActionResponse;
 import org.opensearch.core.common.io.stream.StreamInput;
 import org.opensearch.core.common.io.stream.StreamOutput;
-import org.opensearch.common.settings.ClusterSettings;
-import org.opensearch.common.settings.Settings;
 
 import java.io.IOException;
+import java.util.Map;
 
 /**
  * Action response class for Prometheus Exporter plugin.
  * This class a container of other responses that are needed to construct list of all required metrics. It knows how to
  * prepare all data for wire transport by writing it into outputStream.
+ * <p>
+ * The action is executed on the node serving the scrape. Its wire layout is not compatible with plugin versions
+ * before 2.18, so sending it to nodes of a mixed-version cluster is not supported.
  */
 public class NodePrometheusMetricsResponse extends ActionResponse {
-    private final ClusterHealthResponse clusterHealth;
-    private final NodesInfoResponse nodesInfoResponse;
-    private final NodeStats[] nodeStats;
+
+    @Nullable private final ClusterHealthResponse clusterHealth;
+    private final String nodeName;
+    private final String nodeId;
+    @Nullable private final NodeStats[] nodeStats;
     @Nullable private final IndicesStatsResponse indicesStats;
     private ClusterStatsData clusterStatsData = null;
+    @Nullable private MetricsSnapshot[] nodeSnapshots = null;
+    @Nullable private SectionResults sectionResults = null;
+    @Nullable private Map<String, Long> indexStatsTimestamps = null;
 
     /**
      * A constructor that materialize the instance from inputStream.
@@ -51,57 +57,119 @@ public class NodePrometheusMetricsResponse extends ActionResponse {
      */
     public NodePrometheusMetricsResponse(StreamInput in) throws IOException {
         super(in);
-        clusterHealth = new ClusterHealthResponse(in);
-        nodesInfoResponse = new NodesInfoResponse(in);
+        nodeName = in.readString();
+        nodeId = in.readString();
+        // Sections of the collection may be skipped, their responses are optional.
+        clusterHealth = in.readOptionalWriteable(ClusterHealthResponse::new);
         nodeStats = in.readArray(NodeStats::new, NodeStats[]::new);
         indicesStats = PackageAccessHelper.createIndicesStatsResponse(in);
-        clusterStatsData = new ClusterStatsData(in);
+        clusterStatsData = in.readOptionalWriteable(ClusterStatsData::new);
+        nodeSnapshots = in.readOptionalArray(MetricsSnapshot::new, MetricsSnapshot[]::new);
+        sectionResults = in.readOptionalWriteable(SectionResults::new);
+        if (in.readBoolean()) {
+            indexStatsTimestamps = in.readMap(StreamInput::readString, StreamInput::readVLong);
+        }
     }
 
     /**
      * A constructor.
      * @param clusterHealth ClusterHealthResponse
-     * @param localNodesInfoResponse NodesInfoResponse
+     * @param nodeName Name of the local node
+     * @param nodeId ID of the local node
      * @param nodesStats NodesStats
      * @param indicesStats IndicesStats
-     * @param clusterStateResponse ClusterStateResponse
-     * @param settings Settings
-     * @param clusterSettings ClusterSettings
+     * @param clusterStatsData ClusterStatsData
      */
     public NodePrometheusMetricsResponse(ClusterHealthResponse clusterHealth,
-                                         NodesInfoResponse localNodesInfoResponse,
+                                         String nodeName,
+                                         String nodeId,
                                          NodeStats[] nodesStats,
                                          @Nullable IndicesStatsResponse indicesStats,
-                                         @Nullable ClusterStateResponse clusterStateResponse,
-                                         Settings settings,
-                                         ClusterSettings clusterSettings) {
+                                         @Nullable ClusterStatsData clusterStatsData) {
         this.clusterHealth = clusterHealth;
-        this.nodesInfoResponse = localNodesInfoResponse;
+        this.nodeName = nodeName;
+        this.nodeId = nodeId;
         this.nodeStats = nodesStats;
         this.indicesStats = indicesStats;
-        if (clusterStateResponse != null) {
-            this.clusterStatsData = new ClusterStatsData(clusterStateResponse, settings, clusterSettings);
-        }
+        this.clusterStatsData = clusterStatsData;
+    }
+
+    /**
+     * A constructor of a response with node level metrics collected by the nodes themselves.
+     * @param clusterHealth ClusterHealthResponse
+     * @param nodeName Name of the local node
+     * @param nodeId ID of the local node
+     * @param nodesStats NodesStats
+     * @param indicesStats IndicesStats
+     * @param clusterStatsData ClusterStatsData
+     * @param nodeSnapshots Snapshots of node level metrics rendered by the nodes
+     * @param sectionResults Outcome of the individual sections of the collection
+     */
+    public NodePrometheusMetricsResponse(ClusterHealthResponse clusterHealth,
+                                         String nodeName,
+                                         String nodeId,
+                                         NodeStats[] nodesStats,
+                                         @Nullable IndicesStatsResponse indicesStats,
+                                         @Nullable ClusterStatsData clusterStatsData,
+                                         @Nullable MetricsSnapshot[] nodeSnapshots,
+                                         @Nullable SectionResults sectionResults) {
+        this(clusterHealth, nodeName, nodeId, nodesStats, indicesStats, clusterStatsData, nodeSnapshots,
+                sectionResults, null);
+    }
+
+    /**
+     * A constructor of a response with index level stats merged from several collections.
+     * @param clusterHealth ClusterHealthResponse
+     * @param nodeName Name of the local node
+     * @param nodeId ID of the local node
+     * @param nodesStats NodesStats
+     * @param indicesStats IndicesStats
+     * @param clusterStatsData ClusterStatsData
+     * @param nodeSnapshots Snapshots of node level metrics rendered by the nodes
+     * @param sectionResults Outcome of the individual sections of the collection
+     * @param indexStatsTimestamps Time (milliseconds since the epoch) the stats of each index were collected at
+     */
+    public NodePrometheusMetricsResponse(ClusterHealthResponse clusterHealth,
+                                         String nodeName,
+                                         String nodeId,
+                                         NodeStats[] nodesStats,
+                                         @Nullable IndicesStatsResponse indicesStats,
+                                         @Nullable ClusterStatsData clusterStatsData,
+                                         @Nullable MetricsSnapshot[] nodeSnapshots,
+                                         @Nullable SectionResults sectionResults,
+                                         @Nullable Map<String, Long> indexStatsTimestamps) {
+        this(clusterHealth, nodeName, nodeId, nodesStats, indicesStats, clusterStatsData);
+        this.nodeSnapshots = nodeSnapshots;
+        this.sectionResults = sectionResults;
+        this.indexStatsTimestamps = indexStatsTimestamps;
     }
 
     /**
      * Get internal {@link ClusterHealthResponse} object.
-     * @return ClusterHealthResponse object
+     * @return ClusterHealthResponse object or {@code null} if the cluster health was not collected
      */
+    @Nullable
     public ClusterHealthResponse getClusterHealth() {
         return this.clusterHealth;
     }
 
     /**
-     * Get internal {@link NodesInfoResponse} object.
-     * @return NodesInfoResponse object
+     * Get name of the local node.
+     * @return Node name
+     */
+    public String getNodeName() { return this.nodeName; }
+
+    /**
+     * Get ID of the local node.
+     * @return Node ID
      */
-    public NodesInfoResponse getLocalNodesInfoResponse() { return this.nodesInfoResponse; }
+    public String getNodeId() { return this.nodeId; }
 
     /**
      * Get internal {@link NodeStats} array.
      * @return NodeStats array
      */
+    @Nullable
     public NodeStats[] getNodeStats() {
         return this.nodeStats;
     }
@@ -124,12 +192,47 @@ public class NodePrometheusMetricsResponse extends ActionResponse {
         return this.clusterStatsData;
     }
 
+    /**
+     * Get snapshots of node level metrics rendered by the nodes themselves.
+     * @return MetricsSnapshot array or {@code null} if node level metrics are in {@link #getNodeStats()}
+     */
+    @Nullable
+    public MetricsSnapshot[] getNodeSnapshots() {
+        return this.nodeSnapshots;
+    }
+
+    /**
+     * Get outcome of the individual sections of the collection.
+     * @return SectionResults object or {@code null} if not known
+     */
+    @Nullable
+    public SectionResults getSectionResults() {
+        return this.sectionResults;
+    }
+
+    /**
+     * Get time (milliseconds since the epoch) the stats of each index were collected at, see
+     * {@link org.compuscene.metrics.prometheus.PrometheusSettings#PROMETHEUS_INDICES_BATCHES}.
+     * @return Map of index name to time or {@code null} if all the stats were collected by this collection
+     */
+    @Nullable
+    public Map<String, Long> getIndexStatsTimestamps() {
+        return this.indexStatsTimestamps;
+    }
+
     @Override
     public void writeTo(StreamOutput out) throws IOException {
-        clusterHealth.writeTo(out);
-        nodesInfoResponse.writeTo(out);
+        out.writeString(nodeName);
+        out.writeString(nodeId);
+        out.writeOptionalWriteable(clusterHealth);
         out.writeArray(nodeStats);
         out.writeOptionalWriteable(indicesStats);
-        clusterStatsData.writeTo(out);
+        out.writeOptionalWriteable(clusterStatsData);
+        out.writeOptionalArray(nodeSnapshots);
+        out.writeOptionalWriteable(sectionResults);
+        out.writeBoolean(indexStatsTimestamps != null);
+        if (indexStatsTimestamps != null) {
+            out.writeMap(indexStatsTimestamps, StreamOutput::writeString, StreamOutput::writeVLong);
+        }
     }
 }
@@ -0,0 +1,39 @@
+/*
+ * Copyright [2016] [Vincent VAN HOLLEBEKE]
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package org.opensearch.action;
+
+/**
+ * Action class collecting node level metrics rendered by each node itself.
+ */
+public class NodesPrometheusMetricsAction extends ActionType<NodesPrometheusMetricsResponse> {
+
+    /**
+     * An action singleton instance.
+     */
+    public static final NodesPrometheusMetricsAction INSTANCE = new NodesPrometheusMetricsAction();
+
+    /**
+     * Name of the action, it is a sub-action of {@link NodePrometheusMetricsAction} so the same privilege
+     * covers both.
+     */
+    public static final String NAME = NodePrometheusMetricsAction.NAME + "/nodes";
+
+    private NodesPrometheusMetricsAction() {
+        super(NAME, NodesPrometheusMetricsResponse::new);
+    }
+}
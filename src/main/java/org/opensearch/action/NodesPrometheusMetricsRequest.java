@@ -0,0 +1,118 @@
+/*
+ * Copyright [2016] [Vincent VAN HOLLEBEKE]
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package org.opensearch.action;
+
+import org.compuscene.metrics.prometheus.MetricGroup;
+import org.opensearch.action.support.nodes.BaseNodeRequest;
+import org.opensearch.action.support.nodes.BaseNodesRequest;
+import org.opensearch.core.common.io.stream.StreamInput;
+import org.opensearch.core.common.io.stream.StreamOutput;
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Set;
+
+/**
+ * Request for node level metrics rendered by each of the selected nodes.
+ */
+public class NodesPrometheusMetricsRequest extends BaseNodesRequest<NodesPrometheusMetricsRequest> {
+
+    private final Set<MetricGroup> metricGroups;
+
+    /**
+     * A constructor.
+     * @param metricGroups Metric groups to collect
+     * @param nodesIds Nodes to collect metrics from, see {@link org.opensearch.cluster.node.DiscoveryNodes#resolveNodes}
+     */
+    public NodesPrometheusMetricsRequest(Set<MetricGroup> metricGroups, String... nodesIds) {
+        super(nodesIds);
+        this.metricGroups = metricGroups;
+    }
+
+    /**
+     * A constructor that utilizes the inputStream.
+     * @param in inputStream
+     * @throws IOException if there is an exception reading from inputStream
+     */
+    public NodesPrometheusMetricsRequest(StreamInput in) throws IOException {
+        super(in);
+        metricGroups = readMetricGroups(in);
+    }
+
+    @Override
+    public void writeTo(StreamOutput out) throws IOException {
+        super.writeTo(out);
+        writeMetricGroups(out, metricGroups);
+    }
+
+    /**
+     * @return Metric groups to collect
+     */
+    public Set<MetricGroup> metricGroups() {
+        return metricGroups;
+    }
+
+    private static Set<MetricGroup> readMetricGroups(StreamInput in) throws IOException {
+        return Collections.unmodifiableSet(MetricGroup.fromKeys(Arrays.asList(in.readStringArray())));
+    }
+
+    private static void writeMetricGroups(StreamOutput out, Set<MetricGroup> metricGroups) throws IOException {
+        out.writeStringArray(metricGroups.stream().map(MetricGroup::key).toArray(String[]::new));
+    }
+
+    /**
+     * The request sent to each of the selected nodes, it carries only the metric groups to collect.
+     */
+    @SuppressWarnings("deprecation")
+    public static class NodeRequest extends BaseNodeRequest {
+
+        private final Set<MetricGroup> metricGroups;
+
+        /**
+         * A constructor.
+         * @param metricGroups Metric groups to collect
+         */
+        public NodeRequest(Set<MetricGroup> metricGroups) {
+            this.metricGroups = metricGroups;
+        }
+
+        /**
+         * A constructor that utilizes the inputStream.
+         * @param in inputStream
+         * @throws IOException if there is an exception reading from inputStream
+         */
+        public NodeRequest(StreamInput in) throws IOException {
+            super(in);
+            metricGroups = readMetricGroups(in);
+        }
+
+        @Override
+        public void writeTo(StreamOutput out) throws IOException {
+            super.writeTo(out);
+            writeMetricGroups(out, metricGroups);
+        }
+
+        /**
+         * @return Metric groups to collect
+         */
+        public Set<MetricGroup> metricGroups() {
+            return metricGroups;
+        }
+    }
+}
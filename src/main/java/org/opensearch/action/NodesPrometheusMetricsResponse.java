@@ -0,0 +1,106 @@
+/*
+ * Copyright [2016] [Vincent VAN HOLLEBEKE]
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package org.opensearch.action;
+
+import org.compuscene.metrics.prometheus.MetricsSnapshot;
+import org.opensearch.action.support.nodes.BaseNodeResponse;
+import org.opensearch.action.support.nodes.BaseNodesResponse;
+import org.opensearch.cluster.ClusterName;
+import org.opensearch.cluster.node.DiscoveryNode;
+import org.opensearch.core.common.io.stream.StreamInput;
+import org.opensearch.core.common.io.stream.StreamOutput;
+
+import java.io.IOException;
+import java.util.List;
+
+/**
+ * Response holding node level metrics rendered by each of the selected nodes.
+ */
+public class NodesPrometheusMetricsResponse extends BaseNodesResponse<NodesPrometheusMetricsResponse.NodeResponse> {
+
+    /**
+     * A constructor.
+     * @param clusterName Cluster name
+     * @param nodes Responses of the nodes
+     * @param failures Failures of the nodes
+     */
+    public NodesPrometheusMetricsResponse(ClusterName clusterName, List<NodeResponse> nodes,
+                                          List<FailedNodeException> failures) {
+        super(clusterName, nodes, failures);
+    }
+
+    /**
+     * A constructor that utilizes the inputStream.
+     * @param in inputStream
+     * @throws IOException if there is an exception reading from inputStream
+     */
+    public NodesPrometheusMetricsResponse(StreamInput in) throws IOException {
+        super(in);
+    }
+
+    @Override
+    protected List<NodeResponse> readNodesFrom(StreamInput in) throws IOException {
+        return in.readList(NodeResponse::new);
+    }
+
+    @Override
+    protected void writeNodesTo(StreamOutput out, List<NodeResponse> nodes) throws IOException {
+        out.writeList(nodes);
+    }
+
+    /**
+     * Node level metrics rendered by a single node.
+     */
+    public static class NodeResponse extends BaseNodeResponse {
+        private final MetricsSnapshot snapshot;
+
+        /**
+         * A constructor.
+         * @param node The node that rendered the metrics
+         * @param snapshot Snapshot of the node level metrics
+         */
+        public NodeResponse(DiscoveryNode node, MetricsSnapshot snapshot) {
+            super(node);
+            this.snapshot = snapshot;
+        }
+
+        /**
+         * A constructor that utilizes the inputStream.
+         * @param in inputStream
+         * @throws IOException if there is an exception reading from inputStream
+         */
+        public NodeResponse(StreamInput in) throws IOException {
+            super(in);
+            snapshot = new MetricsSnapshot(in);
+        }
+
+        /**
+         * Get snapshot of the node level metrics.
+         * @return MetricsSnapshot object
+         */
+        public MetricsSnapshot getSnapshot() {
+            return snapshot;
+        }
+
+        @Override
+        public void writeTo(StreamOutput out) throws IOException {
+            super.writeTo(out);
+            snapshot.writeTo(out);
+        }
+    }
+}
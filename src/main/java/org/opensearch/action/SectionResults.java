@@ -0,0 +1,146 @@
+/*
+ * Copyright [2016] [Vincent VAN HOLLEBEKE]
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package org.opensearch.action;
+
+import org.opensearch.core.common.io.stream.StreamInput;
+import org.opensearch.core.common.io.stream.StreamOutput;
+import org.opensearch.core.common.io.stream.Writeable;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Outcome of the individual sections (requests) of a collection: whether each of them succeeded, how many nodes
+ * failed to respond to it and how long it took. Sections that failed or timed out are left out of the collected
+ * metrics, the rest is still exported.
+ */
+public final class SectionResults implements Writeable {
+
+    /**
+     * The cluster health section.
+     */
+    public static final String CLUSTER_HEALTH = "cluster_health";
+
+    /**
+     * The nodes stats section, in distributed mode the node level metrics rendered by the nodes.
+     */
+    public static final String NODES_STATS = "nodes_stats";
+
+    /**
+     * The indices stats section.
+     */
+    public static final String INDICES_STATS = "indices_stats";
+
+    private final List<String> sections = new ArrayList<>();
+    private final List<Boolean> successes = new ArrayList<>();
+    private final List<Integer> failedNodes = new ArrayList<>();
+    private final List<Long> durations = new ArrayList<>();
+
+    /**
+     * A constructor.
+     */
+    public SectionResults() {
+    }
+
+    /**
+     * A constructor that utilizes the inputStream.
+     * @param in inputStream
+     * @throws IOException if there is an exception reading from inputStream
+     */
+    public SectionResults(StreamInput in) throws IOException {
+        int size = in.readVInt();
+        for (int i = 0; i < size; i++) {
+            add(in.readString(), in.readBoolean(), in.readVInt(), in.readVLong());
+        }
+    }
+
+    /**
+     * Record the outcome of a section. Sections of a parallel collection complete concurrently.
+     * @param section Name of the section
+     * @param success Whether the section succeeded
+     * @param durationNanos How long the section took
+     */
+    public void add(String section, boolean success, long durationNanos) {
+        add(section, success, 0, durationNanos);
+    }
+
+    /**
+     * Record the outcome of a section sent to several nodes. Sections of a parallel collection complete concurrently.
+     * @param section Name of the section
+     * @param success Whether the section succeeded
+     * @param failedNodes Number of nodes that failed to respond, e.g. because their thread pool rejected the request
+     * @param durationNanos How long the section took
+     */
+    public synchronized void add(String section, boolean success, int failedNodes, long durationNanos) {
+        sections.add(section);
+        successes.add(success);
+        this.failedNodes.add(failedNodes);
+        durations.add(durationNanos);
+    }
+
+    /**
+     * @return Number of recorded sections
+     */
+    public synchronized int size() {
+        return sections.size();
+    }
+
+    /**
+     * @param i Index of the section
+     * @return Name of the section
+     */
+    public synchronized String section(int i) {
+        return sections.get(i);
+    }
+
+    /**
+     * @param i Index of the section
+     * @return Whether the section succeeded
+     */
+    public synchronized boolean success(int i) {
+        return successes.get(i);
+    }
+
+    /**
+     * @param i Index of the section
+     * @return Number of nodes that failed to respond to the section
+     */
+    public synchronized int failedNodes(int i) {
+        return failedNodes.get(i);
+    }
+
+    /**
+     * @param i Index of the section
+     * @return How long the section took in nanoseconds
+     */
+    public synchronized long durationNanos(int i) {
+        return durations.get(i);
+    }
+
+    @Override
+    public synchronized void writeTo(StreamOutput out) throws IOException {
+        out.writeVInt(sections.size());
+        for (int i = 0; i < sections.size(); i++) {
+            out.writeString(sections.get(i));
+            out.writeBoolean(successes.get(i));
+            out.writeVInt(failedNodes.get(i));
+            out.writeVLong(durations.get(i));
+        }
+    }
+}
@@ -19,233 +19,576 @@ package org.opensearch.action;
 
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
+import org.apache.logging.log4j.message.ParameterizedMessage;
+import org.compuscene.metrics.prometheus.MetricGroup;
+import org.compuscene.metrics.prometheus.MetricsSnapshot;
+import org.compuscene.metrics.prometheus.PrometheusMetricsCollector;
 import org.compuscene.metrics.prometheus.PrometheusSettings;
-import org.opensearch.OpenSearchException;
 import org.opensearch.action.admin.cluster.health.ClusterHealthRequest;
 import org.opensearch.action.admin.cluster.health.ClusterHealthResponse;
-import org.opensearch.action.admin.cluster.node.info.NodesInfoRequest;
-import org.opensearch.action.admin.cluster.node.info.NodesInfoResponse;
 import org.opensearch.action.admin.cluster.node.stats.NodeStats;
 import org.opensearch.action.admin.cluster.node.stats.NodesStatsRequest;
 import org.opensearch.action.admin.cluster.node.stats.NodesStatsResponse;
-import org.opensearch.action.admin.cluster.state.ClusterStateRequest;
-import org.opensearch.action.admin.cluster.state.ClusterStateResponse;
 import org.opensearch.action.admin.indices.stats.IndicesStatsRequest;
 import org.opensearch.action.admin.indices.stats.IndicesStatsResponse;
+import org.opensearch.action.admin.indices.stats.ShardStats;
 import org.opensearch.action.support.ActionFilters;
+import org.opensearch.action.support.GroupedActionListener;
 import org.opensearch.action.support.HandledTransportAction;
+import org.opensearch.action.support.ListenerTimeouts;
+import org.opensearch.action.support.nodes.BaseNodesResponse;
 import org.opensearch.client.Client;
 import org.opensearch.client.Requests;
+import org.opensearch.cluster.metadata.IndexNameExpressionResolver;
+import org.opensearch.cluster.node.DiscoveryNode;
+import org.opensearch.cluster.routing.allocation.DiskThresholdSettings;
+import org.opensearch.cluster.service.ClusterService;
 import org.opensearch.common.Nullable;
+import org.opensearch.common.collect.Tuple;
 import org.opensearch.common.inject.Inject;
 import org.opensearch.common.settings.ClusterSettings;
+import org.opensearch.common.settings.Setting;
 import org.opensearch.common.settings.Settings;
+import org.opensearch.common.unit.TimeValue;
 import org.opensearch.core.action.ActionListener;
+import org.opensearch.core.concurrency.OpenSearchRejectedExecutionException;
 import org.opensearch.tasks.Task;
+import org.opensearch.threadpool.ThreadPool;
 import org.opensearch.transport.TransportService;
 
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.function.Consumer;
+
 /**
  * Transport action class for Prometheus Exporter plugin.
  *
- * It performs several requests within the cluster to gather "cluster health", "local nodes info", "nodes stats", "indices stats"
- * and "cluster state" (i.e. cluster settings) info. Some of those requests are optional depending on plugin
- * settings.
+ * It performs several requests within the cluster to gather "cluster health", "nodes stats" and "indices stats" info.
+ * Some of those requests are optional depending on plugin settings and on the metric groups the request selects
+ * (see {@link NodePrometheusMetricsRequest#metricGroups(Set)}), only the nodes stats sections of the selected
+ * groups are requested. Cluster settings (i.e. disk watermarks) are tracked
+ * locally by a settings update consumer and the local node identity is known by the transport service, they need
+ * no request.
+ *
+ * Concurrent requests are coalesced: while a collection is running, new requests subscribe to its result instead
+ * of starting another one, provided it collects all the metric groups they select and the same shard of indices.
+ * The number of collections running at the same time is capped, requests over the cap are rejected (HTTP 429).
+ *
+ * The requests are sent one after another by default. Optionally they can be sent in parallel (up to a limit),
+ * trading consistency of the collected metrics for lower latency.
+ *
+ * A request that fails or does not complete within the section timeout (or before the deadline of the scrape, see
+ * {@link NodePrometheusMetricsRequest#scrapeTimeout(TimeValue)}) does not fail the collection, the metrics of that
+ * section are left out and the outcome of every section is reported in {@link SectionResults}.
+ *
+ * Optionally the node level metrics are collected in a distributed way: each node extracts the exported values
+ * from its own stats and sends back only a compact snapshot of them, see {@link TransportNodesPrometheusMetricsAction}.
+ *
+ * Optionally the index level stats are collected in batches, each collection refreshes the stats of one batch of
+ * indices and returns them merged with the stats of the other indices kept from the previous collections, see
+ * {@link IndicesStatsBatches}.
+ *
+ * A request can restrict the index level metrics to the indices whose name hashes into one of several shards (see
+ * {@link NodePrometheusMetricsRequest#indexShard(int, int)}), only the stats of those indices are requested.
  */
 public class TransportNodePrometheusMetricsAction extends HandledTransportAction<NodePrometheusMetricsRequest,
         NodePrometheusMetricsResponse> {
+
+    static String COLLECTION_COALESCE_KEY = "prometheus.collection.coalesce";
+
+    /**
+     * Whether concurrent requests share the result of a running collection. Can be configured in opensearch.yml
+     * file under key {@link #COLLECTION_COALESCE_KEY}.
+     */
+    public static final Setting<Boolean> COLLECTION_COALESCE =
+            Setting.boolSetting(COLLECTION_COALESCE_KEY, true, Setting.Property.NodeScope);
+
+    static String COLLECTION_MAX_CONCURRENT_KEY = "prometheus.collection.max_concurrent";
+
+    /**
+     * Maximum number of collections running at the same time on the node. Can be configured in opensearch.yml
+     * file under key {@link #COLLECTION_MAX_CONCURRENT_KEY}.
+     */
+    public static final Setting<Integer> COLLECTION_MAX_CONCURRENT =
+            Setting.intSetting(COLLECTION_MAX_CONCURRENT_KEY, 2, 1, Setting.Property.NodeScope);
+
+    static String COLLECTION_PARALLEL_KEY = "prometheus.collection.parallel";
+
+    /**
+     * Whether the requests of a collection are sent in parallel instead of one after another. Can be configured
+     * in opensearch.yml file under key {@link #COLLECTION_PARALLEL_KEY}.
+     */
+    public static final Setting<Boolean> COLLECTION_PARALLEL =
+            Setting.boolSetting(COLLECTION_PARALLEL_KEY, false, Setting.Property.NodeScope);
+
+    static String COLLECTION_PARALLEL_MAX_REQUESTS_KEY = "prometheus.collection.parallel.max_requests";
+
+    /**
+     * Maximum number of requests of a single collection in flight at the same time when they are sent in parallel.
+     * Can be configured in opensearch.yml file under key {@link #COLLECTION_PARALLEL_MAX_REQUESTS_KEY}.
+     */
+    public static final Setting<Integer> COLLECTION_PARALLEL_MAX_REQUESTS =
+            Setting.intSetting(COLLECTION_PARALLEL_MAX_REQUESTS_KEY, 3, 1, Setting.Property.NodeScope);
+
+    static String COLLECTION_DISTRIBUTED_KEY = "prometheus.collection.distributed";
+
+    /**
+     * Whether each node renders its own node level metrics instead of sending its full nodes stats. Can be
+     * configured in opensearch.yml file under key {@link #COLLECTION_DISTRIBUTED_KEY}.
+     */
+    public static final Setting<Boolean> COLLECTION_DISTRIBUTED =
+            Setting.boolSetting(COLLECTION_DISTRIBUTED_KEY, false, Setting.Property.NodeScope);
+
+    static String COLLECTION_SECTION_TIMEOUT_KEY = "prometheus.collection.section_timeout";
+
+    /**
+     * Maximum time a single request of a collection may take before it is skipped. Can be configured in
+     * opensearch.yml file under key {@link #COLLECTION_SECTION_TIMEOUT_KEY}.
+     */
+    public static final Setting<TimeValue> COLLECTION_SECTION_TIMEOUT =
+            Setting.positiveTimeSetting(COLLECTION_SECTION_TIMEOUT_KEY, TimeValue.timeValueSeconds(30),
+                    Setting.Property.NodeScope);
+
     private final Client client;
-    private final Settings settings;
-    private final ClusterSettings clusterSettings;
+    private final ThreadPool threadPool;
+    private final TransportService transportService;
+    private final ClusterService clusterService;
+    private final IndexNameExpressionResolver indexNameExpressionResolver;
     private final PrometheusSettings prometheusSettings;
+    private final boolean coalesce;
+    private final int maxConcurrent;
+    private final boolean parallel;
+    private final int parallelMaxRequests;
+    private final boolean distributed;
+    private final TimeValue sectionTimeout;
     private final Logger logger = LogManager.getLogger(getClass());
 
+    // Guarded by this. Stats kept by the batches of each shard of indices, keyed by "shard/shards".
+    private final Map<String, IndicesStatsBatches> indicesStatsBatches = new HashMap<>();
+
+    // Parsed disk threshold settings, replaced whenever any of them changes.
+    private volatile ClusterStatsData clusterStatsData;
+
+    // Guarded by this. The collection new requests subscribe to, if any, and the number of running collections.
+    private InFlightCollection inFlight;
+    private int running;
+
     /**
      * A constructor.
      * @param settings Settings
      * @param client Cluster client
+     * @param threadPool Thread pool
      * @param transportService Transport service
      * @param actionFilters Action filters
      * @param clusterSettings Cluster settings
+     * @param clusterService Cluster service
+     * @param indexNameExpressionResolver Index name expression resolver
      */
     @Inject
-    public TransportNodePrometheusMetricsAction(Settings settings, Client client,
+    public TransportNodePrometheusMetricsAction(Settings settings, Client client, ThreadPool threadPool,
                                                 TransportService transportService, ActionFilters actionFilters,
-                                                ClusterSettings clusterSettings) {
+                                                ClusterSettings clusterSettings, ClusterService clusterService,
+                                                IndexNameExpressionResolver indexNameExpressionResolver) {
         super(NodePrometheusMetricsAction.NAME, transportService, actionFilters,
                 NodePrometheusMetricsRequest::new);
         this.client = client;
-        this.settings = settings;
-        this.clusterSettings = clusterSettings;
+        this.threadPool = threadPool;
+        this.transportService = transportService;
+        this.clusterService = clusterService;
+        this.indexNameExpressionResolver = indexNameExpressionResolver;
         this.prometheusSettings = new PrometheusSettings(settings, clusterSettings);
+        this.clusterStatsData = new ClusterStatsData(clusterSettings);
+        clusterSettings.addSettingsUpdateConsumer(s -> clusterStatsData = new ClusterStatsData(s), Arrays.asList(
+                DiskThresholdSettings.CLUSTER_ROUTING_ALLOCATION_DISK_THRESHOLD_ENABLED_SETTING,
+                DiskThresholdSettings.CLUSTER_ROUTING_ALLOCATION_LOW_DISK_WATERMARK_SETTING,
+                DiskThresholdSettings.CLUSTER_ROUTING_ALLOCATION_HIGH_DISK_WATERMARK_SETTING,
+                DiskThresholdSettings.CLUSTER_ROUTING_ALLOCATION_DISK_FLOOD_STAGE_WATERMARK_SETTING));
+        this.coalesce = COLLECTION_COALESCE.get(settings);
+        this.maxConcurrent = COLLECTION_MAX_CONCURRENT.get(settings);
+        this.parallel = COLLECTION_PARALLEL.get(settings);
+        this.parallelMaxRequests = COLLECTION_PARALLEL_MAX_REQUESTS.get(settings);
+        this.distributed = COLLECTION_DISTRIBUTED.get(settings);
+        this.sectionTimeout = COLLECTION_SECTION_TIMEOUT.get(settings);
     }
 
     @Override
     protected void doExecute(Task task, NodePrometheusMetricsRequest request,
                              ActionListener<NodePrometheusMetricsResponse> listener) {
-        new AsyncAction(listener).start();
+        Set<MetricGroup> groups = request.metricGroups() != null
+                ? request.metricGroups()
+                : prometheusSettings.getMetricGroups();
+        InFlightCollection collection;
+        synchronized (this) {
+            if (inFlight != null && inFlight.covers(request, groups)) {
+                inFlight.listeners.add(listener);
+                return;
+            }
+            if (running >= maxConcurrent) {
+                listener.onFailure(new OpenSearchRejectedExecutionException(
+                        "Too many concurrent Prometheus metrics collections [" + running + "], limit is [" + maxConcurrent + "]"));
+                return;
+            }
+            running++;
+            collection = new InFlightCollection(listener, request, groups);
+            if (coalesce) {
+                inFlight = collection;
+            }
+        }
+        new AsyncAction(collection, request, groups).start();
+    }
+
+    private synchronized IndicesStatsBatches indicesStatsBatches(int indexShard, int indexShards) {
+        return indicesStatsBatches.computeIfAbsent(indexShard + "/" + indexShards, k -> new IndicesStatsBatches());
+    }
+
+    /**
+     * A running collection and all the listeners waiting for its result.
+     */
+    private class InFlightCollection implements ActionListener<NodePrometheusMetricsResponse> {
+        // Guarded by TransportNodePrometheusMetricsAction.this until the collection completes.
+        private final List<ActionListener<NodePrometheusMetricsResponse>> listeners = new ArrayList<>();
+        private final Set<MetricGroup> groups;
+        private final int indexShard;
+        private final int indexShards;
+
+        private InFlightCollection(ActionListener<NodePrometheusMetricsResponse> listener,
+                                   NodePrometheusMetricsRequest request, Set<MetricGroup> groups) {
+            listeners.add(listener);
+            this.groups = groups;
+            this.indexShard = request.indexShard();
+            this.indexShards = request.indexShards();
+        }
+
+        private boolean covers(NodePrometheusMetricsRequest request, Set<MetricGroup> groups) {
+            return this.groups.containsAll(groups)
+                    && indexShard == request.indexShard()
+                    && indexShards == request.indexShards();
+        }
+
+        private List<ActionListener<NodePrometheusMetricsResponse>> complete() {
+            synchronized (TransportNodePrometheusMetricsAction.this) {
+                if (inFlight == this) {
+                    inFlight = null;
+                }
+                running--;
+                return new ArrayList<>(listeners);
+            }
+        }
+
+        @Override
+        public void onResponse(NodePrometheusMetricsResponse response) {
+            ActionListener.onResponse(complete(), response);
+        }
+
+        @Override
+        public void onFailure(Exception e) {
+            ActionListener.onFailure(complete(), e);
+        }
     }
 
     private class AsyncAction {
 
         private final ActionListener<NodePrometheusMetricsResponse> listener;
 
-        private final ClusterHealthRequest healthRequest;
-        private final NodesInfoRequest localNodesInfoRequest;
+        @Nullable private final ClusterHealthRequest healthRequest;
         private final NodesStatsRequest nodesStatsRequest;
+        private final NodesPrometheusMetricsRequest nodesMetricsRequest;
         private final IndicesStatsRequest indicesStatsRequest;
-        private final ClusterStateRequest clusterStateRequest;
 
         private ClusterHealthResponse clusterHealthResponse = null;
-        private NodesInfoResponse localNodesInfoResponse = null;
         private NodesStatsResponse nodesStatsResponse = null;
+        private NodesPrometheusMetricsResponse nodesMetricsResponse = null;
         private IndicesStatsResponse indicesStatsResponse = null;
-        private ClusterStateResponse clusterStateResponse = null;
+        private Map<String, Long> indexStatsTimestamps = null;
+
+        private final SectionResults sectionResults = new SectionResults();
+        // Time all sections must complete within, from startNanos, or null if only the section timeout applies
+        private final TimeValue scrapeTimeout;
+        private final long startNanos = System.nanoTime();
 
         // read the state of prometheus dynamic settings only once at the beginning of the async request
-        private final boolean isPrometheusIndices = prometheusSettings.getPrometheusIndices();
-        private final boolean isPrometheusClusterSettings = prometheusSettings.getPrometheusClusterSettings();
+        private final boolean isPrometheusIndices;
+        private final boolean isPrometheusClusterSettings;
         private final String prometheusNodesFilter = prometheusSettings.getNodesFilter();
+        private final int indicesBatches = prometheusSettings.getIndicesBatches();
+        private final int indexShard;
+        private final int indexShards;
 
         // All the requests are executed in sequential non-blocking order.
         // It is implemented by wrapping each individual request with ActionListener
         // and chaining all of them into a sequence. The last member of the chain call method that gathers
         // all the responses from previous requests and pass them to outer listener (i.e. calling client).
-        // Optional requests are skipped.
+        // Optional requests and requests of metric groups that are not selected are skipped.
+        //
+        // None of the requests depend on each other so they can also be executed in parallel (see
+        // COLLECTION_PARALLEL), however, some of the requests can impact cluster performance (especially if
+        // the cluster is already overloaded) and in this situation it is better to run all requests in predictable
+        // order so that collected metrics stay consistent. That is why the sequential order is the default.
         //
-        // In the future we might consider executing all the requests in parallel if needed (CountDownLatch?),
-        // however, some of the requests can impact cluster performance (especially if the cluster is already overloaded)
-        // and in this situation it is better to run all requests in predictable order so that collected metrics
-        // stay consistent.
-        private AsyncAction(ActionListener<NodePrometheusMetricsResponse> listener) {
+        // Each request is a section of the collection. A section that fails or does not complete in time is
+        // skipped, the collection goes on and the metrics of the other sections are still returned.
+        private AsyncAction(ActionListener<NodePrometheusMetricsResponse> listener, NodePrometheusMetricsRequest request,
+                            Set<MetricGroup> groups) {
             this.listener = listener;
+            this.scrapeTimeout = request.scrapeTimeout();
+            this.indexShard = request.indexShard();
+            this.indexShards = request.indexShards();
+            this.isPrometheusIndices = prometheusSettings.getPrometheusIndices() && groups.contains(MetricGroup.INDEX);
+            this.isPrometheusClusterSettings = prometheusSettings.getPrometheusClusterSettings()
+                    && groups.contains(MetricGroup.CLUSTER_SETTINGS);
 
             // Note: when using ClusterHealthRequest in Java, it pulls data at the shards level, according to ES source
             // code comment this is "so it is backward compatible with the transport client behaviour".
             // hence we are explicit about ClusterHealthRequest level and do not rely on defaults.
             // https://www.elastic.co/guide/en/elasticsearch/reference/6.4/cluster-health.html#request-params
-            this.healthRequest = Requests.clusterHealthRequest().local(true);
-            this.healthRequest.level(ClusterHealthRequest.Level.SHARDS);
-
-            // We want to get only the most minimal static info from local node (cluster name, node name and nodeID).
-            this.localNodesInfoRequest = Requests.nodesInfoRequest("_local").clear();
+            // The collector reads only cluster level and per index counts. At the indices level the per index counts
+            // are computed without materializing health of every shard copy, the numbers are the same as at the shards
+            // level. Per index health is not needed at all when index level metrics are disabled.
+            if (groups.contains(MetricGroup.CLUSTER) || isPrometheusIndices) {
+                this.healthRequest = Requests.clusterHealthRequest().local(true);
+                this.healthRequest.level(isPrometheusIndices
+                        ? ClusterHealthRequest.Level.INDICES
+                        : ClusterHealthRequest.Level.CLUSTER);
+            } else {
+                this.healthRequest = null;
+            }
 
-            this.nodesStatsRequest = Requests.nodesStatsRequest(prometheusNodesFilter).clear().all();
+            // Only the sections the collector exports are requested, every other section would be computed
+            // and serialized by each node for nothing. In distributed mode the nodes go one step further and send
+            // only the exported values.
+            if (groups.stream().noneMatch(MetricGroup::isNodeStats)) {
+                this.nodesStatsRequest = null;
+                this.nodesMetricsRequest = null;
+            } else if (distributed) {
+                this.nodesStatsRequest = null;
+                this.nodesMetricsRequest = new NodesPrometheusMetricsRequest(groups, prometheusNodesFilter);
+            } else {
+                this.nodesStatsRequest = Requests.nodesStatsRequest(prometheusNodesFilter).clear()
+                        .addMetrics(PrometheusMetricsCollector.nodeStatsMetrics(groups));
+                if (groups.contains(MetricGroup.INDICES)) {
+                    this.nodesStatsRequest.indices(PrometheusMetricsCollector.nodeIndicesStatsFlags());
+                }
+                this.nodesMetricsRequest = null;
+            }
 
             // Indices stats request is not "node-specific", it does not support any "_local" notion
             // it is broad-casted to all cluster nodes.
             if (isPrometheusIndices) {
                 IndicesStatsRequest indicesStatsRequest = new IndicesStatsRequest();
+                indicesStatsRequest.flags(PrometheusMetricsCollector.indexStatsFlags());
                 indicesStatsRequest.indices(prometheusSettings.getPrometheusSelectedIndices());
                 indicesStatsRequest.indicesOptions(prometheusSettings.getIndicesOptions());
                 this.indicesStatsRequest = indicesStatsRequest;
             } else {
                 this.indicesStatsRequest = null;
             }
-
-            // Cluster settings are get via ClusterStateRequest (see elasticsearch RestClusterGetSettingsAction for details)
-            // We prefer to send it to master node (hence local=false; it should be set by default but we want to be sure).
-            this.clusterStateRequest = isPrometheusClusterSettings ? Requests.clusterStateRequest()
-                    .clear().metadata(true).local(false) : null;
         }
 
         private void gatherRequests() {
-            listener.onResponse(buildResponse(clusterHealthResponse, localNodesInfoResponse, nodesStatsResponse, indicesStatsResponse,
-                    clusterStateResponse));
+            listener.onResponse(buildResponse(clusterHealthResponse, nodesStatsResponse, nodesMetricsResponse,
+                    indicesStatsResponse, isPrometheusClusterSettings ? clusterStatsData : null, sectionResults,
+                    indexStatsTimestamps));
         }
 
-        private final ActionListener<ClusterStateResponse> clusterStateResponseActionListener =
-            new ActionListener<ClusterStateResponse>() {
-                @Override
-                public void onResponse(ClusterStateResponse response) {
-                    clusterStateResponse = response;
-                    gatherRequests();
-                }
+        private void requestClusterHealth(Runnable next) {
+            client.admin().cluster().health(healthRequest,
+                    section(SectionResults.CLUSTER_HEALTH, r -> clusterHealthResponse = r, next));
+        }
 
-                @Override
-                public void onFailure(Exception e) {
-                    listener.onFailure(new OpenSearchException("Cluster state request failed", e));
-                }
-            };
+        private void requestNodes(Runnable next) {
+            if (nodesMetricsRequest != null) {
+                client.execute(NodesPrometheusMetricsAction.INSTANCE, nodesMetricsRequest,
+                        section(SectionResults.NODES_STATS, r -> nodesMetricsResponse = r, next));
+            } else {
+                client.admin().cluster().nodesStats(nodesStatsRequest,
+                        section(SectionResults.NODES_STATS, r -> nodesStatsResponse = r, next));
+            }
+        }
 
-        private final ActionListener<IndicesStatsResponse> indicesStatsResponseActionListener =
-            new ActionListener<IndicesStatsResponse>() {
-                @Override
-                public void onResponse(IndicesStatsResponse response) {
-                    indicesStatsResponse = response;
-                    if (isPrometheusClusterSettings) {
-                        client.admin().cluster().state(clusterStateRequest, clusterStateResponseActionListener);
-                    } else {
-                        gatherRequests();
-                    }
-                }
+        private void requestIndicesStats(Runnable next) {
+            if (indicesBatches <= 1 && indexShards <= 1) {
+                client.admin().indices().stats(indicesStatsRequest,
+                        section(SectionResults.INDICES_STATS, r -> indicesStatsResponse = r, next));
+                return;
+            }
+            // Only some of the selected indices are requested, they are resolved first.
+            String[] indices;
+            try {
+                indices = indexNameExpressionResolver.concreteIndexNames(clusterService.state(),
+                        indicesStatsRequest.indicesOptions(), indicesStatsRequest.indices());
+            } catch (Exception e) {
+                section(SectionResults.INDICES_STATS, r -> {}, next).onFailure(e);
+                return;
+            }
+            if (indexShards > 1) {
+                // The indices of the other shards are left to the other scrapers.
+                indices = Arrays.stream(indices)
+                        .filter(index -> IndicesStatsBatches.slot(index, indexShards) == indexShard)
+                        .toArray(String[]::new);
+            }
+            if (indicesBatches > 1) {
+                requestIndicesStatsBatch(indices, next);
+            } else {
+                sendIndicesStats(indices, section(SectionResults.INDICES_STATS, r -> indicesStatsResponse = r, next));
+            }
+        }
 
-                @Override
-                public void onFailure(Exception e) {
-                    listener.onFailure(new OpenSearchException("Indices stats request failed", e));
-                }
-            };
+        // Only the stats of the next batch of the indices are requested, the response carries the stats
+        // of all of them merged with the ones kept from the previous collections, even if the batch fails.
+        private void requestIndicesStatsBatch(String[] indices, Runnable next) {
+            IndicesStatsBatches batches = indicesStatsBatches(indexShard, indexShards);
+            long timestampMillis = threadPool.absoluteTimeInMillis();
+            ActionListener<IndicesStatsResponse> batchListener = section(SectionResults.INDICES_STATS,
+                    r -> mergeIndicesStats(batches, indices, r, timestampMillis),
+                    () -> {
+                        if (indicesStatsResponse == null) {
+                            mergeIndicesStats(batches, indices, null, timestampMillis);
+                        }
+                        next.run();
+                    });
+            sendIndicesStats(batches.nextBatch(indices, indicesBatches), batchListener);
+        }
 
-        private final ActionListener<NodesStatsResponse> nodesStatsResponseActionListener =
-            new ActionListener<NodesStatsResponse>() {
-                @Override
-                public void onResponse(NodesStatsResponse nodeStats) {
-                    nodesStatsResponse = nodeStats;
-                    if (isPrometheusIndices) {
-                        client.admin().indices().stats(indicesStatsRequest, indicesStatsResponseActionListener);
-                    } else {
-                        indicesStatsResponseActionListener.onResponse(null);
-                    }
-                }
+        private void sendIndicesStats(String[] indices, ActionListener<IndicesStatsResponse> listener) {
+            if (indices.length == 0) {
+                // An empty list of indices would select all of them.
+                listener.onResponse(new IndicesStatsResponse(new ShardStats[0], 0, 0, 0, Collections.emptyList()));
+                return;
+            }
+            IndicesStatsRequest request = new IndicesStatsRequest();
+            request.flags(indicesStatsRequest.flags());
+            request.indices(indices);
+            request.indicesOptions(indicesStatsRequest.indicesOptions());
+            client.admin().indices().stats(request, listener);
+        }
 
-                @Override
-                public void onFailure(Exception e) {
-                    listener.onFailure(new OpenSearchException("Nodes stats request failed", e));
-                }
-            };
+        private void mergeIndicesStats(IndicesStatsBatches batches, String[] indices,
+                                       @Nullable IndicesStatsResponse batchStats, long timestampMillis) {
+            Tuple<IndicesStatsResponse, Map<String, Long>> merged = batches.merge(indices, batchStats, timestampMillis);
+            indicesStatsResponse = merged.v1();
+            indexStatsTimestamps = merged.v2();
+        }
 
-        private final ActionListener<NodesInfoResponse> localNodesInfoResponseActionListener =
-            new ActionListener<NodesInfoResponse>() {
+        /**
+         * Wrap the listener of a section request. The section is given the per-section timeout or whatever is left
+         * until the deadline, whichever is shorter. Either way the collection continues with the next step.
+         */
+        private <T> ActionListener<T> section(String name, Consumer<T> onResponse, Runnable next) {
+            long sectionStartNanos = System.nanoTime();
+            ActionListener<T> sectionListener = new ActionListener<T>() {
                 @Override
-                public void onResponse(NodesInfoResponse nodesInfoResponse) {
-                    localNodesInfoResponse = nodesInfoResponse;
-                    client.admin().cluster().nodesStats(nodesStatsRequest, nodesStatsResponseActionListener);
+                public void onResponse(T response) {
+                    onResponse.accept(response);
+                    // Nodes that failed or rejected the request are left out of a nodes response.
+                    int failedNodes = response instanceof BaseNodesResponse
+                            ? ((BaseNodesResponse<?>) response).failures().size()
+                            : 0;
+                    sectionResults.add(name, true, failedNodes, System.nanoTime() - sectionStartNanos);
+                    next.run();
                 }
 
                 @Override
                 public void onFailure(Exception e) {
-                    listener.onFailure(new OpenSearchException("Nodes info request failed for local node", e));
+                    logger.warn(new ParameterizedMessage("Prometheus metrics section [{}] failed, it is skipped", name), e);
+                    sectionResults.add(name, false, System.nanoTime() - sectionStartNanos);
+                    next.run();
                 }
             };
+            long timeoutNanos = sectionTimeout.nanos();
+            if (scrapeTimeout != null) {
+                // Only differences of System.nanoTime() values are meaningful, the values themselves may overflow.
+                long remainingNanos = scrapeTimeout.nanos() - (sectionStartNanos - startNanos);
+                timeoutNanos = Math.min(timeoutNanos, remainingNanos);
+            }
+            return ListenerTimeouts.wrapWithTimeout(threadPool, sectionListener,
+                    TimeValue.timeValueNanos(Math.max(timeoutNanos, 0)), ThreadPool.Names.GENERIC, name);
+        }
 
-        private final ActionListener<ClusterHealthResponse> clusterHealthResponseActionListener =
-            new ActionListener<ClusterHealthResponse>() {
-                @Override
-                public void onResponse(ClusterHealthResponse response) {
-                    clusterHealthResponse = response;
-                    client.admin().cluster().nodesInfo(localNodesInfoRequest, localNodesInfoResponseActionListener);
-                }
+        private void start() {
+            List<Consumer<Runnable>> requests = new ArrayList<>();
+            if (healthRequest != null) {
+                requests.add(this::requestClusterHealth);
+            }
+            if (nodesStatsRequest != null || nodesMetricsRequest != null) {
+                requests.add(this::requestNodes);
+            }
+            if (indicesStatsRequest != null) {
+                requests.add(this::requestIndicesStats);
+            }
+            if (requests.isEmpty()) {
+                gatherRequests();
+            } else if (parallel) {
+                startParallel(requests);
+            } else {
+                sendSequential(requests.iterator());
+            }
+        }
+
+        private void sendSequential(Iterator<Consumer<Runnable>> requests) {
+            if (requests.hasNext()) {
+                requests.next().accept(() -> sendSequential(requests));
+            } else {
+                gatherRequests();
+            }
+        }
 
+        // All the requests are sent at once (or at most parallelMaxRequests at a time) and joined by a grouped
+        // listener. Once all of them complete the responses are gathered the same way as in the sequential chain.
+        private void startParallel(List<Consumer<Runnable>> requests) {
+            // The grouped listener publishes the responses stored by the sections to the thread that gathers them.
+            GroupedActionListener<Void> group = new GroupedActionListener<>(
+                    ActionListener.wrap(responses -> gatherRequests(), listener::onFailure), requests.size());
+            Queue<Consumer<Runnable>> pending = new ConcurrentLinkedQueue<>(requests);
+            Runnable step = new Runnable() {
                 @Override
-                public void onFailure(Exception e) {
-                    listener.onFailure(new OpenSearchException("Cluster health request failed", e));
+                public void run() {
+                    group.onResponse(null);
+                    Consumer<Runnable> request = pending.poll();
+                    if (request != null) {
+                        request.accept(this);
+                    }
                 }
             };
-
-        private void start() {
-            client.admin().cluster().health(healthRequest, clusterHealthResponseActionListener);
+            for (int i = 0; i < parallelMaxRequests; i++) {
+                Consumer<Runnable> request = pending.poll();
+                if (request == null) {
+                    break;
+                }
+                request.accept(step);
+            }
         }
 
-        protected NodePrometheusMetricsResponse buildResponse(ClusterHealthResponse clusterHealth,
-                                                              NodesInfoResponse localNodesInfoResponse,
-                                                              NodesStatsResponse nodesStats,
+        protected NodePrometheusMetricsResponse buildResponse(@Nullable ClusterHealthResponse clusterHealth,
+                                                              @Nullable NodesStatsResponse nodesStats,
+                                                              @Nullable NodesPrometheusMetricsResponse nodesMetrics,
                                                               @Nullable IndicesStatsResponse indicesStats,
-                                                              @Nullable ClusterStateResponse clusterStateResponse) {
+                                                              @Nullable ClusterStatsData clusterStatsData,
+                                                              SectionResults sectionResults,
+                                                              @Nullable Map<String, Long> indexStatsTimestamps) {
+            // The local node never changes once the node is started, no need to ask for it.
+            DiscoveryNode localNode = transportService.getLocalNode();
+            MetricsSnapshot[] nodeSnapshots = null;
+            if (nodesMetrics != null) {
+                for (FailedNodeException failure : nodesMetrics.failures()) {
+                    logger.debug("Node [{}] failed to collect its metrics", failure.nodeId(), failure);
+                }
+                nodeSnapshots = nodesMetrics.getNodes().stream()
+                        .map(NodesPrometheusMetricsResponse.NodeResponse::getSnapshot)
+                        .toArray(MetricsSnapshot[]::new);
+            }
             NodePrometheusMetricsResponse response = new NodePrometheusMetricsResponse(
                     clusterHealth,
-                    localNodesInfoResponse,
-                    nodesStats.getNodes().toArray(new NodeStats[0]),
-                    indicesStats, clusterStateResponse,
-                    settings, clusterSettings);
+                    localNode.getName(), localNode.getId(),
+                    nodesStats != null ? nodesStats.getNodes().toArray(new NodeStats[0]) : new NodeStats[0],
+                    indicesStats, clusterStatsData, nodeSnapshots, sectionResults, indexStatsTimestamps);
             if (logger.isTraceEnabled()) {
                 logger.trace("Return response: [{}]", response);
             }
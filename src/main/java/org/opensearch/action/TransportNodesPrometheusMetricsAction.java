@@ -0,0 +1,162 @@
+/*
+ * Copyright [2016] [Vincent VAN HOLLEBEKE]
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package org.opensearch.action;
+
+import org.compuscene.metrics.prometheus.MetricGroup;
+import org.compuscene.metrics.prometheus.PrometheusMetricsCatalog;
+import org.compuscene.metrics.prometheus.PrometheusMetricsCollector;
+import org.compuscene.metrics.prometheus.PrometheusSettings;
+import org.opensearch.OpenSearchException;
+import org.opensearch.action.admin.cluster.node.stats.NodeStats;
+import org.opensearch.action.admin.cluster.node.stats.NodesStatsRequest;
+import org.opensearch.action.admin.cluster.node.stats.NodesStatsRequest.Metric;
+import org.opensearch.action.admin.indices.stats.CommonStatsFlags;
+import org.opensearch.action.support.ActionFilters;
+import org.opensearch.action.support.nodes.TransportNodesAction;
+import org.opensearch.cluster.ClusterName;
+import org.opensearch.cluster.node.DiscoveryNode;
+import org.opensearch.cluster.service.ClusterService;
+import org.opensearch.common.inject.Inject;
+import org.opensearch.common.settings.ClusterSettings;
+import org.opensearch.common.settings.Settings;
+import org.opensearch.core.common.io.stream.StreamInput;
+import org.opensearch.node.NodeService;
+import org.opensearch.rest.prometheus.RestPrometheusMetricsAction;
+import org.opensearch.threadpool.ThreadPool;
+import org.opensearch.transport.TransportService;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Transport action collecting node level metrics on each of the selected nodes.
+ *
+ * Every node reads its own stats and extracts the exported values into a compact snapshot, only the snapshot
+ * travels back to the coordinating node which merges the snapshots of all nodes into its catalog. Compared to
+ * the nodes stats request the coordinating node neither receives nor processes the full stats of every node.
+ */
+public class TransportNodesPrometheusMetricsAction extends TransportNodesAction<NodesPrometheusMetricsRequest,
+        NodesPrometheusMetricsResponse, NodesPrometheusMetricsRequest.NodeRequest,
+        NodesPrometheusMetricsResponse.NodeResponse> {
+
+    private final NodeService nodeService;
+    private final PrometheusMetricsCollector collector;
+
+    /**
+     * A constructor.
+     * @param settings Settings
+     * @param threadPool Thread pool
+     * @param clusterService Cluster service
+     * @param transportService Transport service
+     * @param actionFilters Action filters
+     * @param nodeService Node service
+     * @param clusterSettings Cluster settings
+     */
+    @Inject
+    public TransportNodesPrometheusMetricsAction(Settings settings, ThreadPool threadPool, ClusterService clusterService,
+                                                 TransportService transportService, ActionFilters actionFilters,
+                                                 NodeService nodeService, ClusterSettings clusterSettings) {
+        super(NodesPrometheusMetricsAction.NAME, threadPool, clusterService, transportService, actionFilters,
+                NodesPrometheusMetricsRequest::new, NodesPrometheusMetricsRequest.NodeRequest::new,
+                ThreadPool.Names.MANAGEMENT, NodesPrometheusMetricsResponse.NodeResponse.class);
+        this.nodeService = nodeService;
+        PrometheusMetricsCatalog catalog = new PrometheusMetricsCatalog(
+                ClusterName.CLUSTER_NAME_SETTING.get(settings).value(),
+                RestPrometheusMetricsAction.METRIC_PREFIX.get(settings),
+                PrometheusMetricsCatalog.StoreType.ARRAY);
+        this.collector = new PrometheusMetricsCollector(catalog, new PrometheusSettings(settings, clusterSettings));
+        this.collector.registerMetrics();
+    }
+
+    @Override
+    protected NodesPrometheusMetricsResponse newResponse(NodesPrometheusMetricsRequest request,
+                                                         List<NodesPrometheusMetricsResponse.NodeResponse> responses,
+                                                         List<FailedNodeException> failures) {
+        return new NodesPrometheusMetricsResponse(clusterService.getClusterName(), responses, failures);
+    }
+
+    @Override
+    protected NodesPrometheusMetricsRequest.NodeRequest newNodeRequest(NodesPrometheusMetricsRequest request) {
+        return new NodesPrometheusMetricsRequest.NodeRequest(request.metricGroups());
+    }
+
+    @Override
+    protected NodesPrometheusMetricsResponse.NodeResponse newNodeResponse(StreamInput in) throws IOException {
+        return new NodesPrometheusMetricsResponse.NodeResponse(in);
+    }
+
+    @Override
+    protected NodesPrometheusMetricsResponse.NodeResponse nodeOperation(NodesPrometheusMetricsRequest.NodeRequest request) {
+        // The same sections as the nodes stats request of the local collection, read the same way
+        // as TransportNodesStatsAction does.
+        NodesStatsRequest statsRequest = nodesStatsRequest(request.metricGroups());
+        Set<String> metrics = statsRequest.requestedMetrics();
+        NodeStats stats = nodeService.stats(statsRequest.indices(),
+                requested(metrics, Metric.OS),
+                requested(metrics, Metric.PROCESS),
+                requested(metrics, Metric.JVM),
+                requested(metrics, Metric.THREAD_POOL),
+                requested(metrics, Metric.FS),
+                requested(metrics, Metric.TRANSPORT),
+                requested(metrics, Metric.HTTP),
+                requested(metrics, Metric.BREAKER),
+                requested(metrics, Metric.SCRIPT),
+                requested(metrics, Metric.DISCOVERY),
+                requested(metrics, Metric.INGEST),
+                requested(metrics, Metric.ADAPTIVE_SELECTION),
+                requested(metrics, Metric.SCRIPT_CACHE),
+                requested(metrics, Metric.INDEXING_PRESSURE),
+                requested(metrics, Metric.SHARD_INDEXING_PRESSURE),
+                requested(metrics, Metric.SEARCH_BACKPRESSURE),
+                requested(metrics, Metric.CLUSTER_MANAGER_THROTTLING),
+                requested(metrics, Metric.WEIGHTED_ROUTING_STATS),
+                requested(metrics, Metric.FILE_CACHE_STATS),
+                requested(metrics, Metric.TASK_CANCELLATION),
+                requested(metrics, Metric.SEARCH_PIPELINE),
+                requested(metrics, Metric.RESOURCE_USAGE_STATS),
+                requested(metrics, Metric.SEGMENT_REPLICATION_BACKPRESSURE),
+                requested(metrics, Metric.REPOSITORIES),
+                requested(metrics, Metric.ADMISSION_CONTROL),
+                requested(metrics, Metric.CACHE_STATS),
+                requested(metrics, Metric.REMOTE_STORE));
+        DiscoveryNode localNode = transportService.getLocalNode();
+        synchronized (collector) {
+            try {
+                collector.updateMetrics(new NodePrometheusMetricsResponse(null, localNode.getName(), localNode.getId(),
+                        new NodeStats[] {stats}, null, null));
+                return new NodesPrometheusMetricsResponse.NodeResponse(localNode, collector.snapshot());
+            } catch (IOException e) {
+                throw new OpenSearchException("Failed to snapshot node metrics", e);
+            }
+        }
+    }
+
+    private static NodesStatsRequest nodesStatsRequest(Set<MetricGroup> groups) {
+        NodesStatsRequest request = new NodesStatsRequest().clear()
+                .addMetrics(PrometheusMetricsCollector.nodeStatsMetrics(groups));
+        request.indices(groups.contains(MetricGroup.INDICES)
+                ? PrometheusMetricsCollector.nodeIndicesStatsFlags()
+                : new CommonStatsFlags().clear());
+        return request;
+    }
+
+    private static boolean requested(Set<String> metrics, Metric metric) {
+        return metrics.contains(metric.metricName());
+    }
+}
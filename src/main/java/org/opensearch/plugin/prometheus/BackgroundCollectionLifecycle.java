@@ -0,0 +1,76 @@
+/*
+ * Copyright [2016] [Vincent VAN HOLLEBEKE]
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+package org.opensearch.plugin.prometheus;
+
+import org.opensearch.cluster.ClusterChangedEvent;
+import org.opensearch.cluster.ClusterStateListener;
+import org.opensearch.cluster.service.ClusterService;
+import org.opensearch.common.lifecycle.AbstractLifecycleComponent;
+import org.opensearch.common.lifecycle.Lifecycle;
+import org.opensearch.rest.prometheus.RestPrometheusMetricsAction;
+
+import java.util.function.Supplier;
+
+/**
+ * Ties the background collection to the lifecycle of the node. The collection is started once the node has
+ * joined a cluster with an elected cluster manager, i.e. with the transport layer up and the cluster state
+ * recovered, and stopped with the node.
+ */
+public final class BackgroundCollectionLifecycle extends AbstractLifecycleComponent implements ClusterStateListener {
+
+    private final ClusterService clusterService;
+    private final Supplier<RestPrometheusMetricsAction> restAction;
+
+    /**
+     * @param clusterService Cluster service notifying about the first cluster state
+     * @param restAction REST handler owning the background collection, it is created after the components
+     */
+    BackgroundCollectionLifecycle(ClusterService clusterService, Supplier<RestPrometheusMetricsAction> restAction) {
+        this.clusterService = clusterService;
+        this.restAction = restAction;
+    }
+
+    @Override
+    protected void doStart() {
+        clusterService.addListener(this);
+    }
+
+    @Override
+    public void clusterChanged(ClusterChangedEvent event) {
+        if (event.state().nodes().getClusterManagerNodeId() == null) {
+            return;
+        }
+        clusterService.removeListener(this);
+        RestPrometheusMetricsAction action = restAction.get();
+        if (action != null && lifecycleState() == Lifecycle.State.STARTED) {
+            action.startBackgroundCollection();
+        }
+    }
+
+    @Override
+    protected void doStop() {
+        clusterService.removeListener(this);
+        RestPrometheusMetricsAction action = restAction.get();
+        if (action != null) {
+            action.close();
+        }
+    }
+
+    @Override
+    protected void doClose() {
+    }
+}
@@ -25,17 +25,33 @@ import org.compuscene.metrics.prometheus.PrometheusSettings;
 import org.opensearch.action.ActionRequest;
 import org.opensearch.core.action.ActionResponse;
 import org.opensearch.action.NodePrometheusMetricsAction;
+import org.opensearch.action.NodesPrometheusMetricsAction;
 import org.opensearch.action.TransportNodePrometheusMetricsAction;
+import org.opensearch.action.TransportNodesPrometheusMetricsAction;
+import org.opensearch.client.Client;
 import org.opensearch.cluster.metadata.IndexNameExpressionResolver;
 import org.opensearch.cluster.node.DiscoveryNodes;
+import org.opensearch.cluster.service.ClusterService;
 import org.opensearch.common.settings.*;
+import org.opensearch.common.util.concurrent.OpenSearchExecutors;
+import org.opensearch.core.common.io.stream.NamedWriteableRegistry;
+import org.opensearch.core.xcontent.NamedXContentRegistry;
+import org.opensearch.env.Environment;
+import org.opensearch.env.NodeEnvironment;
 import org.opensearch.plugins.ActionPlugin;
 import org.opensearch.plugins.Plugin;
 import org.opensearch.rest.RestController;
 import org.opensearch.rest.RestHandler;
+import org.opensearch.repositories.RepositoriesService;
 import org.opensearch.rest.prometheus.RestPrometheusMetricsAction;
+import org.opensearch.script.ScriptService;
+import org.opensearch.threadpool.ExecutorBuilder;
+import org.opensearch.threadpool.FixedExecutorBuilder;
+import org.opensearch.threadpool.ThreadPool;
+import org.opensearch.watcher.ResourceWatcherService;
 
 import java.util.Arrays;
+import java.util.Collection;
 import java.util.Collections;
 import java.util.List;
 import java.util.function.Supplier;
@@ -46,6 +62,18 @@ import java.util.function.Supplier;
 public class PrometheusExporterPlugin extends Plugin implements ActionPlugin {
     private static final Logger logger = LogManager.getLogger(PrometheusExporterPlugin.class);
 
+    /**
+     * Name of the thread pool the metrics are collected and rendered on, so that network and transport threads
+     * never do the heavy lifting. Node level operations of the distributed collection run on the management thread
+     * pool like the nodes stats do. Its size and queue size can be configured in opensearch.yml file under keys
+     * {@code thread_pool.prometheus_exporter.size} and {@code thread_pool.prometheus_exporter.queue_size}.
+     */
+    public static final String EXECUTOR_NAME = "prometheus_exporter";
+
+    private Client client;
+    private ThreadPool threadPool;
+    private RestPrometheusMetricsAction restAction;
+
     /**
      * A constructor.
      */
@@ -53,10 +81,33 @@ public class PrometheusExporterPlugin extends Plugin implements ActionPlugin {
         logger.info("starting Prometheus exporter plugin");
     }
 
+    @Override
+    public Collection<Object> createComponents(Client client, ClusterService clusterService, ThreadPool threadPool,
+                                               ResourceWatcherService resourceWatcherService, ScriptService scriptService,
+                                               NamedXContentRegistry xContentRegistry, Environment environment,
+                                               NodeEnvironment nodeEnvironment, NamedWriteableRegistry namedWriteableRegistry,
+                                               IndexNameExpressionResolver indexNameExpressionResolver,
+                                               Supplier<RepositoriesService> repositoriesServiceSupplier) {
+        // Components are created before the REST handlers, which need them for the background collection.
+        this.client = client;
+        this.threadPool = threadPool;
+        return singletonList(new BackgroundCollectionLifecycle(clusterService, () -> restAction));
+    }
+
+    @Override
+    public List<ExecutorBuilder<?>> getExecutorBuilders(Settings settings) {
+        // Updates of the collector are serialized on it, but compression, serving cached responses and merging
+        // the stats of index batches run concurrently. Requests over the queue size are rejected rather than
+        // piling up behind a slow scrape.
+        int size = Math.max(1, Math.min(4, (OpenSearchExecutors.allocatedProcessors(settings) + 1) / 2));
+        return singletonList(new FixedExecutorBuilder(settings, EXECUTOR_NAME, size, 10, "thread_pool." + EXECUTOR_NAME));
+    }
+
     @Override
     public List<ActionHandler<? extends ActionRequest, ? extends ActionResponse>> getActions() {
-        return singletonList(
-                new ActionHandler<>(NodePrometheusMetricsAction.INSTANCE, TransportNodePrometheusMetricsAction.class)
+        return Arrays.asList(
+                new ActionHandler<>(NodePrometheusMetricsAction.INSTANCE, TransportNodePrometheusMetricsAction.class),
+                new ActionHandler<>(NodesPrometheusMetricsAction.INSTANCE, TransportNodesPrometheusMetricsAction.class)
         );
     }
 
@@ -65,9 +116,8 @@ public class PrometheusExporterPlugin extends Plugin implements ActionPlugin {
                                              IndexScopedSettings indexScopedSettings, SettingsFilter settingsFilter,
                                              IndexNameExpressionResolver indexNameExpressionResolver,
                                              Supplier<DiscoveryNodes> nodesInCluster) {
-        return singletonList(
-                new RestPrometheusMetricsAction(settings, clusterSettings)
-        );
+        restAction = new RestPrometheusMetricsAction(settings, clusterSettings, client, threadPool);
+        return singletonList(restAction);
     }
 
     @Override
@@ -78,7 +128,28 @@ public class PrometheusExporterPlugin extends Plugin implements ActionPlugin {
                 PrometheusSettings.PROMETHEUS_NODES_FILTER,
                 PrometheusSettings.PROMETHEUS_SELECTED_INDICES,
                 PrometheusSettings.PROMETHEUS_SELECTED_OPTION,
-                RestPrometheusMetricsAction.METRIC_PREFIX
+                PrometheusSettings.PROMETHEUS_CACHE_TTL,
+                PrometheusSettings.PROMETHEUS_INDICES_TOP_N,
+                PrometheusSettings.PROMETHEUS_INDICES_RANK_BY,
+                PrometheusSettings.PROMETHEUS_INDICES_ROLLUP_GROUPS,
+                PrometheusSettings.PROMETHEUS_INDICES_ROLLUP_PER_INDEX,
+                PrometheusSettings.PROMETHEUS_METRIC_GROUPS,
+                PrometheusSettings.PROMETHEUS_INDICES_BATCHES,
+                RestPrometheusMetricsAction.METRIC_PREFIX,
+                RestPrometheusMetricsAction.CATALOG_STORE,
+                RestPrometheusMetricsAction.OPENMETRICS_ENABLED,
+                RestPrometheusMetricsAction.COMPRESSION_ENABLED,
+                RestPrometheusMetricsAction.COMPRESSION_LEVEL,
+                RestPrometheusMetricsAction.COMPRESSION_MIN_SIZE,
+                RestPrometheusMetricsAction.COLLECTION_BACKGROUND_ENABLED,
+                RestPrometheusMetricsAction.COLLECTION_BACKGROUND_INTERVAL,
+                RestPrometheusMetricsAction.COLLECTION_BACKGROUND_JITTER,
+                TransportNodePrometheusMetricsAction.COLLECTION_COALESCE,
+                TransportNodePrometheusMetricsAction.COLLECTION_MAX_CONCURRENT,
+                TransportNodePrometheusMetricsAction.COLLECTION_PARALLEL,
+                TransportNodePrometheusMetricsAction.COLLECTION_PARALLEL_MAX_REQUESTS,
+                TransportNodePrometheusMetricsAction.COLLECTION_DISTRIBUTED,
+                TransportNodePrometheusMetricsAction.COLLECTION_SECTION_TIMEOUT
         );
         return Collections.unmodifiableList(settings);
     }
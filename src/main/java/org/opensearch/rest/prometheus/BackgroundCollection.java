@@ -0,0 +1,185 @@
+/*
+ * Copyright [2016] [Vincent VAN HOLLEBEKE]
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+package org.opensearch.rest.prometheus;
+
+import static org.opensearch.action.NodePrometheusMetricsAction.INSTANCE;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.compuscene.metrics.prometheus.ExporterMetricsSource;
+import org.compuscene.metrics.prometheus.GaugeHandles;
+import org.compuscene.metrics.prometheus.PrometheusMetricsCatalog;
+import org.compuscene.metrics.prometheus.PrometheusMetricsCollector;
+import org.opensearch.action.NodePrometheusMetricsRequest;
+import org.opensearch.action.NodePrometheusMetricsResponse;
+import org.opensearch.action.support.ThreadedActionListener;
+import org.opensearch.client.Client;
+import org.opensearch.common.Randomness;
+import org.opensearch.common.unit.TimeValue;
+import org.opensearch.common.util.concurrent.ThreadContext;
+import org.opensearch.core.action.ActionListener;
+import org.opensearch.plugin.prometheus.PrometheusExporterPlugin;
+import org.opensearch.threadpool.Scheduler;
+import org.opensearch.threadpool.ThreadPool;
+
+import java.io.Closeable;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Collects metrics periodically in the background so that scrapes are served from the latest snapshot
+ * (stale-while-revalidate) instead of waiting for the whole collection.
+ * <p>
+ * Every collection is scheduled {@code interval} ± random {@code jitter} after the previous one finished, so
+ * nodes of a cluster do not hit the master node at the same time and a slow collection never overlaps the next one.
+ * Age of the served snapshot is exported as a metric.
+ */
+final class BackgroundCollection implements ExporterMetricsSource, Closeable {
+
+    private static final Logger logger = LogManager.getLogger(BackgroundCollection.class);
+
+    private final Client client;
+    private final ThreadPool threadPool;
+    private final PrometheusMetricsCollector collector;
+    private final long intervalMillis;
+    private final long jitterMillis;
+
+    private boolean started;
+    private volatile boolean closed;
+    private volatile Scheduler.ScheduledCancellable scheduled;
+    // guarded by the collector
+    private long snapshotNanos;
+    private boolean hasSnapshot;
+    private GaugeHandles node;
+
+    /**
+     * @param client Client used to execute the collection
+     * @param threadPool Thread pool the collections are scheduled on
+     * @param collector Collector the snapshots are written to
+     * @param interval Interval between two collections
+     * @param jitter Maximum random deviation from the interval
+     */
+    BackgroundCollection(Client client, ThreadPool threadPool, PrometheusMetricsCollector collector,
+                         TimeValue interval, TimeValue jitter) {
+        this.client = client;
+        this.threadPool = threadPool;
+        this.collector = collector;
+        this.intervalMillis = interval.millis();
+        this.jitterMillis = Math.min(jitter.millis(), intervalMillis);
+    }
+
+    /**
+     * Schedule the first collection right away. Does nothing if already started.
+     */
+    synchronized void start() {
+        if (!started) {
+            started = true;
+            schedule(TimeValue.ZERO);
+        }
+    }
+
+    private void schedule(TimeValue delay) {
+        if (closed) {
+            return;
+        }
+        scheduled = threadPool.schedule(this::collect, delay, ThreadPool.Names.GENERIC);
+    }
+
+    private TimeValue nextDelay() {
+        long jitter = jitterMillis == 0 ? 0 : Randomness.get().nextLong() % (jitterMillis + 1);
+        return TimeValue.timeValueMillis(intervalMillis + jitter);
+    }
+
+    private void collect() {
+        if (closed) {
+            return;
+        }
+        // The collection must not run with whatever context the scheduler thread happens to carry.
+        ThreadContext.StoredContext storedContext = threadPool.getThreadContext().stashContext();
+        try {
+            ActionListener<NodePrometheusMetricsResponse> listener = new ActionListener<NodePrometheusMetricsResponse>() {
+                @Override
+                public void onResponse(NodePrometheusMetricsResponse response) {
+                    try {
+                        synchronized (collector) {
+                            RestPrometheusMetricsAction.updateMetrics(collector, response);
+                            snapshotNanos = System.nanoTime();
+                            hasSnapshot = true;
+                        }
+                    } catch (Exception e) {
+                        logger.warn("Background collection of Prometheus metrics failed", e);
+                    }
+                    schedule(nextDelay());
+                }
+
+                @Override
+                public void onFailure(Exception e) {
+                    logger.warn("Background collection of Prometheus metrics failed", e);
+                    schedule(nextDelay());
+                }
+            };
+            // Metrics are updated on the exporter thread pool rather than on the transport thread completing
+            // the collection. The update is forced through a full queue, skipping it would only make scrapes
+            // serve an older snapshot.
+            client.execute(INSTANCE, new NodePrometheusMetricsRequest(), new ThreadedActionListener<>(logger, threadPool,
+                    PrometheusExporterPlugin.EXECUTOR_NAME, listener, true));
+        } catch (Exception e) {
+            logger.warn("Background collection of Prometheus metrics failed", e);
+            schedule(nextDelay());
+        } finally {
+            storedContext.restore();
+        }
+    }
+
+    /**
+     * Must be called while holding the lock of the collector.
+     * @return Whether at least one collection has finished so far
+     */
+    boolean hasSnapshot() {
+        return hasSnapshot;
+    }
+
+    /**
+     * Update the age of the snapshot right before it is rendered. Must be called while holding the lock
+     * of the collector.
+     */
+    void updateSnapshotAge() {
+        if (node != null && hasSnapshot) {
+            double age = (double) TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - snapshotNanos) / 1000;
+            node.set("metrics_snapshot_age_seconds", age);
+        }
+    }
+
+    @Override
+    public void registerMetrics(PrometheusMetricsCatalog catalog) {
+        catalog.registerNodeGauge("metrics_snapshot_age_seconds", "Age of the served metrics snapshot");
+    }
+
+    @Override
+    public void updateMetrics(GaugeHandles node) {
+        this.node = node;
+        node.set("metrics_snapshot_age_seconds", 0);
+    }
+
+    @Override
+    public void close() {
+        closed = true;
+        Scheduler.ScheduledCancellable scheduled = this.scheduled;
+        if (scheduled != null) {
+            scheduled.cancel();
+        }
+    }
+}
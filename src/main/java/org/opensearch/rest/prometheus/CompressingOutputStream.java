@@ -0,0 +1,117 @@
+/*
+ * Copyright [2016] [Vincent VAN HOLLEBEKE]
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+package org.opensearch.rest.prometheus;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.zip.DeflaterOutputStream;
+
+/**
+ * An output stream that compresses everything written to it once the amount of written bytes exceeds a threshold.
+ * <p>
+ * Bytes up to the threshold are held back, so that small responses can still be sent uncompressed where the
+ * compression overhead would not pay off. Past the threshold the bytes are compressed on the fly into the
+ * target stream and the uncompressed content is never held in memory as a whole.
+ * <p>
+ * {@link #finish()} must be called once all the content has been written. Closing this stream releases the
+ * compressor but leaves the target stream open.
+ */
+final class CompressingOutputStream extends OutputStream {
+
+    private static final int COMPRESSOR_BUFFER_SIZE = 8192;
+
+    private final OutputStream target;
+    private final ContentEncoding encoding;
+    private final int level;
+    private final int threshold;
+
+    private byte[] pending;
+    private int pendingSize;
+    private DeflaterOutputStream compressor;
+
+    /**
+     * @param out Target stream, it is neither flushed nor closed by this stream
+     * @param encoding Content coding used once the threshold is exceeded
+     * @param level Compression level, 0-9
+     * @param threshold Number of bytes that are held back uncompressed
+     */
+    CompressingOutputStream(OutputStream out, ContentEncoding encoding, int level, int threshold) {
+        // the compressor closes its stream when it is released, the target must stay open for the response
+        this.target = new OutputStream() {
+            @Override
+            public void write(int b) throws IOException {
+                out.write(b);
+            }
+
+            @Override
+            public void write(byte[] b, int off, int len) throws IOException {
+                out.write(b, off, len);
+            }
+        };
+        this.encoding = encoding;
+        this.level = level;
+        this.threshold = threshold;
+        this.pending = new byte[Math.min(threshold, COMPRESSOR_BUFFER_SIZE)];
+    }
+
+    @Override
+    public void write(int b) throws IOException {
+        write(new byte[] { (byte) b }, 0, 1);
+    }
+
+    @Override
+    public void write(byte[] b, int off, int len) throws IOException {
+        if (compressor != null) {
+            compressor.write(b, off, len);
+        } else if (pendingSize + len <= threshold) {
+            if (pendingSize + len > pending.length) {
+                byte[] grown = new byte[Math.min(threshold, Math.max(pending.length * 2, pendingSize + len))];
+                System.arraycopy(pending, 0, grown, 0, pendingSize);
+                pending = grown;
+            }
+            System.arraycopy(b, off, pending, pendingSize, len);
+            pendingSize += len;
+        } else {
+            compressor = encoding.open(target, level, COMPRESSOR_BUFFER_SIZE);
+            compressor.write(pending, 0, pendingSize);
+            pending = null;
+            compressor.write(b, off, len);
+        }
+    }
+
+    /**
+     * Write all remaining bytes to the target stream.
+     * @return {@code true} if the content was compressed, {@code false} if it stayed under the threshold
+     * @throws IOException If writing to the target stream fails
+     */
+    boolean finish() throws IOException {
+        if (compressor != null) {
+            compressor.finish();
+            return true;
+        }
+        target.write(pending, 0, pendingSize);
+        pendingSize = 0;
+        return false;
+    }
+
+    @Override
+    public void close() throws IOException {
+        if (compressor != null) {
+            compressor.close();
+        }
+    }
+}
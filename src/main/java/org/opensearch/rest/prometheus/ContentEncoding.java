@@ -0,0 +1,139 @@
+/*
+ * Copyright [2016] [Vincent VAN HOLLEBEKE]
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+package org.opensearch.rest.prometheus;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+import java.util.zip.Deflater;
+import java.util.zip.DeflaterOutputStream;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * HTTP content codings supported by the metrics endpoint.
+ */
+enum ContentEncoding {
+
+    /**
+     * Gzip file format (RFC 1952).
+     */
+    GZIP("gzip") {
+        @Override
+        DeflaterOutputStream open(OutputStream out, int level, int bufferSize) throws IOException {
+            return new GZIPOutputStream(out, bufferSize) {
+                {
+                    def.setLevel(level);
+                }
+            };
+        }
+    },
+    /**
+     * Zlib format (RFC 1950), which is what HTTP calls deflate.
+     */
+    DEFLATE("deflate") {
+        @Override
+        DeflaterOutputStream open(OutputStream out, int level, int bufferSize) {
+            return new DeflaterOutputStream(out, new Deflater(level), bufferSize) {
+                @Override
+                public void close() throws IOException {
+                    // a deflater passed in explicitly is not released by the stream itself
+                    try {
+                        super.close();
+                    } finally {
+                        def.end();
+                    }
+                }
+            };
+        }
+    };
+
+    private final String token;
+
+    ContentEncoding(String token) {
+        this.token = token;
+    }
+
+    /**
+     * @return Value of the {@code Content-Encoding} header
+     */
+    String token() {
+        return token;
+    }
+
+    /**
+     * Open a compressing stream on top of the given stream. Closing the returned stream closes the given one too.
+     * @param out Stream receiving compressed bytes
+     * @param level Compression level, 0-9
+     * @param bufferSize Size of the output buffer of the compressor
+     * @return The compressing stream
+     * @throws IOException If writing the header fails
+     */
+    abstract DeflaterOutputStream open(OutputStream out, int level, int bufferSize) throws IOException;
+
+    /**
+     * Pick the preferred supported coding of the {@code Accept-Encoding} request header values (RFC 9110 section
+     * 12.5.3). Codings with higher quality win, gzip is preferred over deflate when both have the same quality.
+     * @param acceptEncoding Values of all {@code Accept-Encoding} headers of the request
+     * @return The coding to use or {@code null} if the response should not be compressed
+     */
+    static ContentEncoding negotiate(List<String> acceptEncoding) {
+        if (acceptEncoding == null || acceptEncoding.isEmpty()) {
+            return null;
+        }
+        float wildcard = -1;
+        float[] qualities = new float[values().length];
+        Arrays.fill(qualities, -1);
+        for (String header : acceptEncoding) {
+            for (String element : header.split(",")) {
+                String[] parts = element.split(";");
+                String coding = parts[0].trim().toLowerCase(Locale.ROOT);
+                float quality = 1;
+                for (int i = 1; i < parts.length; i++) {
+                    String parameter = parts[i].trim();
+                    if (parameter.startsWith("q=") || parameter.startsWith("Q=")) {
+                        try {
+                            quality = Float.parseFloat(parameter.substring(2).trim());
+                        } catch (NumberFormatException e) {
+                            quality = 0;
+                        }
+                    }
+                }
+                if (coding.equals("*")) {
+                    wildcard = quality;
+                } else {
+                    for (ContentEncoding encoding : values()) {
+                        if (encoding.token.equals(coding) || (encoding == GZIP && coding.equals("x-gzip"))) {
+                            qualities[encoding.ordinal()] = quality;
+                        }
+                    }
+                }
+            }
+        }
+        ContentEncoding preferred = null;
+        float best = 0;
+        for (ContentEncoding encoding : values()) {
+            float quality = qualities[encoding.ordinal()] >= 0 ? qualities[encoding.ordinal()] : wildcard;
+            if (quality > best) {
+                best = quality;
+                preferred = encoding;
+            }
+        }
+        return preferred;
+    }
+}
@@ -0,0 +1,180 @@
+/*
+ * Copyright [2016] [Vincent VAN HOLLEBEKE]
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+package org.opensearch.rest.prometheus;
+
+import org.compuscene.metrics.prometheus.ExporterMetricsSource;
+import org.compuscene.metrics.prometheus.ExpositionFormat;
+import org.compuscene.metrics.prometheus.GaugeHandles;
+import org.compuscene.metrics.prometheus.PrometheusMetricsCatalog;
+import org.compuscene.metrics.prometheus.PrometheusSettings;
+import org.opensearch.common.settings.ClusterSettings;
+import org.opensearch.core.common.bytes.BytesReference;
+
+import java.util.Arrays;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Node level cache of rendered metrics responses.
+ * <p>
+ * A response is cached per exposition format and content coding for {@link PrometheusSettings#PROMETHEUS_CACHE_TTL},
+ * so that scrapers hitting the same node within the TTL (e.g. a HA pair of Prometheus servers) do not trigger
+ * the whole collection again. The cache is invalidated whenever any of the dynamic settings that shape the output
+ * changes; responses of collections that started before the invalidation are not cached.
+ * <p>
+ * Hit and miss counts are exported as metrics. Cached responses carry the counts of the moment they were rendered.
+ */
+final class MetricsResponseCache implements ExporterMetricsSource {
+
+    /**
+     * A rendered response.
+     */
+    static final class Entry {
+        private final ExpositionFormat format;
+        private final ContentEncoding contentEncoding;
+        private final BytesReference bytes;
+        private final long expiresAtNanos;
+
+        private Entry(ExpositionFormat format, ContentEncoding contentEncoding, BytesReference bytes, long expiresAtNanos) {
+            this.format = format;
+            this.contentEncoding = contentEncoding;
+            this.bytes = bytes;
+            this.expiresAtNanos = expiresAtNanos;
+        }
+
+        ExpositionFormat format() {
+            return format;
+        }
+
+        /**
+         * @return Coding of the bytes or {@code null} if they are not compressed
+         */
+        ContentEncoding contentEncoding() {
+            return contentEncoding;
+        }
+
+        BytesReference bytes() {
+            return bytes;
+        }
+    }
+
+    private final PrometheusSettings prometheusSettings;
+    private final ConcurrentHashMap<String, Entry> entries = new ConcurrentHashMap<>();
+    private final AtomicLong generation = new AtomicLong();
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+
+    /**
+     * @param prometheusSettings Prometheus settings
+     * @param clusterSettings Cluster settings used to listen for updates that require invalidation
+     */
+    MetricsResponseCache(PrometheusSettings prometheusSettings, ClusterSettings clusterSettings) {
+        this.prometheusSettings = prometheusSettings;
+        clusterSettings.addSettingsUpdateConsumer(settings -> invalidate(), Arrays.asList(
+                PrometheusSettings.PROMETHEUS_CLUSTER_SETTINGS,
+                PrometheusSettings.PROMETHEUS_INDICES,
+                PrometheusSettings.PROMETHEUS_NODES_FILTER,
+                PrometheusSettings.PROMETHEUS_SELECTED_INDICES,
+                PrometheusSettings.PROMETHEUS_SELECTED_OPTION,
+                PrometheusSettings.PROMETHEUS_CACHE_TTL,
+                PrometheusSettings.PROMETHEUS_METRIC_GROUPS,
+                PrometheusSettings.PROMETHEUS_INDICES_TOP_N,
+                PrometheusSettings.PROMETHEUS_INDICES_RANK_BY,
+                PrometheusSettings.PROMETHEUS_INDICES_ROLLUP_GROUPS,
+                PrometheusSettings.PROMETHEUS_INDICES_ROLLUP_PER_INDEX,
+                PrometheusSettings.PROMETHEUS_INDICES_BATCHES));
+    }
+
+    private static String key(ExpositionFormat format, ContentEncoding requestedEncoding) {
+        return requestedEncoding == null ? format.name() : format.name() + "/" + requestedEncoding.name();
+    }
+
+    /**
+     * @return Whether responses are cached at all
+     */
+    boolean isEnabled() {
+        return prometheusSettings.getCacheTtl().nanos() > 0;
+    }
+
+    /**
+     * @return Current generation of the cache, to be passed to {@link #put} once the response is rendered
+     */
+    long generation() {
+        return generation.get();
+    }
+
+    /**
+     * Get a cached response that has not expired yet.
+     * @param format Requested exposition format
+     * @param requestedEncoding Negotiated content coding or {@code null}
+     * @return The cached response or {@code null}
+     */
+    Entry get(ExpositionFormat format, ContentEncoding requestedEncoding) {
+        if (!isEnabled()) {
+            return null;
+        }
+        Entry entry = entries.get(key(format, requestedEncoding));
+        if (entry != null && System.nanoTime() - entry.expiresAtNanos < 0) {
+            hits.incrementAndGet();
+            return entry;
+        }
+        misses.incrementAndGet();
+        return null;
+    }
+
+    /**
+     * Cache a rendered response unless the cache was invalidated since the given generation.
+     * @param format Exposition format
+     * @param requestedEncoding Negotiated content coding or {@code null}
+     * @param generation Generation of the cache when the collection started
+     * @param contentEncoding Coding of the bytes or {@code null} if they are not compressed
+     * @param bytes Rendered response, must not be backed by a recycled buffer
+     */
+    void put(ExpositionFormat format, ContentEncoding requestedEncoding, long generation,
+             ContentEncoding contentEncoding, BytesReference bytes) {
+        long ttl = prometheusSettings.getCacheTtl().nanos();
+        if (ttl <= 0) {
+            return;
+        }
+        String key = key(format, requestedEncoding);
+        entries.put(key, new Entry(format, contentEncoding, bytes, System.nanoTime() + ttl));
+        // an invalidation may have raced with the put above
+        if (this.generation.get() != generation) {
+            entries.remove(key);
+        }
+    }
+
+    /**
+     * Drop all cached responses.
+     */
+    void invalidate() {
+        generation.incrementAndGet();
+        entries.clear();
+    }
+
+    @Override
+    public void registerMetrics(PrometheusMetricsCatalog catalog) {
+        catalog.registerNodeCounter("metrics_cache_requests_count", "Count of metrics requests by response cache result",
+                "result");
+    }
+
+    @Override
+    public void updateMetrics(GaugeHandles node) {
+        node.set("metrics_cache_requests_count", hits.get(), "hit");
+        node.set("metrics_cache_requests_count", misses.get(), "miss");
+    }
+}
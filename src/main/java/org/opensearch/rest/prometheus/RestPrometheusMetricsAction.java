@@ -22,22 +22,41 @@ import static org.opensearch.rest.RestRequest.Method.GET;
 
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
+import org.compuscene.metrics.prometheus.ExpositionFormat;
+import org.compuscene.metrics.prometheus.MetricGroup;
 import org.compuscene.metrics.prometheus.PrometheusMetricsCatalog;
 import org.compuscene.metrics.prometheus.PrometheusMetricsCollector;
 import org.compuscene.metrics.prometheus.PrometheusSettings;
 import org.opensearch.action.NodePrometheusMetricsRequest;
 import org.opensearch.action.NodePrometheusMetricsResponse;
+import org.opensearch.action.support.ThreadedActionListener;
+import org.opensearch.client.Client;
 import org.opensearch.client.node.NodeClient;
+import org.opensearch.cluster.ClusterName;
+import org.opensearch.common.io.stream.BytesStreamOutput;
 import org.opensearch.common.network.NetworkAddress;
 import org.opensearch.common.settings.ClusterSettings;
 import org.opensearch.common.settings.Setting;
 import org.opensearch.common.settings.Settings;
+import org.opensearch.common.unit.TimeValue;
+import org.opensearch.common.util.concurrent.AbstractRunnable;
+import org.opensearch.core.action.ActionListener;
+import org.opensearch.core.common.unit.ByteSizeUnit;
+import org.opensearch.core.common.bytes.BytesReference;
+import org.opensearch.core.common.unit.ByteSizeValue;
 import org.opensearch.core.rest.RestStatus;
+import org.opensearch.plugin.prometheus.PrometheusExporterPlugin;
 import org.opensearch.rest.*;
 import org.opensearch.rest.action.RestResponseListener;
+import org.opensearch.threadpool.ThreadPool;
 
+import java.util.ArrayList;
+import java.util.EnumSet;
 import java.util.List;
 import java.util.Locale;
+import java.util.Set;
+import java.util.regex.Pattern;
+import java.util.stream.Collectors;
 
 import static java.util.Arrays.asList;
 import static java.util.Collections.unmodifiableList;
@@ -48,8 +67,10 @@ import static java.util.Collections.unmodifiableList;
 public class RestPrometheusMetricsAction extends BaseRestHandler {
 
     static String METRIC_PREFIX_KEY = "prometheus.metric_name.prefix";
+    // Metric families are registered once when the handler is created, an invalid prefix has to be caught before that.
+    static Pattern METRIC_PREFIX_PATTERN = Pattern.compile("[a-zA-Z_:][a-zA-Z0-9_:]*");
     static Setting.Validator<String> indexPrefixValidator = value -> {
-        if (value == null || value.isEmpty()) {
+        if (value == null || value.isEmpty() || !METRIC_PREFIX_PATTERN.matcher(value).matches()) {
             throw new IllegalArgumentException(
                 METRIC_PREFIX_KEY + " value ["+value+"] is not valid"
             );
@@ -61,22 +82,198 @@ public class RestPrometheusMetricsAction extends BaseRestHandler {
      */
     public static final Setting<String> METRIC_PREFIX = Setting.simpleString(METRIC_PREFIX_KEY, "opensearch_", indexPrefixValidator, Setting.Property.NodeScope);
 
+    static String CATALOG_STORE_KEY = "prometheus.catalog.store";
+
+    /**
+     * A storage backend of the metrics catalog. Can be configured in opensearch.yml file under key {@link #CATALOG_STORE_KEY}.
+     */
+    public static final Setting<PrometheusMetricsCatalog.StoreType> CATALOG_STORE =
+            new Setting<>(CATALOG_STORE_KEY, "simpleclient",
+                    value -> PrometheusMetricsCatalog.StoreType.valueOf(value.toUpperCase(Locale.ROOT)),
+                    Setting.Property.NodeScope);
+
+    static String OPENMETRICS_ENABLED_KEY = "prometheus.openmetrics.enabled";
+
+    /**
+     * Whether the OpenMetrics format is served to clients asking for it. It renames the samples of counters
+     * (suffix {@code _total}), so it is disabled by default to keep the metric names of existing scrapers. Can be
+     * configured in opensearch.yml file under key {@link #OPENMETRICS_ENABLED_KEY}.
+     */
+    public static final Setting<Boolean> OPENMETRICS_ENABLED =
+            Setting.boolSetting(OPENMETRICS_ENABLED_KEY, false, Setting.Property.NodeScope);
+
+    static String COMPRESSION_ENABLED_KEY = "prometheus.compression.enabled";
+
+    /**
+     * Whether responses are compressed when the client accepts gzip or deflate coding. Can be configured
+     * in opensearch.yml file under key {@link #COMPRESSION_ENABLED_KEY}.
+     */
+    public static final Setting<Boolean> COMPRESSION_ENABLED =
+            Setting.boolSetting(COMPRESSION_ENABLED_KEY, true, Setting.Property.NodeScope);
+
+    static String COMPRESSION_LEVEL_KEY = "prometheus.compression.level";
+
+    /**
+     * Compression level of responses, defaults to the same level as {@code http.compression_level}. Can be configured
+     * in opensearch.yml file under key {@link #COMPRESSION_LEVEL_KEY}.
+     */
+    public static final Setting<Integer> COMPRESSION_LEVEL =
+            Setting.intSetting(COMPRESSION_LEVEL_KEY, 3, 1, 9, Setting.Property.NodeScope);
+
+    static String COMPRESSION_MIN_SIZE_KEY = "prometheus.compression.min_size";
+
+    /**
+     * Responses smaller than this size are not compressed. Can be configured in opensearch.yml file
+     * under key {@link #COMPRESSION_MIN_SIZE_KEY}.
+     */
+    public static final Setting<ByteSizeValue> COMPRESSION_MIN_SIZE =
+            Setting.byteSizeSetting(COMPRESSION_MIN_SIZE_KEY,
+                    new ByteSizeValue(8, ByteSizeUnit.KB),
+                    new ByteSizeValue(0, ByteSizeUnit.BYTES),
+                    new ByteSizeValue(1, ByteSizeUnit.MB),
+                    Setting.Property.NodeScope);
+
+    static String COLLECTION_BACKGROUND_ENABLED_KEY = "prometheus.collection.background.enabled";
+
+    /**
+     * Whether metrics are collected periodically in the background and scrapes are served from the latest snapshot.
+     * Can be configured in opensearch.yml file under key {@link #COLLECTION_BACKGROUND_ENABLED_KEY}.
+     */
+    public static final Setting<Boolean> COLLECTION_BACKGROUND_ENABLED =
+            Setting.boolSetting(COLLECTION_BACKGROUND_ENABLED_KEY, false, Setting.Property.NodeScope);
+
+    static String COLLECTION_BACKGROUND_INTERVAL_KEY = "prometheus.collection.background.interval";
+
+    /**
+     * Interval between two background collections. Can be configured in opensearch.yml file
+     * under key {@link #COLLECTION_BACKGROUND_INTERVAL_KEY}.
+     */
+    public static final Setting<TimeValue> COLLECTION_BACKGROUND_INTERVAL =
+            Setting.timeSetting(COLLECTION_BACKGROUND_INTERVAL_KEY, TimeValue.timeValueSeconds(10),
+                    TimeValue.timeValueSeconds(1), Setting.Property.NodeScope);
+
+    static String COLLECTION_BACKGROUND_JITTER_KEY = "prometheus.collection.background.jitter";
+
+    /**
+     * Maximum random deviation from the background collection interval. Can be configured in opensearch.yml file
+     * under key {@link #COLLECTION_BACKGROUND_JITTER_KEY}.
+     */
+    public static final Setting<TimeValue> COLLECTION_BACKGROUND_JITTER =
+            Setting.timeSetting(COLLECTION_BACKGROUND_JITTER_KEY, TimeValue.timeValueSeconds(1),
+                    TimeValue.ZERO, Setting.Property.NodeScope);
+
+    /**
+     * Header Prometheus sends with every scrape, it carries the scrape timeout in (possibly fractional) seconds.
+     */
+    static final String SCRAPE_TIMEOUT_HEADER = "X-Prometheus-Scrape-Timeout-Seconds";
+    /**
+     * Request parameter selecting the metric groups to collect, it can be repeated and each value can be
+     * a comma separated list (e.g. {@code collect[]=jvm&collect[]=threadpool,os}).
+     */
+    static final String COLLECT_PARAM = "collect[]";
+    /**
+     * Request parameters restricting the index level metrics to the indices whose name hashes into shard
+     * {@code shard} (from {@code 0}) out of {@code shards}, e.g. {@code shard=0&shards=3}.
+     */
+    static final String SHARD_PARAM = "shard";
+    static final String SHARDS_PARAM = "shards";
+
+    // Part of the scrape timeout reserved for rendering and sending the response.
+    private static final long SCRAPE_TIMEOUT_OFFSET_MILLIS = 500;
+    // Longer scrape timeouts are capped, sections never get more than their own timeout anyway.
+    private static final double MAX_SCRAPE_TIMEOUT_SECONDS = TimeValue.timeValueHours(1).seconds();
 
     private final String metricPrefix;
+    private final Set<ExpositionFormat> expositionFormats;
+    private final boolean compressionEnabled;
+    private final int compressionLevel;
+    private final int compressionMinSize;
     private final PrometheusSettings prometheusSettings;
-    private final Logger logger = LogManager.getLogger(getClass());
+    private final PrometheusMetricsCollector collector;
+    private final MetricsResponseCache cache;
+    private final ThreadPool threadPool;
+    private final BackgroundCollection background;
+    private static final Logger logger = LogManager.getLogger(RestPrometheusMetricsAction.class);
 
     /**
-     * A constructor.
+     * A constructor. Metrics are always collected on demand.
      * @param settings Settings
      * @param clusterSettings Cluster settings
      */
     public RestPrometheusMetricsAction(Settings settings, ClusterSettings clusterSettings) {
+        this(settings, clusterSettings, null, null);
+    }
+
+    /**
+     * A constructor.
+     * @param settings Settings
+     * @param clusterSettings Cluster settings
+     * @param client Client used by the background collection, may be {@code null} if it is not enabled
+     * @param threadPool Thread pool used by the background collection and for rendering, may be {@code null} if
+     *                   the background collection is not enabled, the metrics are rendered on the calling thread then
+     */
+    public RestPrometheusMetricsAction(Settings settings, ClusterSettings clusterSettings, Client client,
+                                       ThreadPool threadPool) {
         this.prometheusSettings = new PrometheusSettings(settings, clusterSettings);
         this.metricPrefix = METRIC_PREFIX.get(settings);
         if (logger.isTraceEnabled()) {
             logger.trace("Prometheus metric prefix set to [{}]", this.metricPrefix);
         }
+        this.expositionFormats = OPENMETRICS_ENABLED.get(settings)
+                ? EnumSet.allOf(ExpositionFormat.class)
+                : EnumSet.complementOf(EnumSet.of(ExpositionFormat.OPENMETRICS_100));
+        this.compressionEnabled = COMPRESSION_ENABLED.get(settings);
+        this.compressionLevel = COMPRESSION_LEVEL.get(settings);
+        this.compressionMinSize = Math.toIntExact(COMPRESSION_MIN_SIZE.get(settings).getBytes());
+        // The catalog lives as long as the node does, metric families are registered only once here
+        // and every scrape just overwrites (and retires) the series.
+        String clusterName = ClusterName.CLUSTER_NAME_SETTING.get(settings).value();
+        PrometheusMetricsCatalog catalog = new PrometheusMetricsCatalog(clusterName, metricPrefix, CATALOG_STORE.get(settings));
+        this.collector = new PrometheusMetricsCollector(catalog, prometheusSettings);
+        this.cache = new MetricsResponseCache(prometheusSettings, clusterSettings);
+        this.collector.addExporterMetricsSource(cache);
+        this.threadPool = threadPool;
+        if (COLLECTION_BACKGROUND_ENABLED.get(settings)) {
+            if (client == null || threadPool == null) {
+                throw new IllegalArgumentException(
+                        COLLECTION_BACKGROUND_ENABLED_KEY + " requires a client and a thread pool");
+            }
+            this.background = new BackgroundCollection(client, threadPool, collector,
+                    COLLECTION_BACKGROUND_INTERVAL.get(settings), COLLECTION_BACKGROUND_JITTER.get(settings));
+            this.collector.addExporterMetricsSource(background);
+        } else {
+            this.background = null;
+        }
+        this.collector.registerMetrics();
+    }
+
+    /**
+     * Update the collector with a collection response. Must be called while holding the lock of the collector.
+     */
+    static void updateMetrics(PrometheusMetricsCollector collector, NodePrometheusMetricsResponse response) {
+        if (logger.isTraceEnabled()) {
+            logger.trace("Preparing metrics output on node: [{}], [{}]", response.getNodeName(), response.getNodeId());
+        }
+        collector.updateMetrics(response);
+    }
+
+    /**
+     * Start the background collection, if enabled. Must not be called before the node has joined the cluster,
+     * the collection needs the transport layer and an elected cluster manager.
+     */
+    public void startBackgroundCollection() {
+        if (background != null) {
+            background.start();
+        }
+    }
+
+    /**
+     * Stop the background collection, if any.
+     */
+    public void close() {
+        if (background != null) {
+            background.close();
+        }
     }
 
     @Override
@@ -91,8 +288,7 @@ public class RestPrometheusMetricsAction extends BaseRestHandler {
         return "prometheus_metrics_action";
     }
 
-     // This method does not throw any IOException because there are no request parameters to be parsed
-     // and processed. This may change in the future.
+     // This method does not throw any IOException, the request parameters are parsed without any I/O.
     @Override
     protected RestChannelConsumer prepareRequest(RestRequest request, NodeClient client) {
         if (logger.isTraceEnabled()) {
@@ -101,54 +297,208 @@ public class RestPrometheusMetricsAction extends BaseRestHandler {
                     remoteAddress));
         }
 
-        NodePrometheusMetricsRequest metricsRequest = new NodePrometheusMetricsRequest();
+        Set<MetricGroup> selectedGroups = collectParam(request);
+        Set<MetricGroup> groups = selectedGroups != null ? selectedGroups : prometheusSettings.getMetricGroups();
+        int indexShards = request.paramAsInt(SHARDS_PARAM, 1);
+        int indexShard = request.paramAsInt(SHARD_PARAM, 0);
+        if (indexShards < 1 || indexShard < 0 || indexShard >= indexShards) {
+            throw new IllegalArgumentException("[" + SHARD_PARAM + "] must be between 0 and [" + SHARDS_PARAM
+                    + "] minus 1, got [" + indexShard + "] out of [" + indexShards + "]");
+        }
+        if (indexShards > 1 && background != null) {
+            // The background collection always covers all the indices.
+            throw new IllegalArgumentException("[" + SHARDS_PARAM + "] is not supported with "
+                    + COLLECTION_BACKGROUND_ENABLED_KEY);
+        }
+        if (selectedGroups != null && background != null
+                && !prometheusSettings.getMetricGroups().containsAll(selectedGroups)) {
+            // The background collection covers the default groups only.
+            throw new IllegalArgumentException("[" + COLLECT_PARAM + "] must select only metric groups collected by "
+                    + COLLECTION_BACKGROUND_ENABLED_KEY + ", see [" + PrometheusSettings.PROMETHEUS_METRIC_GROUPS.getKey()
+                    + "], got " + selectedGroups.stream().map(MetricGroup::key).collect(Collectors.toList()));
+        }
+        NodePrometheusMetricsRequest metricsRequest = new NodePrometheusMetricsRequest()
+                .scrapeTimeout(scrapeTimeout(request.header(SCRAPE_TIMEOUT_HEADER)))
+                .metricGroups(groups)
+                .indexShard(indexShard, indexShards);
+        ExpositionFormat format = ExpositionFormat.negotiate(request.getAllHeaderValues("Accept"), expositionFormats);
+        ContentEncoding encoding = compressionEnabled
+                ? ContentEncoding.negotiate(request.getAllHeaderValues("Accept-Encoding"))
+                : null;
 
-        return channel -> client.execute(INSTANCE, metricsRequest,
-                new RestResponseListener<NodePrometheusMetricsResponse>(channel) {
+        // Only responses of the default groups and all the indices are cached.
+        boolean defaultResponse = selectedGroups == null && indexShards == 1;
+        MetricsResponseCache.Entry cached = defaultResponse ? cache.get(format, encoding) : null;
+        if (cached != null) {
+            return channel -> channel.sendResponse(
+                    metricsResponse(cached.format(), cached.bytes(), cached.contentEncoding()));
+        }
+        boolean caching = defaultResponse && cache.isEnabled();
+        long cacheGeneration = cache.generation();
 
+        if (background != null) {
+            boolean hasSnapshot;
+            synchronized (collector) {
+                hasSnapshot = background.hasSnapshot();
+            }
+            if (hasSnapshot) {
+                // Rendering a big snapshot should not hold up the network thread the request arrived on.
+                return channel -> threadPool.executor(PrometheusExporterPlugin.EXECUTOR_NAME).execute(new AbstractRunnable() {
                     @Override
-                    public RestResponse buildResponse(NodePrometheusMetricsResponse response) throws Exception {
-
-                        String clusterName = response.getLocalNodesInfoResponse().getClusterName().value();
-                        assert response.getLocalNodesInfoResponse().getNodes().size() == 1;
-                        String nodeName = response.getLocalNodesInfoResponse().getNodes().get(0).getNode().getName();
-                        String nodeId = response.getLocalNodesInfoResponse().getNodes().get(0).getNode().getId();
+                    protected void doRun() throws Exception {
+                        channel.sendResponse(render(channel, format, encoding, groups, caching, cacheGeneration, null));
+                    }
 
-                        if (logger.isTraceEnabled()) {
-                            logger.trace("Preparing metrics output on node: [{}], [{}]", nodeName, nodeId);
-                        }
-                        PrometheusMetricsCollector collector;
-                        String textContent;
+                    @Override
+                    public void onFailure(Exception e) {
                         try {
-//                            PrometheusMetricsCatalog catalog = new PrometheusMetricsCatalog(clusterName, nodeName, nodeId, metricPrefix);
-                            PrometheusMetricsCatalog catalog = new PrometheusMetricsCatalog(clusterName, metricPrefix);
-                            collector = new PrometheusMetricsCollector(
-                                    catalog,
-                                    prometheusSettings.getPrometheusIndices(),
-                                    prometheusSettings.getPrometheusClusterSettings()
-                            );
-                            collector.registerMetrics();
-                            collector.updateMetrics(
-                                    nodeName, nodeId, response.getClusterHealth(), response.getNodeStats(),
-                                    response.getIndicesStats(), response.getClusterStatsData());
-                            textContent = collector.getTextContent();
-                        } catch (Exception ex) {
-                            // We use try-catch block to catch exception from Prometheus catalog and collector processing
-                            // and dump it into the log, otherwise client needs to know how to configure logging to output
-                            // exceptions that are thrown from
-                            // "RestResponseListener.buildResponse(Response response) throws Exception".
-                            // This is useful when metric_prefix value is not valid or when metric collector fails
-                            // generating text content. We may be able to get rid of this try-catch pattern
-                            // once we implement robust verification of custom metric prefix.
-                            // See https://github.com/aiven/prometheus-exporter-plugin-for-opensearch/issues/11
-                            logger.debug("Prometheus metric catalog processing failed", ex);
-                            throw ex;
+                            channel.sendResponse(new BytesRestResponse(channel, e));
+                        } catch (Exception inner) {
+                            inner.addSuppressed(e);
+                            logger.error("failed to send failure response", inner);
                         }
-                        // Prometheus' metrics are exposed similarly the Pushgateway example except no real gateway
-                        // is used and the metrics are exposed directly via OpenSearch HTTP API instead.
-                        // See https://github.com/prometheus/client_java#exporting-to-a-pushgateway
-                        return new BytesRestResponse(RestStatus.OK, textContent);
                     }
                 });
+            }
+        }
+
+        return channel -> {
+            ActionListener<NodePrometheusMetricsResponse> listener =
+                    new RestResponseListener<NodePrometheusMetricsResponse>(channel) {
+
+                        @Override
+                        public RestResponse buildResponse(NodePrometheusMetricsResponse response) throws Exception {
+                            return render(channel, format, encoding, groups, caching, cacheGeneration, response);
+                        }
+                    };
+            if (threadPool != null) {
+                // The collection completes on a transport thread, rendering must not block it.
+                listener = new ThreadedActionListener<>(logger, threadPool, PrometheusExporterPlugin.EXECUTOR_NAME,
+                        listener, false);
+            }
+            client.execute(INSTANCE, metricsRequest, listener);
+        };
+    }
+
+    /**
+     * Parse the metric groups selected by the request. The values of a repeated parameter are not all kept among
+     * the request parameters (only the last one is), so they are read from the query string.
+     * @param request REST request
+     * @return The selected groups or {@code null} if the request does not select any
+     * @throws IllegalArgumentException If any of the values is not a metric group
+     */
+    static Set<MetricGroup> collectParam(RestRequest request) {
+        // Reading the parameter also marks it as consumed.
+        if (request.param(COLLECT_PARAM) == null) {
+            return null;
+        }
+        List<String> keys = new ArrayList<>();
+        String uri = request.uri();
+        int query = uri.indexOf('?');
+        if (query >= 0) {
+            for (String pair : uri.substring(query + 1).split("&")) {
+                int eq = pair.indexOf('=');
+                if (eq > 0 && COLLECT_PARAM.equals(RestUtils.decodeComponent(pair.substring(0, eq)))) {
+                    for (String key : RestUtils.decodeComponent(pair.substring(eq + 1)).split(",")) {
+                        if (!key.trim().isEmpty()) {
+                            keys.add(key.trim());
+                        }
+                    }
+                }
+            }
+        }
+        return MetricGroup.fromKeys(keys);
+    }
+
+    /**
+     * Derive the deadline of the collection from the scrape timeout announced by Prometheus, leaving some time
+     * for rendering the response.
+     * @param header Value of the scrape timeout header, if any
+     * @return The time the collection must finish within (at most one hour) or {@code null} if the header is
+     * missing or invalid
+     */
+    static TimeValue scrapeTimeout(String header) {
+        if (header == null) {
+            return null;
+        }
+        double seconds;
+        try {
+            seconds = Double.parseDouble(header.trim());
+        } catch (NumberFormatException e) {
+            logger.debug("Ignoring invalid {} header [{}]", SCRAPE_TIMEOUT_HEADER, header);
+            return null;
+        }
+        if (!(seconds > 0) || Double.isInfinite(seconds)) {
+            logger.debug("Ignoring invalid {} header [{}]", SCRAPE_TIMEOUT_HEADER, header);
+            return null;
+        }
+        long millis = (long) (Math.min(seconds, MAX_SCRAPE_TIMEOUT_SECONDS) * 1000);
+        return TimeValue.timeValueMillis(Math.max(millis - SCRAPE_TIMEOUT_OFFSET_MILLIS, millis / 2));
+    }
+
+    /**
+     * Render the metrics into a response.
+     * @param groups Metric groups to render
+     * @param response Fresh collection to update the metrics with or {@code null} to render the background snapshot
+     */
+    private BytesRestResponse render(RestChannel channel, ExpositionFormat format, ContentEncoding encoding,
+                                     Set<MetricGroup> groups, boolean caching, long cacheGeneration,
+                                     NodePrometheusMetricsResponse response) throws Exception {
+        // The text is streamed straight into the (pooled) output buffer of the channel instead of
+        // being built as a String first and then copied into UTF-8 bytes of the response.
+        // Cached responses outlive the request, so they cannot use the recycled buffer.
+        BytesStreamOutput out = caching ? new BytesStreamOutput() : channel.bytesOutput();
+        boolean compressed = false;
+        try {
+            // The collector is shared by all requests, updating and rendering must not interleave
+            // with another scrape otherwise the output could mix values of both.
+            synchronized (collector) {
+                if (response != null) {
+                    updateMetrics(collector, response);
+                } else {
+                    background.updateSnapshotAge();
+                }
+                if (encoding == null) {
+                    collector.writeContent(format, out, groups);
+                } else {
+                    // Compressed on the fly, the uncompressed text is never held as a whole.
+                    try (CompressingOutputStream compressing = new CompressingOutputStream(
+                            out, encoding, compressionLevel, compressionMinSize)) {
+                        collector.writeContent(format, compressing, groups);
+                        compressed = compressing.finish();
+                    }
+                }
+            }
+        } catch (Exception ex) {
+            // We use try-catch block to catch exception from Prometheus catalog and collector processing
+            // and dump it into the log, otherwise client needs to know how to configure logging to output
+            // exceptions that are thrown from
+            // "RestResponseListener.buildResponse(Response response) throws Exception".
+            // This is useful when metric collector fails generating text content. The metric_prefix
+            // value is validated by the setting itself now because metrics are registered upfront.
+            // See https://github.com/aiven/prometheus-exporter-plugin-for-opensearch/issues/11
+            logger.debug("Prometheus metric catalog processing failed", ex);
+            throw ex;
+        }
+        // Prometheus' metrics are exposed similarly the Pushgateway example except no real gateway
+        // is used and the metrics are exposed directly via OpenSearch HTTP API instead.
+        // See https://github.com/prometheus/client_java#exporting-to-a-pushgateway
+        BytesReference bytes = out.bytes();
+        ContentEncoding contentEncoding = compressed ? encoding : null;
+        if (caching) {
+            cache.put(format, encoding, cacheGeneration, contentEncoding, bytes);
+        }
+        return metricsResponse(format, bytes, contentEncoding);
+    }
+
+    private BytesRestResponse metricsResponse(ExpositionFormat format, BytesReference bytes,
+                                              ContentEncoding contentEncoding) {
+        BytesRestResponse restResponse = new BytesRestResponse(RestStatus.OK, format.contentType(), bytes);
+        restResponse.addHeader("Vary", compressionEnabled ? "Accept, Accept-Encoding" : "Accept");
+        if (contentEncoding != null) {
+            // HTTP layer compression passes responses that already have a coding through as they are.
+            restResponse.addHeader("Content-Encoding", contentEncoding.token());
+        }
+        return restResponse;
     }
 }
@@ -0,0 +1,83 @@
+/*
+ * Copyright [2016] [Vincent VAN HOLLEBEKE]
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+package org.compuscene.metrics.prometheus;
+
+import org.opensearch.test.OpenSearchTestCase;
+
+import java.util.Arrays;
+import java.util.Collections;
+
+public class IndexGroupsTests extends OpenSearchTestCase {
+
+    private static IndexGroups groups(String... rules) {
+        return new IndexGroups(Arrays.asList(rules));
+    }
+
+    public void testWildcardRule() {
+        IndexGroups groups = groups("logs-*");
+        assertArrayEquals(new String[] {"logs-*"}, groups.resolve("logs-2024.01.01"));
+        assertArrayEquals(new String[0], groups.resolve("metrics-2024.01.01"));
+    }
+
+    public void testRegexRuleNamedAfterCaptureGroups() {
+        IndexGroups groups = groups("regex:^\\.ds-(.+)-\\d{6}$", "regex:^(\\w+)-(\\w+)-\\d+$");
+        assertArrayEquals(new String[] {"logs-app"}, groups.resolve(".ds-logs-app-000001"));
+        assertArrayEquals(new String[] {"metrics-host"}, groups.resolve("metrics-host-7"));
+    }
+
+    public void testRegexRuleWithoutCaptureGroups() {
+        IndexGroups groups = groups("regex:^audit-\\d+$");
+        assertArrayEquals(new String[] {"^audit-\\d+$"}, groups.resolve("audit-1"));
+        assertArrayEquals(new String[0], groups.resolve("audit-x"));
+    }
+
+    public void testOptionalCaptureGroupsAreSkipped() {
+        IndexGroups groups = groups("regex:^(a)?(b)-.*$");
+        assertArrayEquals(new String[] {"a-b"}, groups.resolve("ab-1"));
+        assertArrayEquals(new String[] {"b"}, groups.resolve("b-1"));
+    }
+
+    public void testIndexBelongsToEveryMatchingGroupOnce() {
+        IndexGroups groups = groups("logs-*", "*-prod", "logs-*", "regex:^(logs)-.*$");
+        assertArrayEquals(new String[] {"logs-*", "*-prod", "logs"}, groups.resolve("logs-prod"));
+    }
+
+    public void testInvalidRules() {
+        IllegalArgumentException e = expectThrows(IllegalArgumentException.class, () -> groups("regex:(unclosed"));
+        assertEquals("Invalid index group rule [regex:(unclosed]", e.getMessage());
+        e = expectThrows(IllegalArgumentException.class, () -> groups(""));
+        assertEquals("Index group rule must not be empty", e.getMessage());
+        expectThrows(IllegalArgumentException.class, () -> IndexGroups.validateRule("regex:[a-"));
+        assertEquals("logs-*", IndexGroups.validateRule("logs-*"));
+    }
+
+    public void testNoRules() {
+        assertTrue(IndexGroups.NONE.isEmpty());
+        assertTrue(groups().isEmpty());
+        assertFalse(groups("logs-*").isEmpty());
+        assertArrayEquals(new String[0], IndexGroups.NONE.resolve("logs-1"));
+    }
+
+    public void testRetainKeepsResolving() {
+        IndexGroups groups = groups("logs-*");
+        assertArrayEquals(new String[] {"logs-*"}, groups.resolve("logs-1"));
+        groups.retain(Collections.singleton("logs-2"));
+        assertArrayEquals(new String[] {"logs-*"}, groups.resolve("logs-1"));
+        groups.retain(Collections.emptySet());
+        assertArrayEquals(new String[0], groups.resolve("other"));
+    }
+}
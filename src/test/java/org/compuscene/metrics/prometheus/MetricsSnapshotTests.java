@@ -0,0 +1,119 @@
+/*
+ * Copyright [2016] [Vincent VAN HOLLEBEKE]
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+package org.compuscene.metrics.prometheus;
+
+import org.opensearch.common.collect.Tuple;
+import org.opensearch.common.io.stream.BytesStreamOutput;
+import org.opensearch.test.OpenSearchTestCase;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+
+public class MetricsSnapshotTests extends OpenSearchTestCase {
+
+    private static final Tuple<String, String> NODE = new Tuple<>("node-1", "node-id-1");
+
+    private static PrometheusMetricsCatalog catalog() {
+        PrometheusMetricsCatalog catalog = new PrometheusMetricsCatalog("test-cluster", "opensearch_",
+                PrometheusMetricsCatalog.StoreType.ARRAY);
+        catalog.registerClusterGauge("cluster_nodes_number", "Number of nodes", "type");
+        catalog.registerNodeCounter("jvm_gc_collection_count", "Count of GC collections", "gc");
+        catalog.registerNodeGauge("jvm_mem_heap_used_bytes", "Memory used by the heap");
+        return catalog;
+    }
+
+    private static MetricsSnapshot roundTrip(MetricsSnapshot snapshot) throws IOException {
+        try (BytesStreamOutput out = new BytesStreamOutput()) {
+            snapshot.writeTo(out);
+            return new MetricsSnapshot(out.bytes().streamInput());
+        }
+    }
+
+    private static byte[] render(PrometheusMetricsCatalog catalog, ExpositionFormat format) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        catalog.write(format, out);
+        return out.toByteArray();
+    }
+
+    private static byte[] render(MetricsSnapshot snapshot, ExpositionFormat format) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        snapshot.write(format, out);
+        return out.toByteArray();
+    }
+
+    public void testWriteReadEncodeRoundTrip() throws IOException {
+        PrometheusMetricsCatalog catalog = catalog();
+        catalog.registerSummaryTimer("metrics_generate_time_seconds", "Time spent while generating metrics");
+        catalog.startScrape();
+        catalog.setClusterGauge("cluster_nodes_number", 3, "data");
+        catalog.setClusterGauge("cluster_nodes_number", 1, "master");
+        catalog.setNodeGauge(NODE, "jvm_gc_collection_count", 42, "young");
+        catalog.setNodeGauge(NODE, "jvm_mem_heap_used_bytes", 1024.5);
+        catalog.startSummaryTimer(NODE, "metrics_generate_time_seconds").observeDuration();
+        catalog.finishScrape();
+
+        MetricsSnapshot snapshot = roundTrip(catalog.snapshot());
+
+        assertEquals(4, snapshot.familyCount());
+        for (ExpositionFormat format : ExpositionFormat.values()) {
+            assertArrayEquals("format " + format, render(catalog, format), render(snapshot, format));
+        }
+    }
+
+    public void testEmptyFamiliesRoundTrip() throws IOException {
+        PrometheusMetricsCatalog catalog = catalog();
+        catalog.startScrape();
+        catalog.finishScrape();
+
+        MetricsSnapshot snapshot = roundTrip(catalog.snapshot());
+
+        assertEquals(3, snapshot.familyCount());
+        assertArrayEquals(render(catalog, ExpositionFormat.TEXT_004), render(snapshot, ExpositionFormat.TEXT_004));
+    }
+
+    public void testMergeIntoCatalog() throws IOException {
+        PrometheusMetricsCatalog remote = catalog();
+        remote.startScrape();
+        remote.setClusterGauge("cluster_nodes_number", 5, "data");
+        remote.setNodeGauge(NODE, "jvm_gc_collection_count", 7, "old");
+        remote.finishScrape();
+        MetricsSnapshot snapshot = roundTrip(remote.snapshot());
+
+        // The local catalog lacks the cluster family, its series are not merged.
+        PrometheusMetricsCatalog local = new PrometheusMetricsCatalog("test-cluster", "opensearch_",
+                PrometheusMetricsCatalog.StoreType.ARRAY);
+        local.registerNodeCounter("jvm_gc_collection_count", "Count of GC collections", "gc");
+        local.startScrape();
+        local.setNodeGauge(new Tuple<>("node-2", "node-id-2"), "jvm_gc_collection_count", 3, "old");
+        local.merge(snapshot);
+        local.finishScrape();
+
+        String text = new String(render(local, ExpositionFormat.TEXT_004), StandardCharsets.UTF_8);
+        assertTrue(text, text.contains(
+                "opensearch_jvm_gc_collection_count{cluster=\"test-cluster\",node=\"node-2\",nodeid=\"node-id-2\",gc=\"old\",} 3.0"));
+        assertTrue(text, text.contains(
+                "opensearch_jvm_gc_collection_count{cluster=\"test-cluster\",node=\"node-1\",nodeid=\"node-id-1\",gc=\"old\",} 7.0"));
+        assertFalse(text, text.contains("opensearch_cluster_nodes_number"));
+
+        // Merged series are dropped by the next scrape.
+        local.startScrape();
+        local.finishScrape();
+        text = new String(render(local, ExpositionFormat.TEXT_004), StandardCharsets.UTF_8);
+        assertFalse(text, text.contains("node-id-1"));
+    }
+}
@@ -0,0 +1,110 @@
+/*
+ * Copyright [2021] [Lukas Vlcek]
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+package org.opensearch.plugin.prometheus;
+
+import com.carrotsearch.randomizedtesting.annotations.ThreadLeakScope;
+import org.apache.http.util.EntityUtils;
+import org.opensearch.client.Request;
+import org.opensearch.client.Response;
+import org.opensearch.client.ResponseException;
+import org.opensearch.common.settings.Settings;
+import org.opensearch.plugins.Plugin;
+import org.opensearch.test.OpenSearchIntegTestCase;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.concurrent.TimeUnit;
+
+@ThreadLeakScope(ThreadLeakScope.Scope.NONE)
+@OpenSearchIntegTestCase.ClusterScope(scope = OpenSearchIntegTestCase.Scope.SUITE, numDataNodes = 2, numClientNodes = 0, supportsDedicatedMasters = false)
+public class BackgroundCollectionIT extends OpenSearchIntegTestCase {
+
+    @Override
+    protected Collection<Class<? extends Plugin>> nodePlugins() {
+        return Arrays.asList(PrometheusExporterPlugin.class);
+    }
+
+    @Override
+    protected Settings nodeSettings(int nodeOrdinal) {
+        return Settings.builder()
+                .put(super.nodeSettings(nodeOrdinal))
+                .put("prometheus.collection.background.enabled", true)
+                .put("prometheus.collection.background.interval", "1s")
+                .put("prometheus.collection.background.jitter", "0s")
+                .build();
+    }
+
+    private String metrics() throws IOException {
+        Response response = getRestClient().performRequest(new Request("GET", "_prometheus/metrics"));
+        assertEquals(200, response.getStatusLine().getStatusCode());
+        return EntityUtils.toString(response.getEntity(), StandardCharsets.UTF_8);
+    }
+
+    public void testSnapshotServed() throws IOException {
+        String body = metrics();
+        assertTrue(body.startsWith("# HELP"));
+        assertTrue(body.contains("# TYPE opensearch_metrics_snapshot_age_seconds gauge\n"));
+        assertTrue(body.contains("opensearch_cluster_status{"));
+    }
+
+    /**
+     * New indices show up once the next background collection has run.
+     */
+    public void testSnapshotRefreshed() throws Exception {
+        createIndex("background-test");
+        ensureGreen("background-test");
+        assertBusy(() -> assertTrue(metrics().contains("index=\"background-test\"")), 30, TimeUnit.SECONDS);
+    }
+
+    /**
+     * Only the default metric groups are collected in the background, requests cannot select other groups.
+     */
+    public void testCollectOutsideDefaultGroupsRejected() throws IOException {
+        client().admin().cluster().prepareUpdateSettings()
+                .setPersistentSettings(Settings.builder().putList("prometheus.metric_groups", "jvm", "os"))
+                .get();
+        try {
+            Request request = new Request("GET", "_prometheus/metrics");
+            request.addParameter("collect[]", "jvm");
+            Response response = getRestClient().performRequest(request);
+            assertEquals(200, response.getStatusLine().getStatusCode());
+
+            Request rejected = new Request("GET", "_prometheus/metrics");
+            rejected.addParameter("collect[]", "jvm,index");
+            ResponseException e = expectThrows(ResponseException.class, () -> getRestClient().performRequest(rejected));
+            assertEquals(400, e.getResponse().getStatusLine().getStatusCode());
+            assertTrue(e.getMessage(), e.getMessage().contains("[collect[]] must select only metric groups"));
+        } finally {
+            client().admin().cluster().prepareUpdateSettings()
+                    .setPersistentSettings(Settings.builder().putNull("prometheus.metric_groups"))
+                    .get();
+        }
+    }
+
+    /**
+     * The background collection covers all the indices, they cannot be split among several scrapers.
+     */
+    public void testIndexShardsRejected() {
+        Request request = new Request("GET", "_prometheus/metrics");
+        request.addParameter("shard", "0");
+        request.addParameter("shards", "2");
+        ResponseException e = expectThrows(ResponseException.class, () -> getRestClient().performRequest(request));
+        assertEquals(400, e.getResponse().getStatusLine().getStatusCode());
+    }
+}
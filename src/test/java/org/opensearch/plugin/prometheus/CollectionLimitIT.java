@@ -0,0 +1,102 @@
+/*
+ * Copyright [2021] [Lukas Vlcek]
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+package org.opensearch.plugin.prometheus;
+
+import com.carrotsearch.randomizedtesting.annotations.ThreadLeakScope;
+import org.apache.http.util.EntityUtils;
+import org.opensearch.client.Request;
+import org.opensearch.client.Response;
+import org.opensearch.client.ResponseException;
+import org.opensearch.common.settings.Settings;
+import org.opensearch.plugins.Plugin;
+import org.opensearch.test.OpenSearchIntegTestCase;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+@ThreadLeakScope(ThreadLeakScope.Scope.NONE)
+@OpenSearchIntegTestCase.ClusterScope(scope = OpenSearchIntegTestCase.Scope.SUITE, numDataNodes = 2, numClientNodes = 0, supportsDedicatedMasters = false)
+public class CollectionLimitIT extends OpenSearchIntegTestCase {
+
+    private static final int REQUESTS = 8;
+
+    @Override
+    protected Collection<Class<? extends Plugin>> nodePlugins() {
+        return Arrays.asList(PrometheusExporterPlugin.class);
+    }
+
+    @Override
+    protected Settings nodeSettings(int nodeOrdinal) {
+        return Settings.builder()
+                .put(super.nodeSettings(nodeOrdinal))
+                .put("prometheus.collection.coalesce", false)
+                .put("prometheus.collection.max_concurrent", 1)
+                .build();
+    }
+
+    /**
+     * Send the requests at the same time.
+     * @return HTTP status of every response
+     */
+    private List<Integer> concurrentRequests() throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(REQUESTS);
+        try {
+            CountDownLatch start = new CountDownLatch(1);
+            List<Future<Integer>> futures = new ArrayList<>();
+            for (int i = 0; i < REQUESTS; i++) {
+                futures.add(executor.submit(() -> {
+                    start.await();
+                    try {
+                        Response response = getRestClient().performRequest(new Request("GET", "_prometheus/metrics"));
+                        String body = EntityUtils.toString(response.getEntity(), StandardCharsets.UTF_8);
+                        assertTrue(body.startsWith("# HELP"));
+                        return response.getStatusLine().getStatusCode();
+                    } catch (ResponseException e) {
+                        return e.getResponse().getStatusLine().getStatusCode();
+                    }
+                }));
+            }
+            start.countDown();
+            List<Integer> statuses = new ArrayList<>();
+            for (Future<Integer> future : futures) {
+                statuses.add(future.get(60, TimeUnit.SECONDS));
+            }
+            return statuses;
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    /**
+     * Without coalescing and with a cap of one collection per node, concurrent requests over the cap are rejected.
+     */
+    public void testRequestsOverCapRejected() throws Exception {
+        List<Integer> statuses = concurrentRequests();
+        for (Integer status : statuses) {
+            assertTrue("unexpected status " + status, status == 200 || status == 429);
+        }
+        assertTrue(statuses.toString(), statuses.contains(200));
+    }
+}
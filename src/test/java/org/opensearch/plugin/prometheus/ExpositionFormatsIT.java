@@ -0,0 +1,129 @@
+/*
+ * Copyright [2021] [Lukas Vlcek]
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+package org.opensearch.plugin.prometheus;
+
+import com.carrotsearch.randomizedtesting.annotations.ThreadLeakScope;
+import org.apache.http.util.EntityUtils;
+import org.opensearch.client.Request;
+import org.opensearch.client.RequestOptions;
+import org.opensearch.client.Response;
+import org.opensearch.common.settings.Settings;
+import org.opensearch.plugins.Plugin;
+import org.opensearch.test.OpenSearchIntegTestCase;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+
+@ThreadLeakScope(ThreadLeakScope.Scope.NONE)
+@OpenSearchIntegTestCase.ClusterScope(scope = OpenSearchIntegTestCase.Scope.SUITE, numDataNodes = 2, numClientNodes = 0, supportsDedicatedMasters = false)
+public class ExpositionFormatsIT extends OpenSearchIntegTestCase {
+
+    private static final String OPENMETRICS = "application/openmetrics-text; version=1.0.0; charset=utf-8";
+    private static final String PROTOBUF =
+            "application/vnd.google.protobuf; proto=io.prometheus.client.MetricFamily; encoding=delimited";
+
+    @Override
+    protected Collection<Class<? extends Plugin>> nodePlugins() {
+        return Arrays.asList(PrometheusExporterPlugin.class);
+    }
+
+    @Override
+    protected Settings nodeSettings(int nodeOrdinal) {
+        return Settings.builder()
+                .put(super.nodeSettings(nodeOrdinal))
+                .put("prometheus.openmetrics.enabled", true)
+                .build();
+    }
+
+    private Response metrics(String accept) throws IOException {
+        Request request = new Request("GET", "_prometheus/metrics");
+        if (accept != null) {
+            RequestOptions.Builder options = RequestOptions.DEFAULT.toBuilder();
+            options.addHeader("Accept", accept);
+            request.setOptions(options);
+        }
+        Response response = getRestClient().performRequest(request);
+        assertEquals(200, response.getStatusLine().getStatusCode());
+        return response;
+    }
+
+    /**
+     * Text format stays the default and keeps cumulative metrics as gauges.
+     */
+    public void testTextFormatByDefault() throws IOException {
+        Response response = metrics(null);
+        assertEquals("text/plain; charset=UTF-8", response.getEntity().getContentType().getValue());
+        String body = EntityUtils.toString(response.getEntity(), StandardCharsets.UTF_8);
+        assertTrue(body.contains("# TYPE opensearch_indices_indexing_index_count gauge\n"));
+        assertFalse(body.contains("# EOF"));
+    }
+
+    public void testOpenMetricsFormat() throws IOException {
+        Response response = metrics(OPENMETRICS + ",text/plain; version=0.0.4; q=0.5");
+        assertEquals(OPENMETRICS, response.getEntity().getContentType().getValue());
+        String body = EntityUtils.toString(response.getEntity(), StandardCharsets.UTF_8);
+        assertTrue(body.contains("# TYPE opensearch_indices_indexing_index_count counter\n"));
+        assertTrue(body.contains("\nopensearch_indices_indexing_index_count_total{"));
+        assertTrue(body.endsWith("\n# EOF\n"));
+    }
+
+    /**
+     * The body is a sequence of length-delimited MetricFamily messages, each starting with the family name.
+     */
+    public void testProtobufFormat() throws IOException {
+        Response response = metrics(PROTOBUF + ";q=0.9,text/plain;q=0.5");
+        assertEquals(PROTOBUF, response.getEntity().getContentType().getValue());
+        byte[] body = EntityUtils.toByteArray(response.getEntity());
+        List<String> names = new ArrayList<>();
+        int position = 0;
+        while (position < body.length) {
+            int[] length = readVarint(body, position);
+            int start = length[1];
+            assertTrue(start + length[0] <= body.length);
+            // field 1 (name), wire type 2 (length-delimited)
+            assertEquals(0x0A, body[start]);
+            int[] nameLength = readVarint(body, start + 1);
+            String name = new String(body, nameLength[1], nameLength[0], StandardCharsets.UTF_8);
+            assertTrue(name, name.startsWith("opensearch_"));
+            names.add(name);
+            position = start + length[0];
+        }
+        assertEquals(body.length, position);
+        // Counters are named the same as in the text format
+        assertTrue(names.contains("opensearch_indices_indexing_index_count"));
+        assertFalse(names.contains("opensearch_indices_indexing_index_count_total"));
+    }
+
+    /**
+     * @return The value and the position right after it
+     */
+    private static int[] readVarint(byte[] bytes, int position) {
+        int value = 0;
+        int shift = 0;
+        byte b;
+        do {
+            b = bytes[position++];
+            value |= (b & 0x7F) << shift;
+            shift += 7;
+        } while ((b & 0x80) != 0);
+        return new int[] {value, position};
+    }
+}
@@ -0,0 +1,72 @@
+/*
+ * Copyright [2021] [Lukas Vlcek]
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+package org.opensearch.plugin.prometheus;
+
+import com.carrotsearch.randomizedtesting.annotations.ThreadLeakScope;
+import org.apache.http.util.EntityUtils;
+import org.opensearch.client.Request;
+import org.opensearch.client.Response;
+import org.opensearch.common.settings.Settings;
+import org.opensearch.plugins.Plugin;
+import org.opensearch.test.OpenSearchIntegTestCase;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.regex.Pattern;
+
+@ThreadLeakScope(ThreadLeakScope.Scope.NONE)
+@OpenSearchIntegTestCase.ClusterScope(scope = OpenSearchIntegTestCase.Scope.SUITE, numDataNodes = 2, numClientNodes = 0, supportsDedicatedMasters = false)
+public class ParallelCollectionIT extends OpenSearchIntegTestCase {
+
+    @Override
+    protected Collection<Class<? extends Plugin>> nodePlugins() {
+        return Arrays.asList(PrometheusExporterPlugin.class);
+    }
+
+    @Override
+    protected Settings nodeSettings(int nodeOrdinal) {
+        return Settings.builder()
+                .put(super.nodeSettings(nodeOrdinal))
+                .put("prometheus.collection.parallel", true)
+                .put("prometheus.collection.parallel.max_requests", 2)
+                .build();
+    }
+
+    /**
+     * All the sections complete when their requests are sent in parallel.
+     */
+    public void testAllSectionsCollected() throws IOException {
+        createIndex("parallel-test");
+        ensureGreen("parallel-test");
+
+        Response response = getRestClient().performRequest(new Request("GET", "_prometheus/metrics"));
+        assertEquals(200, response.getStatusLine().getStatusCode());
+        String body = EntityUtils.toString(response.getEntity(), StandardCharsets.UTF_8);
+
+        for (String section : Arrays.asList("cluster_health", "nodes_stats", "indices_stats")) {
+            Pattern success = Pattern.compile("opensearch_exporter_collector_success\\{[^}]*section=\"" + section
+                    + "\",} 1\\.0\n");
+            assertTrue(section, success.matcher(body).find());
+        }
+        assertTrue(body.contains("opensearch_cluster_status{"));
+        assertTrue(body.contains("opensearch_jvm_mem_heap_used_bytes{"));
+        assertTrue(body.contains("opensearch_index_status{cluster=\"" + cluster().getClusterName()
+                + "\",index=\"parallel-test\",}"));
+    }
+}
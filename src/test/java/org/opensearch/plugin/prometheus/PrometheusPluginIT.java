@@ -23,15 +23,18 @@ import org.opensearch.action.admin.cluster.node.info.NodeInfo;
 import org.opensearch.action.admin.cluster.node.info.NodesInfoResponse;
 import org.opensearch.action.admin.cluster.node.info.PluginsAndModules;
 import org.opensearch.client.Request;
+import org.opensearch.client.RequestOptions;
 import org.opensearch.client.Response;
 import org.opensearch.client.RestClient;
 import org.opensearch.plugins.Plugin;
 import org.opensearch.test.OpenSearchIntegTestCase;
 
 import java.io.IOException;
+import java.io.InputStream;
 import java.nio.charset.StandardCharsets;
 import java.util.Arrays;
 import java.util.Collection;
+import java.util.zip.InflaterInputStream;
 
 @ThreadLeakScope(ThreadLeakScope.Scope.NONE)
 @OpenSearchIntegTestCase.ClusterScope(scope = OpenSearchIntegTestCase.Scope.SUITE, numDataNodes = 2, numClientNodes = 0, supportsDedicatedMasters = false)
@@ -69,4 +72,50 @@ public class PrometheusPluginIT extends OpenSearchIntegTestCase {
         String body = EntityUtils.toString(response.getEntity(), StandardCharsets.UTF_8);
         assertTrue(body.startsWith("# HELP"));
     }
+
+    /**
+     * Response is compressed when the client accepts deflate, the REST client only decompresses gzip by itself.
+     */
+    public void testDeflateCompressedResponse() throws IOException {
+        Request request = new Request("GET", "_prometheus/metrics");
+        RequestOptions.Builder options = RequestOptions.DEFAULT.toBuilder();
+        options.addHeader("Accept-Encoding", "deflate");
+        request.setOptions(options);
+        Response response = getRestClient().performRequest(request);
+        assertEquals(200, response.getStatusLine().getStatusCode());
+        assertEquals("deflate", response.getHeader("Content-Encoding"));
+        assertEquals("text/plain; charset=UTF-8", response.getEntity().getContentType().getValue());
+        String body;
+        try (InputStream in = new InflaterInputStream(response.getEntity().getContent())) {
+            body = new String(in.readAllBytes(), StandardCharsets.UTF_8);
+        }
+        assertTrue(body.startsWith("# HELP"));
+        assertTrue(body.contains("opensearch_cluster_status"));
+    }
+
+    /**
+     * Groups of all the values of a repeated collect[] parameter are collected.
+     */
+    public void testRepeatedCollectParameter() throws IOException {
+        Response response = getRestClient().performRequest(
+                new Request("GET", "_prometheus/metrics?collect%5B%5D=jvm&collect%5B%5D=os,threadpool"));
+        assertEquals(200, response.getStatusLine().getStatusCode());
+        String body = EntityUtils.toString(response.getEntity(), StandardCharsets.UTF_8);
+        assertTrue(body.contains("\nopensearch_jvm_mem_heap_used_bytes{"));
+        assertTrue(body.contains("\nopensearch_os_mem_total_bytes{"));
+        assertTrue(body.contains("\nopensearch_threadpool_threads_number{"));
+        assertFalse(body.contains("\nopensearch_cluster_status{"));
+    }
+
+    public void testUncompressedResponseWithoutAcceptedCoding() throws IOException {
+        Request request = new Request("GET", "_prometheus/metrics");
+        RequestOptions.Builder options = RequestOptions.DEFAULT.toBuilder();
+        options.addHeader("Accept-Encoding", "br");
+        request.setOptions(options);
+        Response response = getRestClient().performRequest(request);
+        assertEquals(200, response.getStatusLine().getStatusCode());
+        assertNull(response.getHeader("Content-Encoding"));
+        String body = EntityUtils.toString(response.getEntity(), StandardCharsets.UTF_8);
+        assertTrue(body.startsWith("# HELP"));
+    }
 }